@@ -0,0 +1,12 @@
+package io.papermc.paper.threadedregions;
+
+/**
+ * Folia's region threading lives in this class on real Folia servers. Its presence is what MorePaperLib
+ * looks for to decide whether to use the region schedulers, so the scale harness ships an empty one.
+ * It is never instantiated.
+ */
+public final class RegionizedServer {
+
+    private RegionizedServer() {
+    }
+}
@@ -0,0 +1,85 @@
+package me.xginko.villageroptimizer.benchmarks;
+
+import me.xginko.villageroptimizer.modules.VillagerChunkLimit;
+import org.bukkit.entity.Villager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the selection of villagers to remove from a crowded chunk, which runs
+ * on every chunk check of the villager chunk limit.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChunkLimitBenchmark {
+
+    @Param({"25", "100", "1000"})
+    public int villagersInChunk;
+
+    @Param({"20"})
+    public int maxPerChunk;
+
+    private List<Villager.Profession> priority;
+    private Map<Villager.Profession, Integer> priorityIndex;
+    private Villager[] villagers;
+
+    @Setup
+    public void setup() {
+        // Same defaults as the module
+        this.priority = Arrays.asList(
+                Villager.Profession.NONE, Villager.Profession.NITWIT, Villager.Profession.SHEPHERD,
+                Villager.Profession.FISHERMAN, Villager.Profession.BUTCHER, Villager.Profession.CARTOGRAPHER,
+                Villager.Profession.LEATHERWORKER, Villager.Profession.FLETCHER, Villager.Profession.MASON,
+                Villager.Profession.FARMER, Villager.Profession.ARMORER, Villager.Profession.TOOLSMITH,
+                Villager.Profession.WEAPONSMITH, Villager.Profession.CLERIC, Villager.Profession.LIBRARIAN);
+        this.priorityIndex = VillagerChunkLimit.priorityIndex(priority);
+
+        final Villager.Profession[] professions = Villager.Profession.values();
+        final Random random = new Random(42);
+        this.villagers = new Villager[villagersInChunk];
+        for (int i = 0; i < villagersInChunk; i++) {
+            villagers[i] = Stubs.villager(professions[random.nextInt(professions.length)], Stubs.dataContainer());
+        }
+    }
+
+    @Benchmark
+    public List<Villager> selectForRemoval() {
+        return VillagerChunkLimit.selectForRemoval(new ArrayList<>(Arrays.asList(villagers)), maxPerChunk, priorityIndex);
+    }
+
+    /**
+     * The previous implementation, which looked up the priority of each profession in a list on every comparison.
+     */
+    @Benchmark
+    public List<Villager> selectForRemovalListLookup() {
+        final List<Villager> list = new ArrayList<>(Arrays.asList(villagers));
+        final int tooMany = list.size() - maxPerChunk;
+        if (tooMany <= 0) return list;
+        list.sort(Comparator.comparingInt(villager -> {
+            final Villager.Profession profession = villager.getProfession();
+            return priority.contains(profession) ? priority.indexOf(profession) : Integer.MAX_VALUE;
+        }));
+        return list.subList(0, tooMany);
+    }
+}
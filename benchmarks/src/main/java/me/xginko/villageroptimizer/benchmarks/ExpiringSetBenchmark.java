@@ -0,0 +1,66 @@
+package me.xginko.villageroptimizer.benchmarks;
+
+import me.xginko.villageroptimizer.utils.ExpiringSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpiringSetBenchmark {
+
+    @Param({"100", "10000"})
+    public int size;
+
+    private ExpiringSet<UUID> set;
+    private UUID[] present, absent;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        this.set = new ExpiringSet<>(Duration.ofMinutes(5));
+        this.present = new UUID[size];
+        this.absent = new UUID[size];
+        for (int i = 0; i < size; i++) {
+            present[i] = UUID.randomUUID();
+            absent[i] = UUID.randomUUID();
+            set.add(present[i]);
+        }
+    }
+
+    private int next() {
+        if (++cursor >= size) cursor = 0;
+        return cursor;
+    }
+
+    @Benchmark
+    public boolean add() {
+        return set.add(present[next()]);
+    }
+
+    @Benchmark
+    public boolean containsHit() {
+        return set.contains(present[next()]);
+    }
+
+    @Benchmark
+    public boolean containsMiss() {
+        return set.contains(absent[next()]);
+    }
+}
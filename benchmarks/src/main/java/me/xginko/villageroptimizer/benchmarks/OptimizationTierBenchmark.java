@@ -0,0 +1,57 @@
+package me.xginko.villageroptimizer.benchmarks;
+
+import me.xginko.villageroptimizer.enums.OptimizationTier;
+import org.bukkit.entity.Villager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what switching a villager in and out of each tier costs the plugin: the flag checks and writes and
+ * recording which flags were changed. The entities are stubs, so this says nothing about how much each tier
+ * saves per server tick. That can only be measured by profiling a server with the same villagers in each tier.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OptimizationTierBenchmark {
+
+    @Param({"UNAWARE", "SILENT_NO_GRAVITY", "NO_AI"})
+    public OptimizationTier tier;
+
+    private Villager villager;
+
+    @Setup
+    public void setup() {
+        this.villager = Stubs.villager(Villager.Profession.LIBRARIAN, Stubs.dataContainer());
+    }
+
+    @Benchmark
+    public Villager applyAndRevert() {
+        tier.apply(villager);
+        tier.revert(villager);
+        return villager;
+    }
+
+    /**
+     * Applying to a villager that already has the tier, like hibernated and virtual villagers do when restored.
+     */
+    @Benchmark
+    public Villager reapply() {
+        tier.apply(villager);
+        return villager;
+    }
+}
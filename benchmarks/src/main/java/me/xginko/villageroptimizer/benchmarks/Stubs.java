@@ -0,0 +1,198 @@
+package me.xginko.villageroptimizer.benchmarks;
+
+import org.bukkit.Bukkit;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Villager;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * In-memory stand-ins for the few Bukkit objects the benchmarked code touches, so benchmarks can run
+ * without a server. Every method that isn't explicitly handled returns the default value for its return type.
+ */
+public final class Stubs {
+
+    private static volatile @Nullable InvocationHandler serverExtension;
+    private static boolean serverInstalled = false;
+
+    /**
+     * Installs a server stub so that code reading the server version, like XSeries, can be initialized.
+     */
+    public static synchronized void installServer() {
+        if (serverInstalled) return;
+        final Logger logger = Logger.getLogger("Server");
+        Bukkit.setServer(proxy(Server.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getName":
+                    return "Paper";
+                case "getVersion":
+                    return "git-Paper-496 (MC: 1.20.4)";
+                case "getBukkitVersion":
+                    return "1.20.4-R0.1-SNAPSHOT";
+                case "getMinecraftVersion":
+                    return "1.20.4";
+                case "getLogger":
+                    return logger;
+                default:
+                    final InvocationHandler extension = serverExtension;
+                    return extension != null ? extension.invoke(proxy, method, args) : defaultValue(proxy, method, args);
+            }
+        }));
+        serverInstalled = true;
+    }
+
+    /**
+     * @param extension Handles all server methods the plain server stub doesn't, or null to return default values.
+     */
+    public static void serverExtension(@Nullable InvocationHandler extension) {
+        serverExtension = extension;
+    }
+
+    public static @NotNull World world(@NotNull String name, @NotNull World.Environment environment) {
+        final UUID uid = UUID.nameUUIDFromBytes(name.getBytes());
+        return proxy(World.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getName":
+                    return name;
+                case "getUID":
+                    return uid;
+                case "getEnvironment":
+                    return environment;
+                case "getMinHeight":
+                    return environment == World.Environment.NORMAL ? -64 : 0;
+                case "getMaxHeight":
+                    return environment == World.Environment.NORMAL ? 320 : 256;
+                default:
+                    return defaultValue(proxy, method, args);
+            }
+        });
+    }
+
+    /**
+     * @return A villager that remembers the entity flags optimization tiers change. Like a freshly spawned villager,
+     * it starts out aware, with AI and gravity, and not silent.
+     */
+    public static @NotNull Villager villager(@NotNull Villager.Profession profession, @NotNull PersistentDataContainer dataContainer) {
+        final UUID uuid = UUID.randomUUID();
+        final boolean[] flags = {true, false, true, true}; // aware, silent, gravity, AI
+        return proxy(Villager.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "isAware":
+                    return flags[0];
+                case "setAware":
+                    flags[0] = (boolean) args[0];
+                    return null;
+                case "isSilent":
+                    return flags[1];
+                case "setSilent":
+                    flags[1] = (boolean) args[0];
+                    return null;
+                case "hasGravity":
+                    return flags[2];
+                case "setGravity":
+                    flags[2] = (boolean) args[0];
+                    return null;
+                case "hasAI":
+                    return flags[3];
+                case "setAI":
+                    flags[3] = (boolean) args[0];
+                    return null;
+                case "getType":
+                    return EntityType.VILLAGER;
+                case "getUniqueId":
+                    return uuid;
+                case "getProfession":
+                    return profession;
+                case "getPersistentDataContainer":
+                    return dataContainer;
+                case "isValid":
+                    return true;
+                default:
+                    return defaultValue(proxy, method, args);
+            }
+        });
+    }
+
+    /**
+     * @return A container that stores values as they are, without serializing them to NBT.
+     */
+    @SuppressWarnings("unchecked")
+    public static @NotNull PersistentDataContainer dataContainer() {
+        final Map<NamespacedKey, Object> values = new HashMap<>();
+        return proxy(PersistentDataContainer.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "has":
+                    final Object value = values.get((NamespacedKey) args[0]);
+                    return value != null && (args.length == 1 || ((PersistentDataType<?, ?>) args[1]).getComplexType().isInstance(value));
+                case "get":
+                    final Object stored = values.get((NamespacedKey) args[0]);
+                    return ((PersistentDataType<?, ?>) args[1]).getComplexType().isInstance(stored) ? stored : null;
+                case "getOrDefault":
+                    final Object present = values.get((NamespacedKey) args[0]);
+                    return ((PersistentDataType<?, ?>) args[1]).getComplexType().isInstance(present) ? present : args[2];
+                case "set":
+                    values.put((NamespacedKey) args[0], args[2]);
+                    return null;
+                case "remove":
+                    values.remove((NamespacedKey) args[0]);
+                    return null;
+                case "getKeys":
+                    return values.keySet();
+                case "isEmpty":
+                    return values.isEmpty();
+                default:
+                    return defaultValue(proxy, method, args);
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> @NotNull T proxy(@NotNull Class<T> type, @NotNull InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(Stubs.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    /**
+     * @return What an unimplemented method should return: nothing, zero, false or an empty collection.
+     */
+    public static Object defaultValue(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return method.getDeclaringClass().getSimpleName() + "Stub@" + Integer.toHexString(System.identityHashCode(proxy));
+        }
+
+        final Class<?> returnType = method.getReturnType();
+        if (returnType == List.class || returnType == Collection.class) return Collections.emptyList();
+        if (returnType == Set.class) return Collections.emptySet();
+        if (returnType == Map.class) return Collections.emptyMap();
+        if (!returnType.isPrimitive() || returnType == void.class) return null;
+        if (returnType == boolean.class) return false;
+        if (returnType == char.class) return '\0';
+        if (returnType == byte.class) return (byte) 0;
+        if (returnType == short.class) return (short) 0;
+        if (returnType == int.class) return 0;
+        if (returnType == long.class) return 0L;
+        if (returnType == float.class) return 0F;
+        return 0D;
+    }
+}
@@ -0,0 +1,77 @@
+package me.xginko.villageroptimizer.benchmarks;
+
+import me.xginko.villageroptimizer.utils.KyoriUtil;
+import me.xginko.villageroptimizer.utils.LocationUtil;
+import me.xginko.villageroptimizer.utils.Util;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Villager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilBenchmark {
+
+    private Location overworldFrom, overworldTo, netherTo;
+    private Duration shortDuration, longDuration;
+    private String legacyMessage;
+
+    @Setup
+    public void setup() {
+        Stubs.installServer();
+        final World overworld = Stubs.world("world", World.Environment.NORMAL);
+        final World nether = Stubs.world("world_nether", World.Environment.NETHER);
+        this.overworldFrom = new Location(overworld, 120.5, 64, -340.5);
+        this.overworldTo = new Location(overworld, 132.5, 70, -320.5);
+        this.netherTo = new Location(nether, 15.5, 130, -40.5);
+        this.shortDuration = Duration.ofSeconds(42);
+        this.longDuration = Duration.ofHours(5).plusMinutes(13).plusSeconds(7);
+        this.legacyMessage = "&7You need to wait &6%time% &7until you can optimize this villager again.";
+    }
+
+    @Benchmark
+    public double relDistance3DSquaredSameWorld() {
+        return LocationUtil.relDistance3DSquared(overworldFrom, overworldTo);
+    }
+
+    @Benchmark
+    public double relDistance3DSquaredCrossDimension() {
+        return LocationUtil.relDistance3DSquared(overworldFrom, netherTo);
+    }
+
+    @Benchmark
+    public String toNiceString() {
+        return Util.toNiceString(Villager.Profession.LEATHERWORKER);
+    }
+
+    @Benchmark
+    public String formatDurationSeconds() {
+        return Util.formatDuration(shortDuration);
+    }
+
+    @Benchmark
+    public String formatDurationHours() {
+        return Util.formatDuration(longDuration);
+    }
+
+    @Benchmark
+    public String translateChatColor() {
+        return KyoriUtil.translateChatColor(legacyMessage);
+    }
+}
@@ -0,0 +1,77 @@
+package me.xginko.villageroptimizer.benchmarks;
+
+import me.xginko.villageroptimizer.enums.Keyring;
+import me.xginko.villageroptimizer.enums.OptimizationTier;
+import me.xginko.villageroptimizer.enums.OptimizationType;
+import me.xginko.villageroptimizer.wrapper.WrappedVillager;
+import org.bukkit.entity.Villager;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WrappedVillagerBenchmark {
+
+    @Param({"false", "true"})
+    public boolean supportOtherPlugins;
+
+    /**
+     * Which plugin, if any, marked the villager as optimized.
+     */
+    @Param({"NONE", "VILLAGER_OPTIMIZER", "ANTI_VILLAGER_LAG"})
+    public String optimizedBy;
+
+    private WrappedVillager wrappedVillager;
+
+    @Setup
+    public void setup() {
+        final PersistentDataContainer dataContainer = Stubs.dataContainer();
+        switch (optimizedBy) {
+            case "VILLAGER_OPTIMIZER":
+                dataContainer.set(Keyring.VillagerOptimizer.OPTIMIZATION_TYPE.getKey(), PersistentDataType.STRING, OptimizationType.COMMAND.name());
+                dataContainer.set(Keyring.VillagerOptimizer.LAST_OPTIMIZE_SYSTIME_MILLIS.getKey(), PersistentDataType.LONG, System.currentTimeMillis());
+                dataContainer.set(Keyring.VillagerOptimizer.OPTIMIZATION_TIER.getKey(), PersistentDataType.STRING, OptimizationTier.NO_AI.name());
+                break;
+            case "ANTI_VILLAGER_LAG":
+                dataContainer.set(Keyring.AntiVillagerLag.OPTIMIZED_ANY.getKey(), PersistentDataType.STRING, "AVL");
+                dataContainer.set(Keyring.AntiVillagerLag.NEXT_OPTIMIZATION_SYSTIME_SECONDS.getKey(), PersistentDataType.LONG,
+                        TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()));
+                break;
+        }
+
+        final Villager villager = Stubs.villager(Villager.Profession.LIBRARIAN, dataContainer);
+        this.wrappedVillager = new WrappedVillager(villager, supportOtherPlugins);
+    }
+
+    @Benchmark
+    public boolean isOptimized() {
+        return wrappedVillager.isOptimized();
+    }
+
+    @Benchmark
+    public boolean canOptimize() {
+        return wrappedVillager.canOptimize(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    @Benchmark
+    public OptimizationTier getOptimizationTier() {
+        return wrappedVillager.getOptimizationTier();
+    }
+}
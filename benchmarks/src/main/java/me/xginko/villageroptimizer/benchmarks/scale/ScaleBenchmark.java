@@ -0,0 +1,55 @@
+package me.xginko.villageroptimizer.benchmarks.scale;
+
+import me.xginko.villageroptimizer.modules.VillagerChunkLimit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One full villager chunk limit check over a simulated server, from the periodic task firing until
+ * the last villager was removed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ScaleBenchmark {
+
+    @Param({"5000", "50000"})
+    public int villagers;
+
+    private SimPlugin sim;
+    private SimWorld world;
+
+    @Setup(Level.Trial)
+    public void startPlugin() throws Exception {
+        this.sim = SimPlugin.start(Files.createTempDirectory("villageroptimizer-bench").toFile());
+    }
+
+    @Setup(Level.Iteration)
+    public void generateWorld() {
+        this.world = SimWorld.generate("world", sim.scheduler, villagers / 10, villagers, 42);
+        sim.reset(world.world);
+    }
+
+    @Benchmark
+    public long villagerChunkLimit() throws Exception {
+        sim.create(VillagerChunkLimit.class).run();
+        sim.scheduler.runUntilIdle(Long.MAX_VALUE);
+        return sim.scheduler.tasksRun();
+    }
+}
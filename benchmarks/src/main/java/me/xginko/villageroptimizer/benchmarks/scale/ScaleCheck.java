@@ -0,0 +1,264 @@
+package me.xginko.villageroptimizer.benchmarks.scale;
+
+import me.xginko.villageroptimizer.VillagerOptimizer;
+import me.xginko.villageroptimizer.commands.VillagerOptimizerCommand;
+import me.xginko.villageroptimizer.commands.optimizevillagers.OptVillagersRadius;
+import me.xginko.villageroptimizer.commands.unoptimizevillagers.UnOptVillagersRadius;
+import me.xginko.villageroptimizer.modules.VillagerChunkLimit;
+import me.xginko.villageroptimizer.modules.optimization.OptimizeAutomatically;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the plugin's chunk scanning features against a simulated server at two sizes and fails if the work
+ * done grows faster than the amount of villagers, or if a single region ever spends too long in one tick.
+ * <p>
+ * Run with {@code mvn -P scale-check verify} in the benchmarks directory. The defaults simulate 50,000 villagers
+ * in 5,000 chunks, which can be changed with {@code -Dscale.villagers} and {@code -Dscale.chunks}.
+ * {@code -Dscale.check-timing=false} only checks the task and tick counts, which don't depend on the machine.
+ */
+public final class ScaleCheck {
+
+    private static final int VILLAGERS = Integer.getInteger("scale.villagers", 50_000);
+    private static final int CHUNKS = Integer.getInteger("scale.chunks", 5_000);
+    /**
+     * The full size run is compared against a run this many times smaller.
+     */
+    private static final int SCALE_FACTOR = 10;
+    /**
+     * How much faster than linear the task count and wall time may grow before it counts as a regression.
+     * Wall time gets a lot more room since it depends on the machine and the JIT.
+     */
+    private static final double TASK_SLACK = Double.parseDouble(System.getProperty("scale.task-slack", "1.5"));
+    private static final double WALL_SLACK = Double.parseDouble(System.getProperty("scale.wall-slack", "3.0"));
+    private static final boolean CHECK_TIMING = Boolean.parseBoolean(System.getProperty("scale.check-timing", "true"));
+    private static final long MAX_REGION_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("scale.max-region-tick-millis", 50));
+    private static final long MAX_TICKS = 20 * 60 * 10;
+    private static final long SEED = 0x56494C4C41474552L;
+
+    public static void main(String[] args) throws Exception {
+        final File dataFolder = Files.createTempDirectory("villageroptimizer-scale").toFile();
+        final SimPlugin sim = SimPlugin.start(dataFolder);
+        final List<String> failures = new ArrayList<>();
+
+        System.out.printf(Locale.ROOT, "%-28s %9s %8s %10s %9s %8s %8s %12s %13s %7s%n",
+                "scenario", "villagers", "chunks", "wall", "tasks", "ticks", "regions", "max tasks/rt", "max region tick", "errors");
+
+        for (Scenario scenario : SCENARIOS) {
+            // Warm up so the small run isn't mostly measuring class loading and the interpreter
+            run(sim, scenario, VILLAGERS / SCALE_FACTOR, CHUNKS / SCALE_FACTOR);
+
+            final Result small = run(sim, scenario, VILLAGERS / SCALE_FACTOR, CHUNKS / SCALE_FACTOR);
+            final Result full = run(sim, scenario, VILLAGERS, CHUNKS);
+            small.print();
+            full.print();
+
+            failures.addAll(small.problems());
+            failures.addAll(full.problems());
+
+            final double taskGrowth = (double) full.tasks / Math.max(1, small.tasks);
+            if (taskGrowth > SCALE_FACTOR * TASK_SLACK) {
+                failures.add(String.format(Locale.ROOT, "%s: task count grew %.1fx for %dx the villagers",
+                        scenario.name, taskGrowth, SCALE_FACTOR));
+            }
+
+            final double wallGrowth = (double) full.wallNanos / Math.max(TimeUnit.MILLISECONDS.toNanos(1), small.wallNanos);
+            if (CHECK_TIMING && wallGrowth > SCALE_FACTOR * WALL_SLACK) {
+                failures.add(String.format(Locale.ROOT, "%s: wall time grew %.1fx for %dx the villagers",
+                        scenario.name, wallGrowth, SCALE_FACTOR));
+            }
+        }
+
+        if (failures.isEmpty()) {
+            System.out.println("Scale check passed.");
+            System.exit(0);
+        }
+
+        System.out.println("Scale check failed:");
+        failures.forEach(failure -> System.out.println(" - " + failure));
+        System.exit(1);
+    }
+
+    private static @NotNull Result run(@NotNull SimPlugin sim, @NotNull Scenario scenario, int villagers, int chunks) throws Exception {
+        final SimWorld world = SimWorld.generate("world", sim.scheduler, chunks, villagers, SEED);
+        sim.reset(world.world);
+        final Object before = scenario.snapshot(world);
+
+        final long start = System.nanoTime();
+        scenario.start(sim, world);
+        final boolean settled = sim.scheduler.runUntilIdle(MAX_TICKS);
+        final long wallNanos = System.nanoTime() - start;
+
+        final List<String> errors = new ArrayList<>(sim.scheduler.errors());
+        errors.addAll(sim.loggedErrors());
+
+        return new Result(scenario.name, villagers, world.chunkCount(), wallNanos, sim.scheduler.tasksRun(), sim.scheduler.currentTick(),
+                sim.scheduler.regionCount(), sim.scheduler.maxRegionTasksPerTick(), sim.scheduler.maxRegionTickNanos(),
+                sim.scheduler.errorCount() + sim.loggedErrors().size(), errors, settled, scenario.verify(world, before));
+    }
+
+    /**
+     * Runs a radius command once for every spot on a grid covering the world, as if players were spread across it.
+     */
+    private static void runRadiusCommand(@NotNull SimWorld world, @NotNull VillagerOptimizerCommand command, int radius) {
+        final int side = (int) Math.ceil(Math.sqrt(world.chunkCount())) * 16;
+        final int step = radius * 2;
+        int players = 0;
+        for (int x = -side / 2 + radius; x < side / 2; x += step) {
+            for (int z = -side / 2 + radius; z < side / 2; z += step) {
+                final Player player = world.player("player" + players++, x, z);
+                command.onCommand(player, command.pluginCommand, command.pluginCommand.getName(), new String[]{Integer.toString(radius)});
+            }
+        }
+    }
+
+    private static final List<Scenario> SCENARIOS = Arrays.asList(
+            new Scenario("villager-chunk-limit") {
+                @Override
+                void start(@NotNull SimPlugin sim, @NotNull SimWorld world) throws Exception {
+                    sim.create(VillagerChunkLimit.class).run();
+                }
+
+                @Override
+                @Nullable String verify(@NotNull SimWorld world, Object before) {
+                    final int maxUnoptimized = VillagerOptimizer.config().getInt("villager-chunk-limit.unoptimized.max-per-chunk", 20);
+                    final int maxOptimized = VillagerOptimizer.config().getInt("villager-chunk-limit.optimized.max-per-chunk", 60);
+                    final int unoptimized = world.villagersPerChunk(false).stream().mapToInt(Integer::intValue).max().orElse(0);
+                    final int optimized = world.villagersPerChunk(true).stream().mapToInt(Integer::intValue).max().orElse(0);
+                    if (unoptimized > maxUnoptimized || optimized > maxOptimized) {
+                        return "chunks still hold up to " + unoptimized + " unoptimized and " + optimized + " optimized villagers";
+                    }
+                    return null;
+                }
+            },
+            new Scenario("optimize-radius-command") {
+                @Override
+                Object snapshot(@NotNull SimWorld world) {
+                    return world.villagerCount(true);
+                }
+
+                @Override
+                void start(@NotNull SimPlugin sim, @NotNull SimWorld world) throws Exception {
+                    runRadiusCommand(world, sim.create(OptVillagersRadius.class), 50);
+                }
+
+                @Override
+                @Nullable String verify(@NotNull SimWorld world, Object before) {
+                    return world.villagerCount(true) > (Integer) before ? null : "no villagers were optimized";
+                }
+            },
+            new Scenario("unoptimize-radius-command") {
+                @Override
+                Object snapshot(@NotNull SimWorld world) {
+                    return world.villagerCount(true);
+                }
+
+                @Override
+                void start(@NotNull SimPlugin sim, @NotNull SimWorld world) throws Exception {
+                    runRadiusCommand(world, sim.create(UnOptVillagersRadius.class), 50);
+                }
+
+                @Override
+                @Nullable String verify(@NotNull SimWorld world, Object before) {
+                    return world.villagerCount(true) < (Integer) before ? null : "no villagers were unoptimized";
+                }
+            },
+            new Scenario("automatic-optimization") {
+                @Override
+                Object snapshot(@NotNull SimWorld world) {
+                    return world.villagerCount(true);
+                }
+
+                @Override
+                void start(@NotNull SimPlugin sim, @NotNull SimWorld world) throws Exception {
+                    sim.create(OptimizeAutomatically.class).run();
+                }
+
+                @Override
+                @Nullable String verify(@NotNull SimWorld world, Object before) {
+                    return world.villagerCount(true) > (Integer) before ? null : "no villagers were optimized";
+                }
+            }
+    );
+
+    private abstract static class Scenario {
+
+        final @NotNull String name;
+
+        Scenario(@NotNull String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return Whatever {@link #verify(SimWorld, Object)} needs to know about the world before the scenario ran.
+         */
+        Object snapshot(@NotNull SimWorld world) {
+            return null;
+        }
+
+        abstract void start(@NotNull SimPlugin sim, @NotNull SimWorld world) throws Exception;
+
+        /**
+         * @return A description of what went wrong, or null if the scenario did what it should.
+         */
+        abstract @Nullable String verify(@NotNull SimWorld world, Object before);
+    }
+
+    private static final class Result {
+
+        final String scenario;
+        final int villagers, chunks, regions, maxRegionTasksPerTick;
+        final long wallNanos, tasks, ticks, maxRegionTickNanos, errorCount;
+        final List<String> errors;
+        final boolean settled;
+        final @Nullable String verifyFailure;
+
+        Result(
+                String scenario, int villagers, int chunks, long wallNanos, long tasks, long ticks, int regions,
+                int maxRegionTasksPerTick, long maxRegionTickNanos, long errorCount, List<String> errors,
+                boolean settled, @Nullable String verifyFailure
+        ) {
+            this.scenario = scenario;
+            this.villagers = villagers;
+            this.chunks = chunks;
+            this.wallNanos = wallNanos;
+            this.tasks = tasks;
+            this.ticks = ticks;
+            this.regions = regions;
+            this.maxRegionTasksPerTick = maxRegionTasksPerTick;
+            this.maxRegionTickNanos = maxRegionTickNanos;
+            this.errorCount = errorCount;
+            this.errors = errors;
+            this.settled = settled;
+            this.verifyFailure = verifyFailure;
+        }
+
+        void print() {
+            System.out.printf(Locale.ROOT, "%-28s %9d %8d %8.1fms %9d %8d %8d %12d %13.2fms %7d%n",
+                    scenario, villagers, chunks, wallNanos / 1_000_000.0, tasks, ticks, regions,
+                    maxRegionTasksPerTick, maxRegionTickNanos / 1_000_000.0, errorCount);
+        }
+
+        List<String> problems() {
+            final List<String> problems = new ArrayList<>();
+            final String size = scenario + " (" + villagers + " villagers)";
+            errors.forEach(error -> problems.add(size + ": " + error));
+            if (!settled) problems.add(size + ": tasks were still pending after " + MAX_TICKS + " ticks");
+            if (verifyFailure != null) problems.add(size + ": " + verifyFailure);
+            if (CHECK_TIMING && maxRegionTickNanos > MAX_REGION_TICK_NANOS) {
+                problems.add(String.format(Locale.ROOT, "%s: a region spent %.2fms in a single tick",
+                        size, maxRegionTickNanos / 1_000_000.0));
+            }
+            return problems;
+        }
+    }
+}
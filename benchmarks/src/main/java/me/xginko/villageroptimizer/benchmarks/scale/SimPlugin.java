@@ -0,0 +1,331 @@
+package me.xginko.villageroptimizer.benchmarks.scale;
+
+import me.xginko.villageroptimizer.VillagerOptimizer;
+import me.xginko.villageroptimizer.benchmarks.Stubs;
+import me.xginko.villageroptimizer.config.Config;
+import me.xginko.villageroptimizer.wrapper.WrappedVillager;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.command.PluginCommand;
+import org.bukkit.entity.Villager;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.EventExecutor;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.PluginManager;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Brings up just enough of the plugin to run modules and commands against simulated worlds, without a server.
+ * <p>
+ * The plugin instance is allocated without running its constructor, since plugins can normally only be created
+ * by a server's plugin loader, and the static state {@link VillagerOptimizer#onEnable()} would set up is filled in
+ * by hand. The scheduling is MorePaperLib's own Folia implementation, running on a {@link SimScheduler}.
+ * <p>
+ * This only works against the shaded plugin jar, where the libraries the plugin bundles are relocated. Fields with
+ * library types are therefore set by looking up their type at runtime instead of naming the relocated classes.
+ */
+public final class SimPlugin {
+
+    public final @NotNull VillagerOptimizer plugin;
+    public final @NotNull SimScheduler scheduler;
+    private final @NotNull List<World> worlds = new ArrayList<>();
+    private final @NotNull Map<Villager, WrappedVillager> wrappers = new HashMap<>();
+    private final @NotNull List<String> loggedErrors = new ArrayList<>();
+    private final @NotNull List<RegisteredHandler> listeners = new ArrayList<>();
+
+    private SimPlugin(@NotNull VillagerOptimizer plugin, @NotNull SimScheduler scheduler) {
+        this.plugin = plugin;
+        this.scheduler = scheduler;
+    }
+
+    public static @NotNull SimPlugin start(@NotNull File dataFolder) throws Exception {
+        Files.createDirectories(new File(dataFolder, "lang").toPath());
+        // Existing files keep the plugin from trying to copy its defaults out of a jar it wasn't loaded from
+        new File(dataFolder, "config.yml").createNewFile();
+        new File(dataFolder, "lang/en_us.yml").createNewFile();
+
+        final SimScheduler scheduler = new SimScheduler();
+        final VillagerOptimizer plugin = allocate(VillagerOptimizer.class);
+        final SimPlugin simPlugin = new SimPlugin(plugin, scheduler);
+
+        final PluginManager pluginManager = Stubs.proxy(PluginManager.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getPlugin":
+                case "isPluginEnabled":
+                    return method.getReturnType() == boolean.class ? args[0] == plugin : null;
+                case "registerEvents":
+                    simPlugin.registerEvents((Listener) args[0]);
+                    return null;
+                case "registerEvent":
+                    simPlugin.listeners.add(new RegisteredHandler((Class<?>) args[0], (Listener) args[1], (EventPriority) args[2],
+                            (EventExecutor) args[3], args.length > 5 && (Boolean) args[5]));
+                    simPlugin.listeners.sort(Comparator.comparingInt(handler -> handler.priority.getSlot()));
+                    return null;
+                case "callEvent":
+                    simPlugin.callEvent((Event) args[0]);
+                    return null;
+                default:
+                    return Stubs.defaultValue(proxy, method, args);
+            }
+        });
+
+        Stubs.installServer();
+        Stubs.serverExtension((proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getWorlds":
+                    return Collections.unmodifiableList(simPlugin.worlds);
+                case "getWorld":
+                    for (World world : simPlugin.worlds) {
+                        if (world.getName().equals(args[0]) || world.getUID().equals(args[0])) return world;
+                    }
+                    return null;
+                case "getPluginManager":
+                    return pluginManager;
+                case "getPluginCommand":
+                    return pluginCommand((String) args[0], plugin);
+                case "getGlobalRegionScheduler":
+                    return scheduler.globalRegionScheduler();
+                case "getRegionScheduler":
+                    return scheduler.regionScheduler();
+                case "getAsyncScheduler":
+                    return scheduler.asyncScheduler();
+                case "isPrimaryThread":
+                case "isGlobalTickThread":
+                case "isOwnedByCurrentRegion":
+                    return true;
+                default:
+                    return Stubs.defaultValue(proxy, method, args);
+            }
+        });
+
+        setField(plugin, "server", Bukkit.getServer());
+        setField(plugin, "dataFolder", dataFolder);
+        setField(plugin, "isEnabled", true);
+        setField(plugin, "description", new PluginDescriptionFile("VillagerOptimizer", "1.6.2", VillagerOptimizer.class.getName()));
+
+        setStatic("instance", plugin);
+        setStatic("logger", simPlugin.logger());
+        setStatic("audiences", silentAudiences());
+        setStatic("wrapperCache", simPlugin.wrapperCache());
+        setStatic("scheduling", scheduling(plugin));
+        setStatic("config", new Config());
+        final Method reloadLang = VillagerOptimizer.class.getDeclaredMethod("reloadLang", boolean.class);
+        reloadLang.setAccessible(true);
+        reloadLang.invoke(plugin, false);
+
+        if (!(boolean) VillagerOptimizer.scheduling().getClass().getMethod("isUsingFolia").invoke(VillagerOptimizer.scheduling())) {
+            throw new IllegalStateException("MorePaperLib did not detect Folia, so tasks would not run on simulated regions.");
+        }
+
+        return simPlugin;
+    }
+
+    /**
+     * Replaces the simulated worlds and clears all state from previous runs, including registered listeners.
+     */
+    public void reset(@NotNull World... worlds) {
+        scheduler.reset();
+        wrappers.clear();
+        loggedErrors.clear();
+        listeners.clear();
+        this.worlds.clear();
+        Collections.addAll(this.worlds, worlds);
+    }
+
+    /**
+     * @return Everything the plugin logged as an error since the last reset.
+     */
+    public @NotNull List<String> loggedErrors() {
+        return loggedErrors;
+    }
+
+    /**
+     * Passes the event to every registered listener, in order of priority, like the server's plugin manager would.
+     * Exceptions thrown by listeners are collected with the logged errors.
+     */
+    public void callEvent(@NotNull Event event) {
+        for (RegisteredHandler handler : new ArrayList<>(listeners)) {
+            if (!handler.eventClass.isInstance(event)) continue;
+            if (handler.ignoreCancelled && event instanceof Cancellable && ((Cancellable) event).isCancelled()) continue;
+            try {
+                handler.executor.execute(handler.listener, event);
+            } catch (Throwable t) {
+                final Throwable cause = t instanceof EventException && t.getCause() != null ? t.getCause() : t;
+                loggedErrors.add(handler.listener.getClass().getSimpleName() + " failed to handle "
+                        + event.getEventName() + ": " + cause);
+            }
+        }
+    }
+
+    private void registerEvents(@NotNull Listener listener) {
+        for (Method method : listener.getClass().getDeclaredMethods()) {
+            final EventHandler annotation = method.getAnnotation(EventHandler.class);
+            if (annotation == null || method.isBridge() || method.isSynthetic() || method.getParameterCount() != 1) continue;
+            method.setAccessible(true);
+            listeners.add(new RegisteredHandler(method.getParameterTypes()[0], listener, annotation.priority(), (l, event) -> {
+                try {
+                    method.invoke(l, event);
+                } catch (InvocationTargetException e) {
+                    throw new EventException(e.getCause());
+                } catch (IllegalAccessException e) {
+                    throw new EventException(e);
+                }
+            }, annotation.ignoreCancelled()));
+        }
+        listeners.sort(Comparator.comparingInt(handler -> handler.priority.getSlot()));
+    }
+
+    /**
+     * Creates a module or command the same way the plugin would on reload, ignoring whether it is enabled in the config.
+     */
+    public <T> @NotNull T create(@NotNull Class<T> type) throws Exception {
+        final Constructor<T> constructor = type.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        return constructor.newInstance();
+    }
+
+    private static @NotNull Object scheduling(@NotNull Plugin plugin) throws Exception {
+        // MorePaperLib lives next to the scheduling package, wherever the shading put it
+        final Class<?> schedulingType = VillagerOptimizer.class.getDeclaredField("scheduling").getType();
+        final String morePaperLibPackage = schedulingType.getPackage().getName().replaceFirst("\\.scheduling$", "");
+        final Class<?> morePaperLib = Class.forName(morePaperLibPackage + ".MorePaperLib");
+        final Object instance = morePaperLib.getConstructor(Plugin.class).newInstance(plugin);
+        return morePaperLib.getMethod("scheduling").invoke(instance);
+    }
+
+    /**
+     * @return A stand-in for the wrapper cache that never expires entries.
+     */
+    private @NotNull Object wrapperCache() throws Exception {
+        final Class<?> cacheType = VillagerOptimizer.class.getDeclaredField("wrapperCache").getType();
+        return Proxy.newProxyInstance(SimPlugin.class.getClassLoader(), new Class<?>[]{cacheType}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "get":
+                    @SuppressWarnings("unchecked")
+                    final Function<Villager, WrappedVillager> mapping = (Function<Villager, WrappedVillager>) args[1];
+                    return wrappers.computeIfAbsent((Villager) args[0], mapping);
+                case "getIfPresent":
+                    return wrappers.get(args[0]);
+                case "put":
+                    wrappers.put((Villager) args[0], (WrappedVillager) args[1]);
+                    return null;
+                case "invalidate":
+                    wrappers.remove(args[0]);
+                    return null;
+                case "invalidateAll":
+                    wrappers.clear();
+                    return null;
+                case "estimatedSize":
+                    return (long) wrappers.size();
+                case "asMap":
+                    return wrappers;
+                default:
+                    return Stubs.defaultValue(proxy, method, args);
+            }
+        });
+    }
+
+    /**
+     * @return A logger that stays quiet, except for errors which are collected so a run can be failed because of them.
+     */
+    private @NotNull Object logger() throws Exception {
+        final Class<?> loggerType = VillagerOptimizer.class.getDeclaredField("logger").getType();
+        return Proxy.newProxyInstance(SimPlugin.class.getClassLoader(), new Class<?>[]{loggerType}, (proxy, method, args) -> {
+            if (method.getName().equals("error") && args != null && args.length > 0) {
+                loggedErrors.add(String.valueOf(args[0]) + (args.length > 1 ? " " + args[args.length - 1] : ""));
+            }
+            if (method.getName().equals("getName")) return "VillagerOptimizer";
+            return Stubs.defaultValue(proxy, method, args);
+        });
+    }
+
+    /**
+     * @return Audiences that swallow every message.
+     */
+    private static @NotNull Object silentAudiences() throws Exception {
+        final Class<?> audiencesType = VillagerOptimizer.class.getDeclaredField("audiences").getType();
+        return Proxy.newProxyInstance(SimPlugin.class.getClassLoader(), new Class<?>[]{audiencesType}, (proxy, method, args) -> {
+            if (method.getReturnType().isInterface() && method.getReturnType().getSimpleName().equals("Audience")) {
+                return Proxy.newProxyInstance(SimPlugin.class.getClassLoader(), new Class<?>[]{method.getReturnType()},
+                        Stubs::defaultValue);
+            }
+            return Stubs.defaultValue(proxy, method, args);
+        });
+    }
+
+    private static @NotNull PluginCommand pluginCommand(@NotNull String name, @NotNull Plugin plugin) throws Exception {
+        final Constructor<PluginCommand> constructor = PluginCommand.class.getDeclaredConstructor(String.class, Plugin.class);
+        constructor.setAccessible(true);
+        return constructor.newInstance(name, plugin);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> @NotNull T allocate(@NotNull Class<T> type) throws Exception {
+        final Field theUnsafe = Class.forName("sun.misc.Unsafe").getDeclaredField("theUnsafe");
+        theUnsafe.setAccessible(true);
+        final Object unsafe = theUnsafe.get(null);
+        final Method allocateInstance = unsafe.getClass().getMethod("allocateInstance", Class.class);
+        return (T) allocateInstance.invoke(unsafe, type);
+    }
+
+    private static void setStatic(@NotNull String name, Object value) throws Exception {
+        final Field field = VillagerOptimizer.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(null, value);
+    }
+
+    private static void setField(@NotNull Object target, @NotNull String name, Object value) throws Exception {
+        for (Class<?> type = target.getClass(); type != null; type = type.getSuperclass()) {
+            try {
+                final Field field = type.getDeclaredField(name);
+                field.setAccessible(true);
+                field.set(target, value);
+                return;
+            } catch (NoSuchFieldException ignored) {
+                // Look further up the hierarchy
+            }
+        }
+        throw new NoSuchFieldException(name + " in " + target.getClass().getName());
+    }
+
+    private static final class RegisteredHandler {
+
+        final @NotNull Class<?> eventClass;
+        final @NotNull Listener listener;
+        final @NotNull EventPriority priority;
+        final @NotNull EventExecutor executor;
+        final boolean ignoreCancelled;
+
+        RegisteredHandler(
+                @NotNull Class<?> eventClass, @NotNull Listener listener, @NotNull EventPriority priority,
+                @NotNull EventExecutor executor, boolean ignoreCancelled
+        ) {
+            this.eventClass = eventClass;
+            this.listener = listener;
+            this.priority = priority;
+            this.executor = executor;
+            this.ignoreCancelled = ignoreCancelled;
+        }
+    }
+}
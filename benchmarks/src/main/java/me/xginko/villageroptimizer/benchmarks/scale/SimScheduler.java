@@ -0,0 +1,365 @@
+package me.xginko.villageroptimizer.benchmarks.scale;
+
+import io.papermc.paper.threadedregions.scheduler.AsyncScheduler;
+import io.papermc.paper.threadedregions.scheduler.EntityScheduler;
+import io.papermc.paper.threadedregions.scheduler.GlobalRegionScheduler;
+import io.papermc.paper.threadedregions.scheduler.RegionScheduler;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import me.xginko.villageroptimizer.benchmarks.Stubs;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.InvocationHandler;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * A deterministic, single threaded stand-in for Folia's schedulers. Chunks are grouped into regions the same
+ * way Folia groups them into region sections, and every region runs its due tasks once per simulated tick.
+ * Nothing ever runs concurrently, so two runs with the same input always execute the same tasks in the same order.
+ */
+public final class SimScheduler {
+
+    /**
+     * Regions are sections of 16x16 chunks, which is Folia's default.
+     */
+    public static final int REGION_SHIFT = 4;
+    private static final String GLOBAL_REGION = "global", ASYNC_REGION = "~async";
+
+    private final Map<String, PriorityQueue<SimTask>> regions = new TreeMap<>();
+    private final GlobalRegionScheduler globalRegionScheduler;
+    private final RegionScheduler regionScheduler;
+    private final AsyncScheduler asyncScheduler;
+    private final List<String> errors = new ArrayList<>();
+    private long currentTick, sequence, tasksRun, errorCount, maxRegionTickNanos;
+    private int maxRegionTasksPerTick;
+
+    public SimScheduler() {
+        this.globalRegionScheduler = Stubs.proxy(GlobalRegionScheduler.class, handler(args -> GLOBAL_REGION, null));
+        this.regionScheduler = Stubs.proxy(RegionScheduler.class, handler(SimScheduler::regionOf, null));
+        this.asyncScheduler = Stubs.proxy(AsyncScheduler.class, handler(args -> ASYNC_REGION, null));
+    }
+
+    public @NotNull GlobalRegionScheduler globalRegionScheduler() {
+        return globalRegionScheduler;
+    }
+
+    public @NotNull RegionScheduler regionScheduler() {
+        return regionScheduler;
+    }
+
+    public @NotNull AsyncScheduler asyncScheduler() {
+        return asyncScheduler;
+    }
+
+    /**
+     * @param entity The entity the scheduler belongs to. Tasks run on the region the entity is in when they are due.
+     */
+    public @NotNull EntityScheduler entityScheduler(@NotNull Entity entity) {
+        return Stubs.proxy(EntityScheduler.class, handler(args -> regionOf(entity.getLocation()), entity));
+    }
+
+    /**
+     * Drops all pending tasks and resets all counters.
+     */
+    public void reset() {
+        regions.clear();
+        errors.clear();
+        currentTick = sequence = tasksRun = errorCount = maxRegionTickNanos = 0;
+        maxRegionTasksPerTick = 0;
+    }
+
+    /**
+     * Runs one tick on every region that has tasks due.
+     */
+    public void tick() {
+        currentTick++;
+        // Copy the keys since tasks may schedule work on regions that didn't exist yet
+        for (String region : new ArrayList<>(regions.keySet())) {
+            final PriorityQueue<SimTask> queue = regions.get(region);
+            final long start = System.nanoTime();
+            int ran = 0;
+
+            while (!queue.isEmpty() && queue.peek().dueTick <= currentTick) {
+                final SimTask task = queue.poll();
+                if (task.state == ScheduledTask.ExecutionState.CANCELLED) continue;
+
+                ran++;
+                task.execute();
+
+                if (task.period > 0 && task.state != ScheduledTask.ExecutionState.CANCELLED) {
+                    task.dueTick = currentTick + task.period;
+                    task.sequence = sequence++;
+                    queue.add(task);
+                }
+            }
+
+            if (ran > 0) {
+                maxRegionTasksPerTick = Math.max(maxRegionTasksPerTick, ran);
+                maxRegionTickNanos = Math.max(maxRegionTickNanos, System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Ticks until no more tasks are pending, ignoring tasks that repeat forever.
+     *
+     * @param maxTicks The maximum amount of ticks to simulate.
+     * @return True if all tasks finished within the given amount of ticks.
+     */
+    public boolean runUntilIdle(long maxTicks) {
+        final long limit = currentTick + maxTicks;
+        while (pendingTasks() > 0) {
+            if (currentTick >= limit) return false;
+            tick();
+        }
+        return true;
+    }
+
+    /**
+     * @return The amount of tasks that are waiting for their first run.
+     */
+    public int pendingTasks() {
+        int pending = 0;
+        for (PriorityQueue<SimTask> queue : regions.values()) {
+            for (SimTask task : queue) {
+                if (task.state == ScheduledTask.ExecutionState.IDLE && (task.period <= 0 || !task.ranOnce)) pending++;
+            }
+        }
+        return pending;
+    }
+
+    public long currentTick() {
+        return currentTick;
+    }
+
+    public long tasksRun() {
+        return tasksRun;
+    }
+
+    public long errorCount() {
+        return errorCount;
+    }
+
+    public @NotNull List<String> errors() {
+        return errors;
+    }
+
+    public int regionCount() {
+        return (int) regions.keySet().stream().filter(region -> !region.equals(GLOBAL_REGION) && !region.equals(ASYNC_REGION)).count();
+    }
+
+    /**
+     * @return The longest time a single region spent running tasks in one tick.
+     */
+    public long maxRegionTickNanos() {
+        return maxRegionTickNanos;
+    }
+
+    /**
+     * @return The most tasks a single region ran in one tick.
+     */
+    public int maxRegionTasksPerTick() {
+        return maxRegionTasksPerTick;
+    }
+
+    public static @NotNull String regionOf(@NotNull World world, int chunkX, int chunkZ) {
+        return world.getName() + ':' + (chunkX >> REGION_SHIFT) + ':' + (chunkZ >> REGION_SHIFT);
+    }
+
+    public static @NotNull String regionOf(@NotNull Location location) {
+        return regionOf(location.getWorld(), location.getBlockX() >> 4, location.getBlockZ() >> 4);
+    }
+
+    private static @NotNull String regionOf(Object @NotNull [] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (args[i] instanceof Location) {
+                return regionOf((Location) args[i]);
+            }
+            if (args[i] instanceof World) {
+                return regionOf((World) args[i], (Integer) args[i + 1], (Integer) args[i + 2]);
+            }
+        }
+        throw new IllegalArgumentException("Region scheduler was called without a location.");
+    }
+
+    /**
+     * Handles every scheduling method of Paper's scheduler interfaces by looking at the name and arguments,
+     * since they all follow the same pattern.
+     */
+    private @NotNull InvocationHandler handler(@NotNull RegionResolver regionResolver, @Nullable Entity entity) {
+        return (proxy, method, args) -> {
+            final String name = method.getName();
+            if (!name.startsWith("run") && !name.equals("execute") && !name.equals("cancelTasks")) {
+                return Stubs.defaultValue(proxy, method, args);
+            }
+
+            if (name.equals("cancelTasks")) {
+                final Plugin plugin = (Plugin) args[0];
+                regions.values().forEach(queue -> queue.forEach(task -> {
+                    if (task.plugin == plugin) task.cancel();
+                }));
+                return null;
+            }
+
+            Plugin plugin = null;
+            Consumer<ScheduledTask> consumer = null;
+            Runnable runnable = null, retired = null;
+            TimeUnit unit = null;
+            final List<Long> times = new ArrayList<>(2);
+
+            for (Object arg : args) {
+                if (arg instanceof Plugin) plugin = (Plugin) arg;
+                else if (arg instanceof Consumer) consumer = castConsumer(arg);
+                else if (arg instanceof Runnable && runnable == null && consumer == null) runnable = (Runnable) arg;
+                else if (arg instanceof Runnable) retired = (Runnable) arg;
+                else if (arg instanceof Long) times.add((Long) arg);
+                else if (arg instanceof TimeUnit) unit = (TimeUnit) arg;
+            }
+
+            // Methods like execute take a plain runnable, followed by the retired callback on entity schedulers
+            if (consumer == null && runnable != null) {
+                final Runnable plainTask = runnable;
+                consumer = scheduledTask -> plainTask.run();
+            }
+
+            if (consumer == null) throw new IllegalArgumentException("Scheduler method " + name + " was called without a task.");
+
+            if (entity != null && !entity.isValid()) {
+                if (retired != null) retired.run();
+                return method.getReturnType() == boolean.class ? false : null;
+            }
+
+            final long delay, period;
+            switch (name) {
+                case "runDelayed":
+                    delay = toTicks(times.get(0), unit);
+                    period = 0;
+                    break;
+                case "runAtFixedRate":
+                    delay = toTicks(times.get(0), unit);
+                    period = Math.max(1, toTicks(times.get(1), unit));
+                    break;
+                case "execute":
+                    delay = times.isEmpty() ? 1 : times.get(0);
+                    period = 0;
+                    break;
+                default: // run, runNow
+                    delay = 1;
+                    period = 0;
+            }
+
+            final SimTask task = new SimTask(plugin, consumer, retired, entity, regionResolver.resolve(args),
+                    currentTick + Math.max(1, delay), period, sequence++);
+            regions.computeIfAbsent(task.region, region -> new PriorityQueue<>(
+                    Comparator.comparingLong((SimTask t) -> t.dueTick).thenComparingLong(t -> t.sequence))).add(task);
+
+            if (method.getReturnType() == boolean.class) return true;
+            return method.getReturnType() == void.class ? null : task;
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Consumer<ScheduledTask> castConsumer(Object consumer) {
+        return (Consumer<ScheduledTask>) consumer;
+    }
+
+    private static long toTicks(long time, @Nullable TimeUnit unit) {
+        if (unit == null) return time;
+        return (unit.toMillis(time) + 49) / 50;
+    }
+
+    @FunctionalInterface
+    private interface RegionResolver {
+        @NotNull String resolve(Object @NotNull [] args);
+    }
+
+    private final class SimTask implements ScheduledTask {
+
+        private final @Nullable Plugin plugin;
+        private final @NotNull Consumer<ScheduledTask> action;
+        private final @Nullable Runnable retired;
+        private final @Nullable Entity entity;
+        private final @NotNull String region;
+        private final long period;
+        private long dueTick, sequence;
+        private boolean ranOnce;
+        private volatile ExecutionState state = ExecutionState.IDLE;
+
+        private SimTask(
+                @Nullable Plugin plugin, @NotNull Consumer<ScheduledTask> action, @Nullable Runnable retired, @Nullable Entity entity,
+                @NotNull String region, long dueTick, long period, long sequence
+        ) {
+            this.plugin = plugin;
+            this.action = action;
+            this.retired = retired;
+            this.entity = entity;
+            this.region = region;
+            this.dueTick = dueTick;
+            this.period = period;
+            this.sequence = sequence;
+        }
+
+        private void execute() {
+            if (entity != null && !entity.isValid()) {
+                state = ExecutionState.CANCELLED;
+                if (retired != null) retired.run();
+                return;
+            }
+
+            state = ExecutionState.RUNNING;
+            try {
+                action.accept(this);
+                tasksRun++;
+            } catch (Throwable t) {
+                errorCount++;
+                if (errors.size() < 10) errors.add(region + ": " + t);
+            } finally {
+                ranOnce = true;
+                if (state == ExecutionState.CANCELLED_RUNNING) state = ExecutionState.CANCELLED;
+                else if (state == ExecutionState.RUNNING) state = period > 0 ? ExecutionState.IDLE : ExecutionState.FINISHED;
+            }
+        }
+
+        @Override
+        public @NotNull Plugin getOwningPlugin() {
+            return plugin;
+        }
+
+        @Override
+        public boolean isRepeatingTask() {
+            return period > 0;
+        }
+
+        @Override
+        public @NotNull CancelledState cancel() {
+            switch (state) {
+                case IDLE:
+                    state = ExecutionState.CANCELLED;
+                    return period > 0 && ranOnce ? CancelledState.NEXT_RUNS_CANCELLED : CancelledState.CANCELLED_BY_CALLER;
+                case RUNNING:
+                    state = ExecutionState.CANCELLED_RUNNING;
+                    return period > 0 ? CancelledState.NEXT_RUNS_CANCELLED : CancelledState.RUNNING;
+                case FINISHED:
+                    return CancelledState.ALREADY_EXECUTED;
+                default:
+                    return CancelledState.CANCELLED_ALREADY;
+            }
+        }
+
+        @Override
+        public @NotNull ExecutionState getExecutionState() {
+            return state;
+        }
+    }
+}
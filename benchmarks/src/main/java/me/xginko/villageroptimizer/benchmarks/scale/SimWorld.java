@@ -0,0 +1,480 @@
+package me.xginko.villageroptimizer.benchmarks.scale;
+
+import me.xginko.villageroptimizer.benchmarks.Stubs;
+import me.xginko.villageroptimizer.enums.Keyring;
+import me.xginko.villageroptimizer.enums.OptimizationType;
+import me.xginko.villageroptimizer.utils.ChunkBatch;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.entity.Villager;
+import org.bukkit.entity.memory.MemoryKey;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * A flat world made of loaded chunks and villagers, generated from a seed so every run sees the same world.
+ * Most chunks hold a couple of wandering villagers, while a few are crowded trading halls, like on a real server.
+ */
+public final class SimWorld {
+
+    private static final double TRADING_HALL_SHARE = 0.1, VILLAGERS_IN_HALLS = 0.8;
+
+    public final @NotNull World world;
+    private final @NotNull String name;
+    private final @NotNull UUID uid;
+    private final @NotNull SimScheduler scheduler;
+    private final @NotNull Map<Long, SimChunk> chunks = new LinkedHashMap<>();
+    private final @NotNull Map<Entity, Location> positions = new HashMap<>();
+    private final @NotNull Map<Player, ItemStack> heldItems = new HashMap<>();
+    private final @NotNull Block solidBlock;
+
+    private SimWorld(@NotNull String name, @NotNull SimScheduler scheduler) {
+        this.name = name;
+        this.uid = UUID.nameUUIDFromBytes(name.getBytes());
+        this.scheduler = scheduler;
+        this.world = Stubs.proxy(World.class, this::handleWorld);
+        // Every block is solid, so all villagers count as confined to their cell
+        this.solidBlock = Stubs.proxy(Block.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getRelative":
+                    return proxy;
+                case "isPassable":
+                case "isEmpty":
+                    return false;
+                case "isSolid":
+                    return true;
+                case "getType":
+                    return Material.STONE;
+                case "getWorld":
+                    return world;
+                default:
+                    return Stubs.defaultValue(proxy, method, args);
+            }
+        });
+    }
+
+    /**
+     * @param name The name of the world.
+     * @param scheduler The scheduler the entities of this world belong to.
+     * @param chunkCount The amount of loaded chunks, laid out in a square around 0,0.
+     * @param villagerCount The amount of villagers.
+     * @param seed The seed for placing villagers and picking their professions.
+     * @return A new world.
+     */
+    public static @NotNull SimWorld generate(@NotNull String name, @NotNull SimScheduler scheduler, int chunkCount, int villagerCount, long seed) {
+        final SimWorld simWorld = new SimWorld(name, scheduler);
+        final int side = (int) Math.ceil(Math.sqrt(chunkCount));
+        for (int i = 0; i < chunkCount; i++) {
+            final int chunkX = i % side - side / 2, chunkZ = i / side - side / 2;
+            simWorld.chunks.put(ChunkBatch.chunkKey(chunkX, chunkZ), simWorld.new SimChunk(chunkX, chunkZ));
+        }
+
+        final Random random = new Random(seed);
+        final List<SimChunk> allChunks = new ArrayList<>(simWorld.chunks.values());
+        final List<SimChunk> tradingHalls = new ArrayList<>();
+        for (SimChunk chunk : allChunks) {
+            if (random.nextDouble() < TRADING_HALL_SHARE) tradingHalls.add(chunk);
+        }
+        if (tradingHalls.isEmpty()) tradingHalls.add(allChunks.get(0));
+
+        final Villager.Profession[] professions = Villager.Profession.values();
+        for (int i = 0; i < villagerCount; i++) {
+            final boolean inHall = random.nextDouble() < VILLAGERS_IN_HALLS;
+            final SimChunk chunk = inHall
+                    ? tradingHalls.get(random.nextInt(tradingHalls.size()))
+                    : allChunks.get(random.nextInt(allChunks.size()));
+            final Location location = new Location(simWorld.world,
+                    (chunk.x << 4) + random.nextInt(16) + 0.5, 64, (chunk.z << 4) + random.nextInt(16) + 0.5);
+            final Villager villager = simWorld.spawnVillager(location, professions[random.nextInt(professions.length)],
+                    random.nextInt(100), inHall && random.nextBoolean());
+            chunk.entities.add(villager);
+        }
+
+        return simWorld;
+    }
+
+    /**
+     * @return A world without any chunks, which are added as entities are placed into it.
+     */
+    public static @NotNull SimWorld empty(@NotNull String name, @NotNull SimScheduler scheduler) {
+        return new SimWorld(name, scheduler);
+    }
+
+    /**
+     * Places a new villager into the world, loading its chunk if needed.
+     */
+    public @NotNull Villager addVillager(double x, double y, double z, @NotNull Villager.Profession profession, int experience) {
+        final Location location = new Location(world, x, y, z);
+        final Villager villager = spawnVillager(location, profession, experience, false);
+        loadedChunk(location.getBlockX() >> 4, location.getBlockZ() >> 4).entities.add(villager);
+        return villager;
+    }
+
+    /**
+     * Places a new entity of any type into the world, loading its chunk if needed. Players have every permission.
+     */
+    public @NotNull Entity addEntity(@NotNull EntityType type, @NotNull String entityName, double x, double y, double z) {
+        if (type == EntityType.PLAYER) {
+            final Player player = player(entityName, x, z);
+            loadedChunk((int) Math.floor(x) >> 4, (int) Math.floor(z) >> 4).entities.add(player);
+            return player;
+        }
+
+        final Location location = new Location(world, x, y, z);
+        final UUID entityUid = UUID.nameUUIDFromBytes((name + entityName).getBytes());
+        final boolean[] removed = {false};
+        final Object[] entityScheduler = new Object[1];
+        final Entity entity = Stubs.proxy(type.getEntityClass() != null ? type.getEntityClass() : Entity.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getType":
+                    return type;
+                case "getUniqueId":
+                    return entityUid;
+                case "getLocation":
+                    return location.clone();
+                case "getWorld":
+                    return world;
+                case "getChunk":
+                    return chunkAt(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+                case "isValid":
+                    return !removed[0];
+                case "isDead":
+                    return removed[0];
+                case "remove":
+                    removed[0] = true;
+                    return null;
+                case "getScheduler":
+                    if (entityScheduler[0] == null) entityScheduler[0] = scheduler.entityScheduler((Entity) proxy);
+                    return entityScheduler[0];
+                default:
+                    return Stubs.defaultValue(proxy, method, args);
+            }
+        });
+        positions.put(entity, location);
+        loadedChunk(location.getBlockX() >> 4, location.getBlockZ() >> 4).entities.add(entity);
+        return entity;
+    }
+
+    /**
+     * Moves an entity placed by this world, carrying it over to another chunk if it crosses a border.
+     */
+    public void move(@NotNull Entity entity, double x, double y, double z) {
+        final Location location = positions.get(entity);
+        if (location == null) return;
+        final int fromX = location.getBlockX() >> 4, fromZ = location.getBlockZ() >> 4;
+        location.setX(x);
+        location.setY(y);
+        location.setZ(z);
+        final int toX = location.getBlockX() >> 4, toZ = location.getBlockZ() >> 4;
+        if (fromX == toX && fromZ == toZ) return;
+        final SimChunk from = chunks.get(ChunkBatch.chunkKey(fromX, fromZ));
+        if (from != null) from.entities.remove(entity);
+        loadedChunk(toX, toZ).entities.add(entity);
+    }
+
+    /**
+     * Puts an item into the player's hand, or empties it if the item is null.
+     */
+    public void hold(@NotNull Player player, ItemStack item) {
+        if (item == null) heldItems.remove(player);
+        else heldItems.put(player, item);
+    }
+
+    /**
+     * @return A block of the given type at the given position. The rest of the world stays solid stone.
+     */
+    public @NotNull Block block(int x, int y, int z, @NotNull Material type) {
+        final Location location = new Location(world, x, y, z);
+        return Stubs.proxy(Block.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getType":
+                    return type;
+                case "getLocation":
+                    return location.clone();
+                case "getWorld":
+                    return world;
+                case "getX":
+                    return x;
+                case "getY":
+                    return y;
+                case "getZ":
+                    return z;
+                case "getChunk":
+                    return chunkAt(x >> 4, z >> 4);
+                case "getRelative":
+                    return solidBlock;
+                default:
+                    return Stubs.defaultValue(proxy, method, args);
+            }
+        });
+    }
+
+    public int chunkCount() {
+        return chunks.size();
+    }
+
+    /**
+     * @return A player standing at the given location, who has every permission.
+     */
+    public @NotNull Player player(@NotNull String playerName, double x, double z) {
+        final Location location = new Location(world, x, 64, z);
+        final UUID playerUid = UUID.nameUUIDFromBytes(playerName.getBytes());
+        final Player player = Stubs.proxy(Player.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getType":
+                    return EntityType.PLAYER;
+                case "getName":
+                    return playerName;
+                case "getUniqueId":
+                    return playerUid;
+                case "getLocation":
+                    return location.clone();
+                case "getWorld":
+                    return world;
+                case "locale":
+                    return Locale.US;
+                case "getLocale":
+                    return "en_us";
+                case "hasPermission":
+                case "isOp":
+                case "isValid":
+                case "isOnline":
+                    return true;
+                case "isSneaking":
+                    return true;
+                case "getInventory":
+                    return Stubs.proxy(PlayerInventory.class, (inventory, inventoryMethod, inventoryArgs) -> {
+                        switch (inventoryMethod.getName()) {
+                            case "getItem":
+                            case "getItemInMainHand":
+                                return heldItems.get((Player) proxy);
+                            default:
+                                return Stubs.defaultValue(inventory, inventoryMethod, inventoryArgs);
+                        }
+                    });
+                case "getScheduler":
+                    return scheduler.entityScheduler((Entity) proxy);
+                default:
+                    return Stubs.defaultValue(proxy, method, args);
+            }
+        });
+        positions.put(player, location);
+        return player;
+    }
+
+    /**
+     * @return The amount of villagers in each chunk that are valid and match the given optimization state.
+     */
+    public @NotNull List<Integer> villagersPerChunk(boolean optimized) {
+        final List<Integer> counts = new ArrayList<>(chunks.size());
+        for (SimChunk chunk : chunks.values()) {
+            int count = 0;
+            for (Entity entity : chunk.entities) {
+                if (entity instanceof Villager && entity.isValid() && isOptimized((Villager) entity) == optimized) count++;
+            }
+            counts.add(count);
+        }
+        return counts;
+    }
+
+    public int villagerCount(boolean optimized) {
+        return villagersPerChunk(optimized).stream().mapToInt(Integer::intValue).sum();
+    }
+
+    private static boolean isOptimized(@NotNull Villager villager) {
+        return villager.getPersistentDataContainer().has(Keyring.VillagerOptimizer.OPTIMIZATION_TYPE.getKey(), PersistentDataType.STRING);
+    }
+
+    private Object handleWorld(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "getName":
+                return name;
+            case "getUID":
+                return uid;
+            case "getEnvironment":
+                return World.Environment.NORMAL;
+            case "getMinHeight":
+                return -64;
+            case "getMaxHeight":
+                return 320;
+            case "isChunkLoaded":
+                return args.length == 2 && chunks.containsKey(ChunkBatch.chunkKey((Integer) args[0], (Integer) args[1]));
+            case "getChunkAt":
+                if (args[0] instanceof Location) {
+                    final Location location = (Location) args[0];
+                    return chunkAt(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+                }
+                return chunkAt((Integer) args[0], (Integer) args[1]);
+            case "getLoadedChunks":
+                return chunks.values().stream().map(chunk -> chunk.chunk).toArray(Chunk[]::new);
+            case "getBlockAt":
+                return solidBlock;
+            case "getNearbyEntities":
+            case "getNearbyEntitiesByType":
+            case "getNearbyLivingEntities":
+            case "getNearbyPlayers":
+                return nearbyEntities(method, args);
+            default:
+                return Stubs.defaultValue(proxy, method, args);
+        }
+    }
+
+    private @NotNull List<Entity> nearbyEntities(@NotNull Method method, @NotNull Object[] args) {
+        // Paper's overloads either start with the type to look for or with the location
+        final boolean typed = args[0] instanceof Class;
+        final Class<?> type = typed ? (Class<?>) args[0] : method.getName().equals("getNearbyPlayers") ? Player.class
+                : method.getName().equals("getNearbyLivingEntities") ? LivingEntity.class : Entity.class;
+        final Location center = (Location) args[typed ? 1 : 0];
+        final int first = typed ? 2 : 1;
+        final double xRadius = ((Number) args[first]).doubleValue();
+        final double yRadius = args.length > first + 1 && args[first + 1] instanceof Number ? ((Number) args[first + 1]).doubleValue() : xRadius;
+        final double zRadius = args.length > first + 2 && args[first + 2] instanceof Number ? ((Number) args[first + 2]).doubleValue() : xRadius;
+        @SuppressWarnings("unchecked")
+        final Predicate<Entity> predicate = args[args.length - 1] instanceof Predicate ? (Predicate<Entity>) args[args.length - 1] : null;
+
+        final List<Entity> found = new ArrayList<>();
+        for (int chunkX = (int) Math.floor(center.getX() - xRadius) >> 4; chunkX <= (int) Math.floor(center.getX() + xRadius) >> 4; chunkX++) {
+            for (int chunkZ = (int) Math.floor(center.getZ() - zRadius) >> 4; chunkZ <= (int) Math.floor(center.getZ() + zRadius) >> 4; chunkZ++) {
+                final SimChunk chunk = chunks.get(ChunkBatch.chunkKey(chunkX, chunkZ));
+                if (chunk == null) continue;
+                for (Entity entity : chunk.entities) {
+                    if (!type.isInstance(entity) || !entity.isValid()) continue;
+                    final Location location = entity.getLocation();
+                    if (Math.abs(location.getX() - center.getX()) > xRadius
+                            || Math.abs(location.getY() - center.getY()) > yRadius
+                            || Math.abs(location.getZ() - center.getZ()) > zRadius) continue;
+                    if (predicate == null || predicate.test(entity)) found.add(entity);
+                }
+            }
+        }
+        return found;
+    }
+
+    private @NotNull SimChunk loadedChunk(int chunkX, int chunkZ) {
+        return chunks.computeIfAbsent(ChunkBatch.chunkKey(chunkX, chunkZ), key -> new SimChunk(chunkX, chunkZ));
+    }
+
+    private @NotNull Chunk chunkAt(int chunkX, int chunkZ) {
+        final SimChunk chunk = chunks.get(ChunkBatch.chunkKey(chunkX, chunkZ));
+        // Chunks outside of the simulated area are empty
+        return chunk != null ? chunk.chunk : new SimChunk(chunkX, chunkZ).chunk;
+    }
+
+    private @NotNull Villager spawnVillager(@NotNull Location location, @NotNull Villager.Profession profession, int experience, boolean optimized) {
+        final UUID villagerUid = UUID.nameUUIDFromBytes((name + location + profession + experience).getBytes());
+        final PersistentDataContainer dataContainer = Stubs.dataContainer();
+        final boolean[] state = {false, !optimized, true}; // removed, aware, has ai
+        final Location jobSite = location.clone().add(1, 0, 0);
+
+        final Object[] entityScheduler = new Object[1];
+
+        if (optimized) {
+            dataContainer.set(Keyring.VillagerOptimizer.OPTIMIZATION_TYPE.getKey(), PersistentDataType.STRING, OptimizationType.COMMAND.name());
+        }
+
+        final Villager villager = Stubs.proxy(Villager.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getType":
+                    return EntityType.VILLAGER;
+                case "getUniqueId":
+                    return villagerUid;
+                case "getProfession":
+                    return profession;
+                case "getVillagerExperience":
+                    return experience;
+                case "getVillagerLevel":
+                    return 1;
+                case "getPersistentDataContainer":
+                    return dataContainer;
+                case "getLocation":
+                    return location.clone();
+                case "getWorld":
+                    return world;
+                case "getChunk":
+                    return chunkAt(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+                case "getMemory":
+                    return args[0] == MemoryKey.JOB_SITE && profession != Villager.Profession.NONE ? jobSite.clone() : null;
+                case "isValid":
+                    return !state[0];
+                case "isDead":
+                    return state[0];
+                case "remove":
+                    state[0] = true;
+                    return null;
+                case "isAware":
+                    return state[1];
+                case "setAware":
+                    state[1] = (Boolean) args[0];
+                    return null;
+                case "hasAI":
+                    return state[2];
+                case "setAI":
+                    state[2] = (Boolean) args[0];
+                    return null;
+                case "getScheduler":
+                    if (entityScheduler[0] == null) entityScheduler[0] = scheduler.entityScheduler((Entity) proxy);
+                    return entityScheduler[0];
+                default:
+                    return Stubs.defaultValue(proxy, method, args);
+            }
+        });
+        positions.put(villager, location);
+        return villager;
+    }
+
+    private final class SimChunk {
+
+        private final int x, z;
+        private final @NotNull List<Entity> entities = new ArrayList<>();
+        private final @NotNull Chunk chunk;
+        private PersistentDataContainer dataContainer;
+
+        private SimChunk(int x, int z) {
+            this.x = x;
+            this.z = z;
+            this.chunk = Stubs.proxy(Chunk.class, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getX":
+                        return x;
+                    case "getZ":
+                        return z;
+                    case "getWorld":
+                        return world;
+                    case "getChunkKey":
+                        return ChunkBatch.chunkKey(x, z);
+                    case "isLoaded":
+                    case "isEntitiesLoaded":
+                        return true;
+                    case "getEntities":
+                        return entities.stream().filter(Entity::isValid).toArray(Entity[]::new);
+                    case "getPersistentDataContainer":
+                        if (dataContainer == null) dataContainer = Stubs.dataContainer();
+                        return dataContainer;
+                    default:
+                        return Stubs.defaultValue(proxy, method, args);
+                }
+            });
+        }
+    }
+}
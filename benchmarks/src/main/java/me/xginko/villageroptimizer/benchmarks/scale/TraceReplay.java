@@ -0,0 +1,249 @@
+package me.xginko.villageroptimizer.benchmarks.scale;
+
+import com.destroystokyo.paper.event.entity.EntityPathfindEvent;
+import me.xginko.villageroptimizer.modules.VillagerOptimizerModule;
+import me.xginko.villageroptimizer.trace.EventTrace;
+import me.xginko.villageroptimizer.utils.LatencyProfile;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.entity.Villager;
+import org.bukkit.event.Event;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.CreatureSpawnEvent;
+import org.bukkit.event.entity.EntityDamageByEntityEvent;
+import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.event.entity.EntityTargetEvent;
+import org.bukkit.event.player.PlayerInteractEntityEvent;
+import org.bukkit.inventory.EquipmentSlot;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Replays an event trace recorded by the plugin's event-trace module against a simulated server, with all modules
+ * enabled in the given config, and reports how much time each module spent handling the recorded load.
+ * <p>
+ * Entities are recreated the first time they show up in the trace and moved to wherever the trace saw them last.
+ * Time only passes between events, so scheduled tasks run as often as they would have on the server.
+ * <p>
+ * Run with {@code java -cp benchmarks.jar me.xginko.villageroptimizer.benchmarks.scale.TraceReplay <trace> [--config <config.yml>]}.
+ * Exits with status 1 if any module threw an exception or logged an error while replaying.
+ */
+public final class TraceReplay {
+
+    private static final long MILLIS_PER_TICK = 50;
+    private static final int TAIL_TICKS = 20 * 5;
+    private static final int MAX_ERRORS_SHOWN = 20;
+    private static final Villager.Profession[] WORKING_PROFESSIONS = Arrays.stream(Villager.Profession.values())
+            .filter(profession -> profession != Villager.Profession.NONE && profession != Villager.Profession.NITWIT)
+            .toArray(Villager.Profession[]::new);
+
+    private final @NotNull SimPlugin sim;
+    private final @NotNull Map<String, SimWorld> worlds;
+    private final @NotNull Map<Integer, Entity> entities = new HashMap<>();
+    private final @NotNull Map<EventTrace.Type, Integer> replayed = new EnumMap<>(EventTrace.Type.class);
+    private final @NotNull Map<EventTrace.Type, Integer> skipped = new EnumMap<>(EventTrace.Type.class);
+
+    private TraceReplay(@NotNull SimPlugin sim, @NotNull Map<String, SimWorld> worlds) {
+        this.sim = sim;
+        this.worlds = worlds;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1 && !(args.length == 3 && args[1].equals("--config"))) {
+            System.out.println("Usage: TraceReplay <trace" + EventTrace.FILE_EXTENSION + "> [--config <config.yml>]");
+            System.exit(2);
+        }
+
+        final File traceFile = new File(args[0]);
+        final File dataFolder = Files.createTempDirectory("villageroptimizer-replay").toFile();
+        if (args.length == 3) {
+            Files.copy(new File(args[2]).toPath(), new File(dataFolder, "config.yml").toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        final SimPlugin sim = SimPlugin.start(dataFolder);
+        final Map<String, SimWorld> worlds = new LinkedHashMap<>();
+        long records = 0, startMillis, endMillis = 0;
+        // Read the trace once up front, so all worlds exist before modules start looking for them
+        try (EventTrace.Reader reader = new EventTrace.Reader(traceFile)) {
+            startMillis = reader.startTimeMillis;
+            for (EventTrace.Record record = reader.next(); record != null; record = reader.next()) {
+                worlds.computeIfAbsent(record.world, name -> SimWorld.empty(name, sim.scheduler));
+                endMillis = Math.max(endMillis, record.timeMillis);
+                records++;
+            }
+        }
+
+        sim.reset(worlds.values().stream().map(world -> world.world).toArray(org.bukkit.World[]::new));
+        VillagerOptimizerModule.reloadModules();
+
+        final TraceReplay replay = new TraceReplay(sim, worlds);
+        final long start = System.nanoTime();
+        try (EventTrace.Reader reader = new EventTrace.Reader(traceFile)) {
+            for (EventTrace.Record record = reader.next(); record != null; record = reader.next()) {
+                final long tick = Math.max(0, record.timeMillis - startMillis) / MILLIS_PER_TICK;
+                while (sim.scheduler.currentTick() < tick) sim.scheduler.tick();
+                replay.replay(record);
+            }
+        }
+        for (int i = 0; i < TAIL_TICKS; i++) sim.scheduler.tick();
+        final long wallNanos = System.nanoTime() - start;
+
+        replay.report(records, Math.max(0, endMillis - startMillis), wallNanos);
+        System.exit(sim.loggedErrors().isEmpty() && sim.scheduler.errorCount() == 0 ? 0 : 1);
+    }
+
+    private void replay(@NotNull EventTrace.Record record) {
+        final Event event;
+        try {
+            event = toEvent(record);
+        } catch (RuntimeException | LinkageError e) {
+            // Some event constructors need registries the simulated server doesn't have
+            skipped.merge(record.type, 1, Integer::sum);
+            return;
+        }
+
+        if (event == null) {
+            skipped.merge(record.type, 1, Integer::sum);
+            return;
+        }
+
+        sim.callEvent(event);
+        replayed.merge(record.type, 1, Integer::sum);
+    }
+
+    private @Nullable Event toEvent(@NotNull EventTrace.Record record) {
+        final SimWorld world = worlds.get(record.world);
+        final Location location = new Location(world.world, record.x + 0.5, record.y, record.z + 0.5);
+
+        switch (record.type) {
+            case PATHFIND: {
+                final Entity entity = entity(world, record.subjectId, record.subjectType, location);
+                final Entity target = record.otherType == null ? null : entity(world, record.otherId, record.otherType, null);
+                return new EntityPathfindEvent(entity, location, target);
+            }
+            case TARGET: {
+                if (record.otherType == null) return null;
+                final Entity entity = entity(world, record.subjectId, record.subjectType, location);
+                final Entity target = entity(world, record.otherId, record.otherType, null);
+                return new EntityTargetEvent(entity, target, EntityTargetEvent.TargetReason.valueOf(record.detail));
+            }
+            case DAMAGE: {
+                final Entity entity = entity(world, record.subjectId, record.subjectType, location);
+                final EntityDamageEvent.DamageCause cause = EntityDamageEvent.DamageCause.valueOf(record.detail);
+                if (record.otherType == null) return new EntityDamageEvent(entity, cause, record.value);
+                final Entity damager = entity(world, record.otherId, record.otherType, null);
+                return new EntityDamageByEntityEvent(damager, entity, cause, record.value);
+            }
+            case INTERACT: {
+                if (record.otherType == null) return null;
+                final Entity clicked = entity(world, record.subjectId, record.subjectType, location);
+                final Entity player = entity(world, record.otherId, record.otherType, null);
+                if (!(player instanceof Player)) return null;
+                final Material held = record.detail == null ? null : Material.matchMaterial(record.detail);
+                world.hold((Player) player, held == null || held.isAir() ? null : new ItemStack(held));
+                return new PlayerInteractEntityEvent((Player) player, clicked, EquipmentSlot.HAND);
+            }
+            case SPAWN: {
+                final Entity entity = entity(world, record.subjectId, record.subjectType, location);
+                if (!(entity instanceof LivingEntity)) return null;
+                return new CreatureSpawnEvent((LivingEntity) entity, CreatureSpawnEvent.SpawnReason.valueOf(record.detail));
+            }
+            case BLOCK_PLACE:
+            case BLOCK_BREAK: {
+                final Entity player = entity(world, record.subjectId, record.subjectType, null);
+                final Material material = record.detail == null ? null : Material.matchMaterial(record.detail);
+                if (!(player instanceof Player) || material == null) return null;
+                final Block block = world.block(record.x, record.y, record.z, material);
+                if (record.type == EventTrace.Type.BLOCK_BREAK) return new BlockBreakEvent(block, (Player) player);
+                return new BlockPlaceEvent(block, null, block, new ItemStack(material), (Player) player, true, EquipmentSlot.HAND);
+            }
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return The entity with the recorded id, created on first sight and moved to the location if one is given.
+     */
+    private @NotNull Entity entity(@NotNull SimWorld world, int id, @NotNull String type, @Nullable Location location) {
+        Entity entity = entities.get(id);
+        if (entity == null) {
+            final double x = location != null ? location.getX() : 0, y = location != null ? location.getY() : 64,
+                    z = location != null ? location.getZ() : 0;
+            if (type.equals(EntityType.VILLAGER.name())) {
+                final Random random = new Random(id);
+                entity = world.addVillager(x, y, z, WORKING_PROFESSIONS[random.nextInt(WORKING_PROFESSIONS.length)], random.nextInt(100));
+            } else {
+                entity = world.addEntity(entityType(type), type.toLowerCase(Locale.ROOT) + id, x, y, z);
+            }
+            entities.put(id, entity);
+        } else if (location != null) {
+            world.move(entity, location.getX(), location.getY(), location.getZ());
+        }
+        return entity;
+    }
+
+    private static @NotNull EntityType entityType(@NotNull String name) {
+        try {
+            return EntityType.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return EntityType.UNKNOWN;
+        }
+    }
+
+    private void report(long records, long traceMillis, long wallNanos) {
+        final long events = replayed.values().stream().mapToLong(Integer::longValue).sum();
+        System.out.printf(Locale.ROOT, "Replayed %d of %d recorded events, covering %.1fs of server time, in %.1fms (%.0f events/s)%n",
+                events, records, traceMillis / 1000.0, wallNanos / 1_000_000.0, events / Math.max(1e-9, wallNanos / 1e9));
+        System.out.printf(Locale.ROOT, "%d ticks, %d tasks run, %d villagers and %d other entities%n",
+                sim.scheduler.currentTick(), sim.scheduler.tasksRun(),
+                entities.values().stream().filter(entity -> entity instanceof Villager).count(),
+                entities.values().stream().filter(entity -> !(entity instanceof Villager)).count());
+        for (EventTrace.Type type : EventTrace.Type.values()) {
+            final int done = replayed.getOrDefault(type, 0), missed = skipped.getOrDefault(type, 0);
+            if (done + missed == 0) continue;
+            System.out.printf(Locale.ROOT, "  %-12s %9d replayed %9d skipped%n", type.name().toLowerCase(Locale.ROOT), done, missed);
+        }
+
+        System.out.println();
+        System.out.printf(Locale.ROOT, "%-45s %9s %12s %10s %10s %10s%n", "module", "calls", "total", "p50", "p99", "max");
+        final List<VillagerOptimizerModule> modules = new ArrayList<>(VillagerOptimizerModule.ENABLED_MODULES);
+        modules.sort(Comparator.comparingLong((VillagerOptimizerModule module) -> module.profile.totalNanos()).reversed());
+        for (VillagerOptimizerModule module : modules) {
+            final LatencyProfile profile = module.profile;
+            if (profile.calls() == 0) continue;
+            System.out.printf(Locale.ROOT, "%-45s %9d %12s %10s %10s %10s%n", module.configPath, profile.calls(),
+                    LatencyProfile.format(profile.totalNanos()), LatencyProfile.format(profile.percentileNanos(0.5)),
+                    LatencyProfile.format(profile.percentileNanos(0.99)), LatencyProfile.format(profile.maxNanos()));
+        }
+
+        final List<String> errors = new ArrayList<>(sim.scheduler.errors());
+        errors.addAll(sim.loggedErrors());
+        if (errors.isEmpty()) return;
+        System.out.println();
+        System.out.println(errors.size() + " errors while replaying:");
+        errors.stream().limit(MAX_ERRORS_SHOWN).forEach(error -> System.out.println(" - " + error));
+        if (errors.size() > MAX_ERRORS_SHOWN) System.out.println(" ... and " + (errors.size() - MAX_ERRORS_SHOWN) + " more");
+    }
+}
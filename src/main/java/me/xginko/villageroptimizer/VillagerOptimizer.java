@@ -1,11 +1,14 @@
 package me.xginko.villageroptimizer;
 
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import me.xginko.villageroptimizer.commands.VillagerOptimizerCommand;
 import me.xginko.villageroptimizer.config.Config;
 import me.xginko.villageroptimizer.config.LanguageCache;
+import me.xginko.villageroptimizer.config.PlayerLanguages;
 import me.xginko.villageroptimizer.enums.Permissions;
+import me.xginko.villageroptimizer.jobs.BulkJobManager;
 import me.xginko.villageroptimizer.modules.VillagerOptimizerModule;
 import me.xginko.villageroptimizer.utils.Util;
 import me.xginko.villageroptimizer.wrapper.WrappedVillager;
@@ -14,8 +17,6 @@ import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
 import net.kyori.adventure.text.format.TextDecoration;
 import net.kyori.adventure.text.logger.slf4j.ComponentLogger;
-import org.apache.logging.log4j.Level;
-import org.apache.logging.log4j.core.config.Configurator;
 import org.bstats.bukkit.Metrics;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
@@ -26,22 +27,22 @@ import space.arim.morepaperlib.MorePaperLib;
 import space.arim.morepaperlib.commands.CommandRegistration;
 import space.arim.morepaperlib.scheduling.GracefulScheduling;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Locale;
-import java.util.Map;
 import java.util.SortedSet;
 import java.util.TreeSet;
-import java.util.jar.JarFile;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-import java.util.zip.ZipEntry;
 
 public final class VillagerOptimizer extends JavaPlugin {
 
@@ -49,19 +50,16 @@ public final class VillagerOptimizer extends JavaPlugin {
     private static CommandRegistration commandRegistration;
     private static GracefulScheduling scheduling;
     private static Cache<Villager, WrappedVillager> wrapperCache;
-    private static Map<String, LanguageCache> languageCacheMap;
-    private static Config config;
+    private static BulkJobManager jobManager;
+    private static volatile LanguageCache defaultLanguage;
+    private static volatile SortedSet<String> availableLanguages;
+    private static volatile AsyncLoadingCache<String, LanguageCache> languageCache;
+    private static final PlayerLanguages playerLanguages = new PlayerLanguages();
+    private static volatile Config config;
     private static BukkitAudiences audiences;
     private static ComponentLogger logger;
     private static Metrics bStats;
 
-    @Override
-    public void onLoad() {
-        // Disable reflection logging
-        String shadedLibs = getClass().getPackage().getName() + ".libs";
-        Configurator.setLevel(shadedLibs + ".reflections.Reflections", Level.OFF);
-    }
-
     @Override
     public void onEnable() {
         instance = this;
@@ -119,6 +117,7 @@ public final class VillagerOptimizer extends JavaPlugin {
                 .style(Util.PL_STYLE).append(Component.text(" ➤  Loading Translations...").style(Util.PL_STYLE))
                 .append(Component.text("                   │").style(Util.PL_STYLE)));
         reloadLang(true);
+        getServer().getPluginManager().registerEvents(playerLanguages, this);
 
         logger.info(Component.text("│              ")
                 .style(Util.PL_STYLE).append(Component.text(" ✓  Done.").color(NamedTextColor.WHITE).decorate(TextDecoration.BOLD))
@@ -134,6 +133,10 @@ public final class VillagerOptimizer extends JavaPlugin {
         VillagerOptimizerModule.ENABLED_MODULES.clear();
         VillagerOptimizerCommand.COMMANDS.forEach(VillagerOptimizerCommand::disable);
         VillagerOptimizerCommand.COMMANDS.clear();
+        if (jobManager != null) {
+            jobManager.disable();
+            jobManager = null;
+        }
         if (wrapperCache != null) {
             wrapperCache.cleanUp();
             wrapperCache = null;
@@ -151,7 +154,10 @@ public final class VillagerOptimizer extends JavaPlugin {
             bStats = null;
         }
         commandRegistration = null;
-        languageCacheMap = null;
+        playerLanguages.clear();
+        defaultLanguage = null;
+        availableLanguages = null;
+        languageCache = null;
         instance = null;
         config = null;
         logger = null;
@@ -173,6 +179,10 @@ public final class VillagerOptimizer extends JavaPlugin {
         return wrapperCache;
     }
 
+    public static @NotNull BulkJobManager jobs() {
+        return jobManager;
+    }
+
     public static @NotNull Config config() {
         return config;
     }
@@ -189,18 +199,95 @@ public final class VillagerOptimizer extends JavaPlugin {
         return getLang(locale.toString().toLowerCase());
     }
 
+    /**
+     * Players get the language that was bound to them when they joined or last changed their client language.
+     */
     public static @NotNull LanguageCache getLang(CommandSender commandSender) {
-        return commandSender instanceof Player ? getLang(((Player) commandSender).locale()) : getLang(config.default_lang);
+        if (!(commandSender instanceof Player)) return defaultLanguage;
+        final LanguageCache bound = playerLanguages.get((Player) commandSender);
+        return bound != null ? bound : getLang(((Player) commandSender).locale());
     }
 
+    /**
+     * Translations other than the default are loaded asynchronously the first time they are asked for.
+     * Until they are ready, and for languages without a translation, the default language is returned.
+     */
     public static @NotNull LanguageCache getLang(String lang) {
-        if (!config.auto_lang) return languageCacheMap.get(config.default_lang.toString().toLowerCase());
-        return languageCacheMap.getOrDefault(lang.replace("-", "_"), languageCacheMap.get(config.default_lang.toString().toLowerCase()));
+        final CompletableFuture<LanguageCache> translation = loadLang(lang);
+        return translation.isDone() && !translation.isCompletedExceptionally() ? translation.join() : defaultLanguage;
+    }
+
+    /**
+     * @return A future of the translation for the given locale, which is already complete with the default language
+     * for the default locale and for languages without a translation.
+     */
+    public static @NotNull CompletableFuture<LanguageCache> loadLang(String lang) {
+        final LanguageCache defaultLang = defaultLanguage;
+        if (!config.auto_lang) return CompletableFuture.completedFuture(defaultLang);
+        final String locale = lang.replace("-", "_").toLowerCase(Locale.ROOT);
+        if (locale.equals(defaultLang.locale) || !availableLanguages.contains(locale)) return CompletableFuture.completedFuture(defaultLang);
+        return languageCache.get(locale);
     }
 
-    public void reloadPlugin() {
+    /**
+     * Reloads translations and the config without stopping the plugin. The config file is parsed on the calling
+     * thread, then swapped in on the global region, where only the modules whose section changed are re-created.
+     * Everything else, including the wrapper cache, keeps running. Modules copy their settings into final fields
+     * when created, so region threads only ever see a module's settings from one version of the config.
+     *
+     * @return A future that completes once the new config is in use.
+     */
+    public @NotNull CompletableFuture<Void> reloadPlugin() {
         reloadLang(false);
-        reloadConfiguration();
+
+        final Config fresh;
+        try {
+            fresh = new Config();
+        } catch (Exception exception) {
+            logger.error("Error during config reload, keeping the previous config!", exception);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        final CompletableFuture<Void> swapped = new CompletableFuture<>();
+        scheduling.globalRegionalScheduler().run(() -> {
+            try {
+                swapConfiguration(fresh);
+            } catch (Exception exception) {
+                logger.error("Error during config reload!", exception);
+            } finally {
+                swapped.complete(null);
+            }
+        });
+        return swapped;
+    }
+
+    private void swapConfiguration(@NotNull Config fresh) {
+        final Config previous = config;
+        config = fresh;
+
+        if (!fresh.cache_keep_time.equals(previous.cache_keep_time)) {
+            wrapperCache.policy().expireAfterWrite().ifPresent(expiration ->
+                    expiration.setExpiresAfter(fresh.cache_keep_time.toMillis(), TimeUnit.MILLISECONDS));
+        }
+        if (fresh.support_other_plugins != previous.support_other_plugins) {
+            // Wrappers remember which plugins' data they read
+            wrapperCache.invalidateAll();
+        }
+
+        if (fresh.differs(previous, "optimization-methods.commands")) {
+            VillagerOptimizerCommand.reloadCommands();
+        }
+
+        final int reloaded = VillagerOptimizerModule.reloadModules(previous, fresh);
+        logger.info("Reloaded {} of the plugin's modules.", reloaded);
+
+        if (fresh.job_budget_per_tick_nanos != previous.job_budget_per_tick_nanos) {
+            jobManager.disable();
+            jobManager = new BulkJobManager();
+            jobManager.enable();
+        }
+        // Not saved here: modules that weren't re-created didn't add their defaults to the new config,
+        // so saving it would drop their comments. The file already holds what was just read from it.
     }
 
     private void reloadConfiguration() {
@@ -210,6 +297,10 @@ public final class VillagerOptimizer extends JavaPlugin {
             wrapperCache = Caffeine.newBuilder().expireAfterWrite(config.cache_keep_time).build();
             VillagerOptimizerCommand.reloadCommands();
             VillagerOptimizerModule.reloadModules();
+            // Running jobs are checkpointed and picked up again with the new settings
+            if (jobManager != null) jobManager.disable();
+            jobManager = new BulkJobManager();
+            jobManager.enable();
             config.saveConfig();
         } catch (Exception exception) {
             logger.error("Error during config reload!", exception);
@@ -219,20 +310,27 @@ public final class VillagerOptimizer extends JavaPlugin {
     private void reloadLang(boolean logFancy) {
         try {
             final SortedSet<String> availableLocales = getAvailableTranslations();
+            final String defaultLang = config.default_lang.toString().replace("-", "_").toLowerCase();
+            if (!availableLocales.contains(defaultLang))
+                throw new FileNotFoundException("Could not find any translation file for language '" + config.default_lang + "'");
             if (!config.auto_lang) {
-                final String defaultLang = config.default_lang.toString().replace("-", "_").toLowerCase();
-                if (!availableLocales.contains(defaultLang))
-                    throw new FileNotFoundException("Could not find any translation file for language '" + config.default_lang + "'");
                 availableLocales.removeIf(localeString -> !localeString.equalsIgnoreCase(defaultLang));
             }
-            languageCacheMap = new HashMap<>(availableLocales.size());
             for (String localeString : availableLocales) {
                 if (logFancy) logger.info(Component.text("│                       ").style(Util.PL_STYLE)
                         .append(Component.text("    "+localeString).color(NamedTextColor.WHITE).decorate(TextDecoration.BOLD))
                         .append(Component.text("                            │").style(Util.PL_STYLE)));
                 else logger.info(String.format("Found language file for %s", localeString));
-                languageCacheMap.put(localeString, new LanguageCache(localeString));
             }
+            // Only the default language is loaded right away, all others once someone needs them
+            defaultLanguage = new LanguageCache(defaultLang);
+            availableLanguages = Collections.unmodifiableSortedSet(availableLocales);
+            languageCache = Caffeine.newBuilder()
+                    .maximumSize(config.max_cached_languages)
+                    .executor(task -> scheduling.asyncScheduler().run(task))
+                    .buildAsync(LanguageCache::new);
+            // Bound languages belong to the translations that were just replaced
+            playerLanguages.bindAll();
         } catch (Throwable t) {
             if (logFancy) logger.error(Component.text("│                      ").style(Util.PL_STYLE)
                     .append(Component.text("LANG ERROR").color(NamedTextColor.RED).decorate(TextDecoration.BOLD))
@@ -241,19 +339,38 @@ public final class VillagerOptimizer extends JavaPlugin {
         }
     }
 
+    /**
+     * @return The locales of all translations bundled with the plugin, which are listed in an index generated
+     * during the build, and of all translations in the lang folder.
+     */
     private @NotNull SortedSet<String> getAvailableTranslations() {
-        try (final JarFile pluginJar = new JarFile(getFile())) {
+        final SortedSet<String> translations = new TreeSet<>();
+        try (InputStream index = VillagerOptimizer.class.getClassLoader().getResourceAsStream("lang/index.txt")) {
+            if (index == null) {
+                logger.warn("The plugin jar is missing its index of translations, only the lang folder will be used.");
+            } else {
+                final BufferedReader reader = new BufferedReader(new InputStreamReader(index, StandardCharsets.UTF_8));
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    if (!line.trim().isEmpty()) translations.add(line.trim().toLowerCase(Locale.ROOT));
+                }
+            }
+        } catch (Throwable t) {
+            logger.error("Failed reading the index of translations!", t);
+        }
+
+        try {
             final File langDirectory = new File(getDataFolder() + "/lang");
             Files.createDirectories(langDirectory.toPath());
             final Pattern langPattern = Pattern.compile("([a-z]{1,3}_[a-z]{1,3})(\\.yml)", Pattern.CASE_INSENSITIVE);
-            return Stream.concat(pluginJar.stream().map(ZipEntry::getName), Arrays.stream(langDirectory.listFiles()).map(File::getName))
+            Arrays.stream(langDirectory.listFiles())
+                    .map(File::getName)
                     .map(langPattern::matcher)
                     .filter(Matcher::find)
-                    .map(matcher -> matcher.group(1))
-                    .collect(Collectors.toCollection(TreeSet::new));
+                    .map(matcher -> matcher.group(1).toLowerCase(Locale.ROOT))
+                    .forEach(translations::add);
         } catch (Throwable t) {
             logger.error("Failed while searching for available translations!", t);
-            return Collections.emptySortedSet();
         }
+        return translations;
     }
 }
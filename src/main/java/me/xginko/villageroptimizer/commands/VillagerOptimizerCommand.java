@@ -3,16 +3,14 @@ package me.xginko.villageroptimizer.commands;
 import me.xginko.villageroptimizer.VillagerOptimizer;
 import me.xginko.villageroptimizer.utils.Disableable;
 import me.xginko.villageroptimizer.utils.Enableable;
+import me.xginko.villageroptimizer.utils.ServiceIndex;
 import org.bukkit.command.CommandException;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.PluginCommand;
 import org.bukkit.command.TabCompleter;
 import org.jetbrains.annotations.NotNull;
-import org.reflections.Reflections;
-import org.reflections.scanners.Scanners;
 
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Modifier;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
@@ -22,7 +20,7 @@ public abstract class VillagerOptimizerCommand implements Enableable, Disableabl
 
     public static final Set<VillagerOptimizerCommand> COMMANDS = new HashSet<>();
     public static final List<String> RADIUS_SUGGESTIONS = Arrays.asList("5", "10", "25", "50");
-    public static final Reflections COMMANDS_PACKAGE = new Reflections(VillagerOptimizerCommand.class.getPackage().getName());
+    private static List<Class<? extends VillagerOptimizerCommand>> commandClasses;
 
     public final PluginCommand pluginCommand;
 
@@ -36,11 +34,9 @@ public abstract class VillagerOptimizerCommand implements Enableable, Disableabl
         COMMANDS.forEach(VillagerOptimizerCommand::disable);
         COMMANDS.clear();
 
-        for (Class<?> clazz : COMMANDS_PACKAGE.get(Scanners.SubTypes.of(VillagerOptimizerCommand.class).asClass())) {
-            if (clazz.isInterface() || Modifier.isAbstract(clazz.getModifiers())) continue;
-
+        for (Class<? extends VillagerOptimizerCommand> clazz : commandClasses()) {
             try {
-                COMMANDS.add((VillagerOptimizerCommand) clazz.getDeclaredConstructor().newInstance());
+                COMMANDS.add(clazz.getDeclaredConstructor().newInstance());
             } catch (InstantiationException | IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
                 VillagerOptimizer.logger().error("Failed initialising command class '{}'.", clazz.getSimpleName(), e);
             }
@@ -49,6 +45,16 @@ public abstract class VillagerOptimizerCommand implements Enableable, Disableabl
         COMMANDS.forEach(VillagerOptimizerCommand::enable);
     }
 
+    /**
+     * @return All command implementations, as listed in
+     * {@code META-INF/services/me.xginko.villageroptimizer.commands.VillagerOptimizerCommand}.
+     * New commands need to be added there to be picked up.
+     */
+    private static synchronized @NotNull List<Class<? extends VillagerOptimizerCommand>> commandClasses() {
+        if (commandClasses == null) commandClasses = ServiceIndex.load(VillagerOptimizerCommand.class);
+        return commandClasses;
+    }
+
     @Override
     public void enable() {
         pluginCommand.setExecutor(this);
@@ -6,27 +6,29 @@ import me.xginko.villageroptimizer.config.Config;
 import me.xginko.villageroptimizer.enums.OptimizationType;
 import me.xginko.villageroptimizer.enums.Permissions;
 import me.xginko.villageroptimizer.events.VillagerOptimizeEvent;
+import me.xginko.villageroptimizer.utils.ChunkBatch;
 import me.xginko.villageroptimizer.utils.KyoriUtil;
 import me.xginko.villageroptimizer.wrapper.WrappedVillager;
 import net.kyori.adventure.text.Component;
-import net.kyori.adventure.text.TextReplacementConfig;
 import net.kyori.adventure.text.format.NamedTextColor;
 import net.kyori.adventure.text.format.TextDecoration;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
-import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Player;
 import org.bukkit.entity.Villager;
+import org.bukkit.util.BoundingBox;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class OptVillagersRadius extends VillagerOptimizerCommand {
 
-    private final long cooldown;
+    private final long cooldown, budget_per_tick_nanos;
     private final int max_radius;
 
     public OptVillagersRadius() {
@@ -36,6 +38,10 @@ public class OptVillagersRadius extends VillagerOptimizerCommand {
         this.cooldown = config.getInt("optimization-methods.commands.optimizevillagers.cooldown-seconds", 600,
                 "Cooldown in seconds until a villager can be optimized again using the command.\n" +
                 "Here for configuration freedom. Recommended to leave as is to not enable any exploitable behavior.") * 1000L;
+        this.budget_per_tick_nanos = TimeUnit.MICROSECONDS.toNanos(Math.max(1,
+                config.getInt("optimization-methods.commands.optimizevillagers.budget-per-tick-micros", 2000,
+                "The maximum time in microseconds the command may spend per tick. Chunks are processed a few at a\n" +
+                "time on the region that owns them, so large radii take a couple ticks but never cause a lag spike.")));
     }
 
     @Override
@@ -63,7 +69,7 @@ public class OptVillagersRadius extends VillagerOptimizerCommand {
         Player player = (Player) sender;
 
         if (args.length != 1) {
-            VillagerOptimizer.getLang(player.locale()).command_specify_radius
+            VillagerOptimizer.getLang(player).command_specify_radius
                     .forEach(line -> KyoriUtil.sendMessage(sender, line));
             return true;
         }
@@ -74,30 +80,27 @@ public class OptVillagersRadius extends VillagerOptimizerCommand {
             final int safeRadius = (int) Math.sqrt(specifiedRadius * specifiedRadius);
 
             if (safeRadius == 0) {
-                VillagerOptimizer.getLang(player.locale()).command_radius_invalid
+                VillagerOptimizer.getLang(player).command_radius_invalid
                         .forEach(line -> KyoriUtil.sendMessage(sender, line));
                 return true;
             }
 
             if (safeRadius > max_radius) {
-                final TextReplacementConfig limit = TextReplacementConfig.builder()
-                        .matchLiteral("%distance%")
-                        .replacement(Integer.toString(max_radius))
-                        .build();
-                VillagerOptimizer.getLang(player.locale()).command_radius_limit_exceed
-                        .forEach(line -> KyoriUtil.sendMessage(player, line.replaceText(limit)));
+                VillagerOptimizer.getLang(player).command_radius_limit_exceed.send(player, Integer.toString(max_radius));
                 return true;
             }
 
-            int successCount = 0;
-            int failCount = 0;
+            final AtomicInteger successCount = new AtomicInteger();
+            final AtomicInteger failCount = new AtomicInteger();
             final boolean player_has_cooldown_bypass = player.hasPermission(Permissions.Bypass.COMMAND_COOLDOWN.get());
+            final BoundingBox box = BoundingBox.of(player.getLocation(), safeRadius, safeRadius, safeRadius);
 
-            for (Entity entity : player.getNearbyEntities(safeRadius, safeRadius, safeRadius)) {
-                if (!entity.getType().equals(EntityType.VILLAGER)) continue;
+            ChunkBatch.within(player.getWorld(), box).budgetPerTick(budget_per_tick_nanos).forEachEntity(VillagerOptimizer.scheduling(), entity -> {
+                if (!entity.getType().equals(EntityType.VILLAGER)) return;
+                if (!box.contains(entity.getLocation().toVector())) return;
                 Villager villager = (Villager) entity;
                 Villager.Profession profession = villager.getProfession();
-                if (profession.equals(Villager.Profession.NITWIT) || profession.equals(Villager.Profession.NONE)) continue;
+                if (profession.equals(Villager.Profession.NITWIT) || profession.equals(Villager.Profession.NONE)) return;
 
                 WrappedVillager wVillager = VillagerOptimizer.wrappers().get(villager, WrappedVillager::new);
 
@@ -106,48 +109,33 @@ public class OptVillagersRadius extends VillagerOptimizerCommand {
                     if (optimizeEvent.callEvent()) {
                         wVillager.setOptimizationType(optimizeEvent.getOptimizationType());
                         wVillager.saveOptimizeTime();
-                        successCount++;
+                        successCount.incrementAndGet();
                     }
                 } else {
-                    failCount++;
+                    failCount.incrementAndGet();
                 }
-            }
-
-            if (successCount <= 0 && failCount <= 0) {
-                final TextReplacementConfig radius = TextReplacementConfig.builder()
-                        .matchLiteral("%radius%")
-                        .replacement(Integer.toString(safeRadius))
-                        .build();
-                VillagerOptimizer.getLang(player.locale()).command_no_villagers_nearby
-                        .forEach(line -> KyoriUtil.sendMessage(player, line.replaceText(radius)));
-                return true;
-            }
-
-            if (successCount > 0) {
-                final TextReplacementConfig success_amount = TextReplacementConfig.builder()
-                        .matchLiteral("%amount%")
-                        .replacement(Integer.toString(successCount))
-                        .build();
-                final TextReplacementConfig radius = TextReplacementConfig.builder()
-                        .matchLiteral("%radius%")
-                        .replacement(Integer.toString(safeRadius))
-                        .build();
-                VillagerOptimizer.getLang(player.locale()).command_optimize_success
-                        .forEach(line -> KyoriUtil.sendMessage(player, line.replaceText(success_amount).replaceText(radius)));
-            }
-            if (failCount > 0) {
-                final TextReplacementConfig alreadyOptimized = TextReplacementConfig.builder()
-                        .matchLiteral("%amount%")
-                        .replacement(Integer.toString(failCount))
-                        .build();
-                VillagerOptimizer.getLang(player.locale()).command_optimize_fail
-                        .forEach(line -> KyoriUtil.sendMessage(player, line.replaceText(alreadyOptimized)));
-            }
+            }).thenRun(() -> VillagerOptimizer.scheduling().entitySpecificScheduler(player).run(() ->
+                    sendResults(player, safeRadius, successCount.get(), failCount.get()), null));
         } catch (NumberFormatException e) {
-            VillagerOptimizer.getLang(player.locale()).command_radius_invalid
+            VillagerOptimizer.getLang(player).command_radius_invalid
                     .forEach(line -> KyoriUtil.sendMessage(player, line));
         }
 
         return true;
     }
+
+    private void sendResults(@NotNull Player player, int safeRadius, int successCount, int failCount) {
+        if (successCount <= 0 && failCount <= 0) {
+            VillagerOptimizer.getLang(player).command_no_villagers_nearby.send(player, Integer.toString(safeRadius));
+            return;
+        }
+
+        if (successCount > 0) {
+            VillagerOptimizer.getLang(player).command_optimize_success.send(player,
+                    Integer.toString(successCount), Integer.toString(safeRadius));
+        }
+        if (failCount > 0) {
+            VillagerOptimizer.getLang(player).command_optimize_fail.send(player, Integer.toString(failCount));
+        }
+    }
 }
\ No newline at end of file
@@ -5,32 +5,38 @@ import me.xginko.villageroptimizer.commands.VillagerOptimizerCommand;
 import me.xginko.villageroptimizer.enums.OptimizationType;
 import me.xginko.villageroptimizer.enums.Permissions;
 import me.xginko.villageroptimizer.events.VillagerUnoptimizeEvent;
+import me.xginko.villageroptimizer.utils.ChunkBatch;
 import me.xginko.villageroptimizer.utils.KyoriUtil;
 import me.xginko.villageroptimizer.wrapper.WrappedVillager;
 import net.kyori.adventure.text.Component;
-import net.kyori.adventure.text.TextReplacementConfig;
 import net.kyori.adventure.text.format.NamedTextColor;
 import net.kyori.adventure.text.format.TextDecoration;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
-import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Player;
 import org.bukkit.entity.Villager;
+import org.bukkit.util.BoundingBox;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class UnOptVillagersRadius extends VillagerOptimizerCommand {
 
+    private final long budget_per_tick_nanos;
     private final int max_radius;
 
     public UnOptVillagersRadius() {
         super("unoptimizevillagers");
         this.max_radius = VillagerOptimizer.config()
                 .getInt("optimization-methods.commands.unoptimizevillagers.max-block-radius", 100);
+        this.budget_per_tick_nanos = TimeUnit.MICROSECONDS.toNanos(Math.max(1, VillagerOptimizer.config()
+                .getInt("optimization-methods.commands.unoptimizevillagers.budget-per-tick-micros", 2000,
+                "The maximum time in microseconds the command may spend per tick.")));
     }
 
     @Override
@@ -58,7 +64,7 @@ public class UnOptVillagersRadius extends VillagerOptimizerCommand {
         Player player = (Player) sender;
 
         if (args.length != 1) {
-            VillagerOptimizer.getLang(player.locale()).command_specify_radius
+            VillagerOptimizer.getLang(player).command_specify_radius
                     .forEach(line -> KyoriUtil.sendMessage(sender, line));
             return true;
         }
@@ -69,28 +75,25 @@ public class UnOptVillagersRadius extends VillagerOptimizerCommand {
             final int safeRadius = (int) Math.sqrt(specifiedRadius * specifiedRadius);
 
             if (safeRadius == 0) {
-                VillagerOptimizer.getLang(player.locale()).command_radius_invalid
+                VillagerOptimizer.getLang(player).command_radius_invalid
                         .forEach(line -> KyoriUtil.sendMessage(sender, line));
                 return true;
             }
 
             if (safeRadius > max_radius) {
-                final TextReplacementConfig limit = TextReplacementConfig.builder()
-                        .matchLiteral("%distance%")
-                        .replacement(Integer.toString(max_radius))
-                        .build();
-                VillagerOptimizer.getLang(player.locale()).command_radius_limit_exceed
-                        .forEach(line -> KyoriUtil.sendMessage(player, line.replaceText(limit)));
+                VillagerOptimizer.getLang(player).command_radius_limit_exceed.send(player, Integer.toString(max_radius));
                 return true;
             }
 
-            int successCount = 0;
+            final AtomicInteger successCount = new AtomicInteger();
+            final BoundingBox box = BoundingBox.of(player.getLocation(), safeRadius, safeRadius, safeRadius);
 
-            for (Entity entity : player.getNearbyEntities(safeRadius, safeRadius, safeRadius)) {
-                if (!entity.getType().equals(EntityType.VILLAGER)) continue;
+            ChunkBatch.within(player.getWorld(), box).budgetPerTick(budget_per_tick_nanos).forEachEntity(VillagerOptimizer.scheduling(), entity -> {
+                if (!entity.getType().equals(EntityType.VILLAGER)) return;
+                if (!box.contains(entity.getLocation().toVector())) return;
                 Villager villager = (Villager) entity;
                 Villager.Profession profession = villager.getProfession();
-                if (profession.equals(Villager.Profession.NITWIT) || profession.equals(Villager.Profession.NONE)) continue;
+                if (profession.equals(Villager.Profession.NITWIT) || profession.equals(Villager.Profession.NONE)) return;
 
                 WrappedVillager wVillager = VillagerOptimizer.wrappers().get(villager, WrappedVillager::new);
 
@@ -98,35 +101,25 @@ public class UnOptVillagersRadius extends VillagerOptimizerCommand {
                     VillagerUnoptimizeEvent unOptimizeEvent = new VillagerUnoptimizeEvent(wVillager, player, OptimizationType.COMMAND);
                     if (unOptimizeEvent.callEvent()) {
                         wVillager.setOptimizationType(OptimizationType.NONE);
-                        successCount++;
+                        successCount.incrementAndGet();
                     }
                 }
-            }
-
-            if (successCount <= 0) {
-                final TextReplacementConfig radius = TextReplacementConfig.builder()
-                        .matchLiteral("%radius%")
-                        .replacement(Integer.toString(safeRadius))
-                        .build();
-                VillagerOptimizer.getLang(player.locale()).command_no_villagers_nearby
-                        .forEach(line -> KyoriUtil.sendMessage(player, line.replaceText(radius)));
-            } else {
-                final TextReplacementConfig success_amount = TextReplacementConfig.builder()
-                        .matchLiteral("%amount%")
-                        .replacement(Integer.toString(successCount))
-                        .build();
-                final TextReplacementConfig radius = TextReplacementConfig.builder()
-                        .matchLiteral("%radius%")
-                        .replacement(Integer.toString(safeRadius))
-                        .build();
-                VillagerOptimizer.getLang(player.locale()).command_unoptimize_success
-                        .forEach(line -> KyoriUtil.sendMessage(player, line.replaceText(success_amount).replaceText(radius)));
-            }
+            }).thenRun(() -> VillagerOptimizer.scheduling().entitySpecificScheduler(player).run(() ->
+                    sendResults(player, safeRadius, successCount.get()), null));
         } catch (NumberFormatException e) {
-            VillagerOptimizer.getLang(player.locale()).command_radius_invalid
+            VillagerOptimizer.getLang(player).command_radius_invalid
                     .forEach(line -> KyoriUtil.sendMessage(player, line));
         }
 
         return true;
     }
+
+    private void sendResults(@NotNull Player player, int safeRadius, int successCount) {
+        if (successCount <= 0) {
+            VillagerOptimizer.getLang(player).command_no_villagers_nearby.send(player, Integer.toString(safeRadius));
+        } else {
+            VillagerOptimizer.getLang(player).command_unoptimize_success.send(player,
+                    Integer.toString(successCount), Integer.toString(safeRadius));
+        }
+    }
 }
\ No newline at end of file
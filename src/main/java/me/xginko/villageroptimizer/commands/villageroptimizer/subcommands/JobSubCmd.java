@@ -0,0 +1,256 @@
+package me.xginko.villageroptimizer.commands.villageroptimizer.subcommands;
+
+import me.xginko.villageroptimizer.VillagerOptimizer;
+import me.xginko.villageroptimizer.commands.SubCommand;
+import me.xginko.villageroptimizer.enums.Permissions;
+import me.xginko.villageroptimizer.jobs.BulkJob;
+import me.xginko.villageroptimizer.jobs.BulkJobManager;
+import me.xginko.villageroptimizer.utils.ChunkBatch;
+import me.xginko.villageroptimizer.utils.KyoriUtil;
+import me.xginko.villageroptimizer.utils.Util;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import org.bukkit.World;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.util.BoundingBox;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+public class JobSubCmd extends SubCommand {
+
+    private static final List<String> ACTIONS = Arrays.asList("optimize", "unoptimize", "list", "pause", "resume", "cancel");
+    private static final List<String> SCOPES = Arrays.asList("cuboid", "world", "chunks");
+
+    public JobSubCmd() {
+        super(
+                "job",
+                Component.text("/villageroptimizer job").color(Util.PL_COLOR),
+                Component.text("Optimize or unoptimize whole areas in the background.").color(NamedTextColor.GRAY)
+        );
+    }
+
+    @Override
+    public @Nullable List<String> onTabComplete(
+            @NotNull CommandSender sender, @NotNull Command command, @NotNull String commandLabel, @NotNull String[] args
+    ) {
+        if (!sender.hasPermission(Permissions.Commands.JOB.get())) return Collections.emptyList();
+
+        if (args.length == 2) {
+            return ACTIONS;
+        }
+
+        final boolean startsJob = args[1].equalsIgnoreCase("optimize") || args[1].equalsIgnoreCase("unoptimize");
+
+        if (args.length == 3) {
+            if (startsJob) return SCOPES;
+            if (args[1].equalsIgnoreCase("list")) return Collections.emptyList();
+            return VillagerOptimizer.jobs().getJobs().stream().map(job -> Integer.toString(job.id)).collect(Collectors.toList());
+        }
+
+        if (args.length == 4 && startsJob) {
+            return VillagerOptimizer.getInstance().getServer().getWorlds().stream().map(World::getName).collect(Collectors.toList());
+        }
+
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean onCommand(
+            @NotNull CommandSender sender, @NotNull Command command, @NotNull String commandLabel, @NotNull String[] args
+    ) {
+        if (!sender.hasPermission(Permissions.Commands.JOB.get())) {
+            KyoriUtil.sendMessage(sender, VillagerOptimizer.getLang(sender).no_permission);
+            return true;
+        }
+
+        if (args.length < 2) {
+            usage(sender);
+            return true;
+        }
+
+        switch (args[1].toLowerCase(Locale.ROOT)) {
+            case "optimize":
+                startJob(sender, BulkJob.Action.OPTIMIZE, args);
+                return true;
+            case "unoptimize":
+                startJob(sender, BulkJob.Action.UNOPTIMIZE, args);
+                return true;
+            case "list":
+                listJobs(sender);
+                return true;
+            case "pause":
+            case "resume":
+            case "cancel":
+                manageJob(sender, args);
+                return true;
+            default:
+                usage(sender);
+                return true;
+        }
+    }
+
+    private void startJob(@NotNull CommandSender sender, @NotNull BulkJob.Action action, @NotNull String[] args) {
+        if (args.length < 4) {
+            usage(sender);
+            return;
+        }
+
+        final World world = VillagerOptimizer.getInstance().getServer().getWorld(args[3]);
+        if (world == null) {
+            KyoriUtil.sendMessage(sender, Component.text("There is no world named '" + args[3] + "'.").color(NamedTextColor.RED));
+            return;
+        }
+
+        final BulkJob.Scope scope;
+        final BoundingBox box;
+        final long[] keys;
+
+        try {
+            switch (args[2].toLowerCase(Locale.ROOT)) {
+                case "cuboid":
+                    if (args.length != 10) {
+                        usage(sender);
+                        return;
+                    }
+                    scope = BulkJob.Scope.CUBOID;
+                    final int x1 = Integer.parseInt(args[4]), y1 = Integer.parseInt(args[5]), z1 = Integer.parseInt(args[6]);
+                    final int x2 = Integer.parseInt(args[7]), y2 = Integer.parseInt(args[8]), z2 = Integer.parseInt(args[9]);
+                    // Include the blocks at both corners
+                    box = new BoundingBox(Math.min(x1, x2), Math.min(y1, y2), Math.min(z1, z2),
+                            Math.max(x1, x2) + 0.999, Math.max(y1, y2) + 0.999, Math.max(z1, z2) + 0.999);
+                    final long chunkCount = ChunkBatch.chunkCountWithin(box);
+                    if (chunkCount > VillagerOptimizer.config().job_max_cuboid_chunks) {
+                        KyoriUtil.sendMessage(sender, Component.text("That cuboid spans " + chunkCount + " chunks, the most allowed is " +
+                                VillagerOptimizer.config().job_max_cuboid_chunks + ". Use a world job instead.").color(NamedTextColor.RED));
+                        return;
+                    }
+                    // Cuboid jobs work out their chunks as they go
+                    keys = new long[0];
+                    break;
+                case "chunks":
+                    if (args.length < 5) {
+                        usage(sender);
+                        return;
+                    }
+                    scope = BulkJob.Scope.CHUNKS;
+                    box = null;
+                    keys = Arrays.stream(args, 4, args.length).mapToLong(coords -> {
+                        final String[] xz = coords.split(",");
+                        if (xz.length != 2) throw new NumberFormatException(coords);
+                        return ChunkBatch.chunkKey(Integer.parseInt(xz[0].trim()), Integer.parseInt(xz[1].trim()));
+                    }).distinct().toArray();
+                    break;
+                case "world":
+                    scope = BulkJob.Scope.WORLD;
+                    box = null;
+                    keys = BulkJobManager.generatedRegions(world);
+                    break;
+                default:
+                    usage(sender);
+                    return;
+            }
+        } catch (NumberFormatException e) {
+            KyoriUtil.sendMessage(sender, Component.text("Invalid coordinates: " + e.getMessage()).color(NamedTextColor.RED));
+            return;
+        }
+
+        if (keys.length == 0 && scope != BulkJob.Scope.CUBOID) {
+            KyoriUtil.sendMessage(sender, Component.text("There is nothing to process in that area.").color(NamedTextColor.RED));
+            return;
+        }
+
+        final UUID startedBy = sender instanceof Player ? ((Player) sender).getUniqueId() : null;
+        final BulkJobManager.Submission submission = VillagerOptimizer.jobs().submit(action, scope, world, box, keys, startedBy);
+
+        switch (submission.outcome) {
+            case STARTED:
+                KyoriUtil.sendMessage(sender, Component.text("Started job #" + submission.job.id + " covering " +
+                        submission.job.chunkCount() + " chunk(s).").color(NamedTextColor.GREEN));
+                break;
+            case TRIMMED:
+                KyoriUtil.sendMessage(sender, Component.text("Started job #" + submission.job.id + " covering " +
+                        submission.job.chunkCount() + " chunk(s). The remaining chunks are already covered by other jobs.")
+                        .color(NamedTextColor.GREEN));
+                break;
+            case DUPLICATE:
+                KyoriUtil.sendMessage(sender, Component.text("Job #" + submission.job.id +
+                        " already covers this area. No new job was started.").color(NamedTextColor.YELLOW));
+                break;
+            case CONFLICT:
+                KyoriUtil.sendMessage(sender, Component.text("Job #" + submission.job.id +
+                        " does the opposite in an overlapping area. Cancel it first.").color(NamedTextColor.RED));
+                break;
+        }
+    }
+
+    private void listJobs(@NotNull CommandSender sender) {
+        if (VillagerOptimizer.jobs().getJobs().isEmpty()) {
+            KyoriUtil.sendMessage(sender, Component.text("There are no running jobs.").color(NamedTextColor.GRAY));
+            return;
+        }
+
+        KyoriUtil.sendMessage(sender, Component.text("-----------------------------------------------------").color(NamedTextColor.GRAY));
+        for (BulkJob job : VillagerOptimizer.jobs().getJobs()) {
+            final World world = VillagerOptimizer.getInstance().getServer().getWorld(job.worldUID);
+            KyoriUtil.sendMessage(sender, Component.text("#" + job.id + " ").color(Util.PL_COLOR)
+                    .append(Component.text(job.action.name().toLowerCase(Locale.ROOT) + " " + job.scope.name().toLowerCase(Locale.ROOT) +
+                            " in " + (world == null ? job.worldUID.toString() : world.getName())).color(NamedTextColor.WHITE))
+                    .append(Component.text(" - ").color(NamedTextColor.DARK_GRAY))
+                    .append(Component.text(String.format(Locale.ROOT, "%.1f%% (%d/%d chunks), %d villager(s)",
+                            job.progress() * 100, job.cursor(), job.chunkCount(), job.affected())).color(NamedTextColor.GRAY))
+                    .append(job.isPaused() ? Component.text(" [paused]").color(NamedTextColor.YELLOW) : Component.empty()));
+        }
+        KyoriUtil.sendMessage(sender, Component.text("-----------------------------------------------------").color(NamedTextColor.GRAY));
+    }
+
+    private void manageJob(@NotNull CommandSender sender, @NotNull String[] args) {
+        if (args.length != 3) {
+            usage(sender);
+            return;
+        }
+
+        final BulkJob job;
+        try {
+            job = VillagerOptimizer.jobs().getJob(Integer.parseInt(args[2]));
+        } catch (NumberFormatException e) {
+            usage(sender);
+            return;
+        }
+
+        if (job == null) {
+            KyoriUtil.sendMessage(sender, Component.text("There is no job #" + args[2] + ".").color(NamedTextColor.RED));
+            return;
+        }
+
+        switch (args[1].toLowerCase(Locale.ROOT)) {
+            case "pause":
+                VillagerOptimizer.jobs().pause(job);
+                KyoriUtil.sendMessage(sender, Component.text("Paused job #" + job.id + ".").color(NamedTextColor.YELLOW));
+                break;
+            case "resume":
+                VillagerOptimizer.jobs().resume(job);
+                KyoriUtil.sendMessage(sender, Component.text("Resumed job #" + job.id + ".").color(NamedTextColor.GREEN));
+                break;
+            case "cancel":
+                VillagerOptimizer.jobs().cancel(job);
+                KyoriUtil.sendMessage(sender, Component.text("Cancelled job #" + job.id + ".").color(NamedTextColor.RED));
+                break;
+        }
+    }
+
+    private void usage(@NotNull CommandSender sender) {
+        KyoriUtil.sendMessage(sender, Component.text("/villageroptimizer job <optimize|unoptimize> cuboid <world> <x1> <y1> <z1> <x2> <y2> <z2>").color(Util.PL_COLOR));
+        KyoriUtil.sendMessage(sender, Component.text("/villageroptimizer job <optimize|unoptimize> chunks <world> <x,z> [x,z]...").color(Util.PL_COLOR));
+        KyoriUtil.sendMessage(sender, Component.text("/villageroptimizer job <optimize|unoptimize> world <world>").color(Util.PL_COLOR));
+        KyoriUtil.sendMessage(sender, Component.text("/villageroptimizer job <list|pause|resume|cancel> [id]").color(Util.PL_COLOR));
+    }
+}
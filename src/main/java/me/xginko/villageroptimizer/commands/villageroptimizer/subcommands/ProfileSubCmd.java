@@ -0,0 +1,81 @@
+package me.xginko.villageroptimizer.commands.villageroptimizer.subcommands;
+
+import me.xginko.villageroptimizer.VillagerOptimizer;
+import me.xginko.villageroptimizer.commands.SubCommand;
+import me.xginko.villageroptimizer.enums.Permissions;
+import me.xginko.villageroptimizer.modules.VillagerOptimizerModule;
+import me.xginko.villageroptimizer.utils.KyoriUtil;
+import me.xginko.villageroptimizer.utils.LatencyProfile;
+import me.xginko.villageroptimizer.utils.Util;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+public class ProfileSubCmd extends SubCommand {
+
+    public ProfileSubCmd() {
+        super(
+                "profile",
+                Component.text("/villageroptimizer profile [reset]").color(Util.PL_COLOR),
+                Component.text("Show which features cost the most per tick.").color(NamedTextColor.GRAY)
+        );
+    }
+
+    @Override
+    public @Nullable List<String> onTabComplete(
+            @NotNull CommandSender sender, @NotNull Command command, @NotNull String commandLabel, @NotNull String[] args
+    ) {
+        return args.length == 2 && sender.hasPermission(Permissions.Commands.PROFILE.get())
+                ? Collections.singletonList("reset") : Collections.emptyList();
+    }
+
+    @Override
+    public boolean onCommand(
+            @NotNull CommandSender sender, @NotNull Command command, @NotNull String commandLabel, @NotNull String[] args
+    ) {
+        if (!sender.hasPermission(Permissions.Commands.PROFILE.get())) {
+            KyoriUtil.sendMessage(sender, VillagerOptimizer.getLang(sender).no_permission);
+            return true;
+        }
+
+        if (!VillagerOptimizer.config().profile_modules) {
+            KyoriUtil.sendMessage(sender, Component.text("Module profiling is disabled. Enable it in the config using " +
+                    "general.profile-modules and reload the plugin.").color(NamedTextColor.RED));
+            return true;
+        }
+
+        if (args.length >= 2 && args[1].equalsIgnoreCase("reset")) {
+            VillagerOptimizerModule.ENABLED_MODULES.forEach(module -> module.profile.reset());
+            KyoriUtil.sendMessage(sender, Component.text("Reset all module profiles.").color(NamedTextColor.GREEN));
+            return true;
+        }
+
+        final List<VillagerOptimizerModule> modules = new ArrayList<>(VillagerOptimizerModule.ENABLED_MODULES);
+        modules.sort(Comparator.comparingLong((VillagerOptimizerModule module) -> module.profile.nanosPerTick()).reversed());
+
+        KyoriUtil.sendMessage(sender, Component.text("-----------------------------------------------------").color(NamedTextColor.GRAY));
+        KyoriUtil.sendMessage(sender, Component.text("Module cost per tick (p50 / p99 / max per call)").color(Util.PL_COLOR));
+        KyoriUtil.sendMessage(sender, Component.text("-----------------------------------------------------").color(NamedTextColor.GRAY));
+        for (VillagerOptimizerModule module : modules) {
+            final LatencyProfile profile = module.profile;
+            if (profile.calls() == 0) continue;
+            KyoriUtil.sendMessage(sender, Component.text(module.getClass().getSimpleName()).color(NamedTextColor.WHITE)
+                    .append(Component.text(" - ").color(NamedTextColor.DARK_GRAY))
+                    .append(Component.text(LatencyProfile.format(profile.nanosPerTick()) + "/tick").color(Util.PL_COLOR))
+                    .append(Component.text(" | " + profile.calls() + " calls | " +
+                            LatencyProfile.format(profile.percentileNanos(0.5)) + " / " +
+                            LatencyProfile.format(profile.percentileNanos(0.99)) + " / " +
+                            LatencyProfile.format(profile.maxNanos())).color(NamedTextColor.GRAY)));
+        }
+        KyoriUtil.sendMessage(sender, Component.text("-----------------------------------------------------").color(NamedTextColor.GRAY));
+        return true;
+    }
+}
@@ -41,10 +41,8 @@ public class ReloadSubCmd extends SubCommand {
         }
 
         KyoriUtil.sendMessage(sender, Component.text("Reloading VillagerOptimizer...").color(NamedTextColor.WHITE));
-        VillagerOptimizer.scheduling().asyncScheduler().run(reload -> {
-            VillagerOptimizer.getInstance().reloadPlugin();
-            KyoriUtil.sendMessage(sender, Component.text("Reload complete.").color(NamedTextColor.GREEN));
-        });
+        VillagerOptimizer.scheduling().asyncScheduler().run(reload -> VillagerOptimizer.getInstance().reloadPlugin()
+                .thenRun(() -> KyoriUtil.sendMessage(sender, Component.text("Reload complete.").color(NamedTextColor.GREEN))));
         return true;
     }
 }
\ No newline at end of file
@@ -2,19 +2,28 @@ package me.xginko.villageroptimizer.config;
 
 import io.github.thatsmusic99.configurationmaster.api.ConfigFile;
 import me.xginko.villageroptimizer.VillagerOptimizer;
+import me.xginko.villageroptimizer.enums.OptimizationTier;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
 import java.time.Duration;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 
 public class Config {
 
     private final @NotNull ConfigFile config;
     public final @NotNull Locale default_lang;
     public final @NotNull Duration cache_keep_time;
-    public final boolean auto_lang, support_other_plugins;
+    public final @NotNull OptimizationTier optimization_tier;
+    public final long job_budget_per_tick_nanos;
+    public final int max_cached_languages, job_max_cuboid_chunks;
+    public final boolean auto_lang, support_other_plugins, profile_modules, invulnerable_while_optimized;
 
     public Config() throws Exception {
         // Load config.yml with ConfigMaster
@@ -29,6 +38,11 @@ public class Config {
                         .replace("_", "-"));
         this.auto_lang = getBoolean("general.auto-language", true,
                 "If set to true, will display messages based on client language");
+        this.max_cached_languages = Math.max(1, getInt("general.max-loaded-languages", 8,
+                "Languages other than the default one are loaded the first time a player using them needs a message.\n" +
+                "This is the most that are kept loaded at once, the least used ones are unloaded first.\n" +
+                "The languages of players that are online always stay loaded, so this only limits the memory of\n" +
+                "languages nobody online is using."));
         this.cache_keep_time = Duration.ofSeconds(Math.max(1, getInt("general.cache-keep-time-seconds", 30,
                 "The amount of time in seconds a villager will be kept in the plugin's cache.")));
         this.support_other_plugins = getBoolean("general.support-avl-villagers", false,
@@ -36,6 +50,36 @@ public class Config {
                         "(https://www.spigotmc.org/resources/antivillagerlag.102949/).\n" +
                         "Tries to read pre-existing info like optimization state so players\n" +
                         "don't need to reoptimize their villagers.");
+        this.profile_modules = getBoolean("general.profile-modules", false,
+                "Time every event handler and task of each module, so /villageroptimizer profile can show\n" +
+                "which feature costs the most. Only turn this on while looking for a problem: event handlers are\n" +
+                "then called through reflection instead of the server's generated executors, which makes every\n" +
+                "event the plugin listens to noticeably more expensive.");
+        this.job_budget_per_tick_nanos = TimeUnit.MICROSECONDS.toNanos(Math.max(1, getInt("general.job-budget-per-tick-micros", 2000,
+                "The maximum time in microseconds each job started with /villageroptimizer job may spend per tick.")));
+        this.job_max_cuboid_chunks = Math.max(1, getInt("general.job-max-cuboid-chunks", 65536,
+                "The most chunks a cuboid job may cover. Larger cuboids are refused, use a world job for those."));
+        final String configuredTier = getString("general.optimization-tier", OptimizationTier.UNAWARE.name(),
+                "What optimizing does to a villager. Each option includes the ones before it:\n" +
+                "UNAWARE - The villager stops thinking, but can still be pushed, falls and makes sounds.\n" +
+                "SILENT_NO_GRAVITY - The villager is also silent and doesn't fall anymore.\n" +
+                "NO_AI - The villager's AI is removed entirely. Cheapest, but it won't even turn its head.\n" +
+                "Villagers keep the tier they were optimized with until they are optimized again.");
+        OptimizationTier optimizationTier;
+        try {
+            optimizationTier = OptimizationTier.valueOf(configuredTier.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            VillagerOptimizer.logger().warn("Optimization tier '{}' not recognized, using {}.", configuredTier, OptimizationTier.UNAWARE);
+            optimizationTier = OptimizationTier.UNAWARE;
+        }
+        this.optimization_tier = optimizationTier;
+        final boolean useInvulnerableFlag = getBoolean("gameplay.prevent-damage-to-optimized.use-invulnerable-flag", false,
+                "Make optimized villagers invulnerable instead of cancelling every damage and knockback event.\n" +
+                "The server then skips damaging them and hostile mobs won't pick them as a target, so no events\n" +
+                "are fired for them at all. Invulnerable villagers can only be hurt by the void and /kill, so\n" +
+                "damage-causes-to-cancel only applies to villagers that haven't been made invulnerable yet.\n" +
+                "Villagers made invulnerable by other plugins are left untouched.");
+        this.invulnerable_while_optimized = getBoolean("gameplay.prevent-damage-to-optimized.enable", true) && useInvulnerableFlag;
     }
 
     public void saveConfig() {
@@ -57,6 +101,10 @@ public class Config {
                 "villageroptimizer.cmd.unoptimize");
         this.config.addDefault("optimization-methods.nametag-optimization.enable", true);
         this.createTitledSection("Villager Chunk Limit", "villager-chunk-limit");
+        this.createTitledSection("Dynamic Awareness", "dynamic-awareness");
+        this.createTitledSection("Distance Culling", "distance-culling");
+        this.createTitledSection("Tick Time Governor", "tick-time-governor");
+        this.createTitledSection("Villager Hibernation", "villager-hibernation");
         this.createTitledSection("Gameplay", "gameplay");
         this.config.addDefault("gameplay.prevent-trading-with-unoptimized.enable", false);
         this.config.addDefault("gameplay.restock-optimized-trades", null);
@@ -67,6 +115,7 @@ public class Config {
         this.config.addDefault("gameplay.rename-optimized-villagers.enable", false);
         this.config.addDefault("gameplay.prevent-entities-from-targeting-optimized.enable", true);
         this.config.addDefault("gameplay.prevent-damage-to-optimized.enable", true);
+        this.createTitledSection("Event Trace", "event-trace");
     }
 
     public void createTitledSection(@NotNull String title, @NotNull String path) {
@@ -74,6 +123,34 @@ public class Config {
         this.config.addDefault(path, null);
     }
 
+    /**
+     * @return Whether any value at or below the given path is different in the other config.
+     */
+    public boolean differs(@NotNull Config other, @NotNull String path) {
+        return !snapshot(path).equals(other.snapshot(path));
+    }
+
+    /**
+     * @return All values at or below the given path, keyed by their full path. Sections themselves are left out,
+     * since only the values inside them can be compared.
+     */
+    public @NotNull Map<String, Object> snapshot(@NotNull String path) {
+        final List<String> keys = this.config.getKeys(true);
+        final Set<String> sections = new HashSet<>();
+        for (String key : keys) {
+            for (int dot = key.lastIndexOf('.'); dot > 0; dot = key.lastIndexOf('.', dot - 1)) {
+                sections.add(key.substring(0, dot));
+            }
+        }
+
+        final Map<String, Object> values = new TreeMap<>();
+        for (String key : keys) {
+            if (sections.contains(key)) continue;
+            if (key.equals(path) || key.startsWith(path + ".")) values.put(key, this.config.get(key));
+        }
+        return values;
+    }
+
     public @NotNull ConfigFile master() {
         return this.config;
     }
@@ -16,15 +16,18 @@ public class LanguageCache {
 
     private final @NotNull ConfigFile lang;
 
+    public final @NotNull String locale;
     public final @NotNull Component no_permission;
-    public final @NotNull List<Component> nametag_optimize_success, nametag_on_optimize_cooldown, nametag_unoptimize_success,
+    public final @NotNull List<Component> nametag_optimize_success, nametag_unoptimize_success,
+            command_specify_radius, command_radius_invalid, optimize_for_trading;
+    public final @NotNull MessageTemplate nametag_on_optimize_cooldown,
             block_optimize_success, block_on_optimize_cooldown, block_unoptimize_success,
             workstation_optimize_success, workstation_on_optimize_cooldown, workstation_unoptimize_success,
             command_optimize_success, command_radius_limit_exceed, command_optimize_fail, command_unoptimize_success,
-            command_specify_radius, command_radius_invalid, command_no_villagers_nearby,
-            trades_restocked, optimize_for_trading, villager_leveling_up;
+            command_no_villagers_nearby, trades_restocked, villager_leveling_up;
 
     public LanguageCache(String locale) throws Exception {
+        this.locale = locale;
         VillagerOptimizer plugin = VillagerOptimizer.getInstance();
         File langYML = new File(plugin.getDataFolder() + File.separator + "lang", locale + ".yml");
         // Check if the lang folder has already been created
@@ -40,48 +43,48 @@ public class LanguageCache {
         // General
         this.no_permission = getTranslation("messages.no-permission",
                 "<red>You don't have permission to use this command.");
-        this.trades_restocked = getListTranslation("messages.trades-restocked",
-                "<green>All trades have been restocked! Next restock in %time%");
+        this.trades_restocked = getTemplate("messages.trades-restocked",
+                "<green>All trades have been restocked! Next restock in %time%", "%time%");
         this.optimize_for_trading = getListTranslation("messages.optimize-to-trade",
                 "<red>You need to optimize this villager before you can trade with it.");
-        this.villager_leveling_up = getListTranslation("messages.villager-leveling-up",
-                "<yellow>Villager is currently leveling up! You can use the villager again in %time%.");
+        this.villager_leveling_up = getTemplate("messages.villager-leveling-up",
+                "<yellow>Villager is currently leveling up! You can use the villager again in %time%.", "%time%");
         // Nametag
         this.nametag_optimize_success = getListTranslation("messages.nametag.optimize-success",
                 "<green>Successfully optimized villager by using a nametag.");
-        this.nametag_on_optimize_cooldown = getListTranslation("messages.nametag.optimize-on-cooldown",
-                "<gray>You need to wait %time% until you can optimize this villager again.");
+        this.nametag_on_optimize_cooldown = getTemplate("messages.nametag.optimize-on-cooldown",
+                "<gray>You need to wait %time% until you can optimize this villager again.", "%time%");
         this.nametag_unoptimize_success = getListTranslation("messages.nametag.unoptimize-success",
                 "<green>Successfully unoptimized villager by using a nametag.");
         // Block
-        this.block_optimize_success = getListTranslation("messages.block.optimize-success",
-                "<green>%villagertype% villager successfully optimized using block %blocktype%.");
-        this.block_on_optimize_cooldown = getListTranslation("messages.block.optimize-on-cooldown",
-                "<gray>You need to wait %time% until you can optimize this villager again.");
-        this.block_unoptimize_success = getListTranslation("messages.block.unoptimize-success",
-                "<green>Successfully unoptimized %villagertype% villager by removing %blocktype%.");
+        this.block_optimize_success = getTemplate("messages.block.optimize-success",
+                "<green>%vil_profession% villager successfully optimized using block %blocktype%.", "%vil_profession%", "%blocktype%");
+        this.block_on_optimize_cooldown = getTemplate("messages.block.optimize-on-cooldown",
+                "<gray>You need to wait %time% until you can optimize this villager again.", "%time%");
+        this.block_unoptimize_success = getTemplate("messages.block.unoptimize-success",
+                "<green>Successfully unoptimized %vil_profession% villager by removing %blocktype%.", "%vil_profession%", "%blocktype%");
         // Workstation
-        this.workstation_optimize_success = getListTranslation("messages.workstation.optimize-success",
-                "<green>%villagertype% villager successfully optimized using workstation %blocktype%.");
-        this.workstation_on_optimize_cooldown = getListTranslation("messages.workstation.optimize-on-cooldown",
-                "<gray>You need to wait %time% until you can optimize this villager again.");
-        this.workstation_unoptimize_success = getListTranslation("messages.workstation.unoptimize-success",
-                "<green>Successfully unoptimized %villagertype% villager by removing workstation block %blocktype%.");
+        this.workstation_optimize_success = getTemplate("messages.workstation.optimize-success",
+                "<green>%vil_profession% villager successfully optimized using workstation %blocktype%.", "%vil_profession%", "%blocktype%");
+        this.workstation_on_optimize_cooldown = getTemplate("messages.workstation.optimize-on-cooldown",
+                "<gray>You need to wait %time% until you can optimize this villager again.", "%time%");
+        this.workstation_unoptimize_success = getTemplate("messages.workstation.unoptimize-success",
+                "<green>Successfully unoptimized %vil_profession% villager by removing workstation block %blocktype%.", "%vil_profession%", "%blocktype%");
         // Command
-        this.command_optimize_success = getListTranslation("messages.command.optimize-success",
-                "<green>Successfully optimized %amount% villager(s) in a radius of %radius% blocks.");
-        this.command_radius_limit_exceed = getListTranslation("messages.command.radius-limit-exceed",
-                "<red>The radius you entered exceeds the limit of %distance% blocks.");
-        this.command_optimize_fail = getListTranslation("messages.command.optimize-fail",
-                "<gray>%amount% villagers couldn't be optimized because they have recently been optimized.");
-        this.command_unoptimize_success = getListTranslation("messages.command.unoptimize-success",
-                "<green>Successfully unoptimized %amount% villager(s) in a radius of %radius% blocks.");
+        this.command_optimize_success = getTemplate("messages.command.optimize-success",
+                "<green>Successfully optimized %amount% villager(s) in a radius of %radius% blocks.", "%amount%", "%radius%");
+        this.command_radius_limit_exceed = getTemplate("messages.command.radius-limit-exceed",
+                "<red>The radius you entered exceeds the limit of %distance% blocks.", "%distance%");
+        this.command_optimize_fail = getTemplate("messages.command.optimize-fail",
+                "<gray>%amount% villagers couldn't be optimized because they have recently been optimized.", "%amount%");
+        this.command_unoptimize_success = getTemplate("messages.command.unoptimize-success",
+                "<green>Successfully unoptimized %amount% villager(s) in a radius of %radius% blocks.", "%amount%", "%radius%");
         this.command_specify_radius = getListTranslation("messages.command.specify-radius",
                 "<red>Please specify a radius.");
         this.command_radius_invalid = getListTranslation("messages.command.radius-invalid",
                 "<red>The radius you entered is not a valid number. Try again.");
-        this.command_no_villagers_nearby = getListTranslation("messages.command.no-villagers-nearby",
-                "<gray>Couldn't find any employed villagers within a radius of %radius%.");
+        this.command_no_villagers_nearby = getTemplate("messages.command.no-villagers-nearby",
+                "<gray>Couldn't find any employed villagers within a radius of %radius%.", "%radius%");
 
         try {
             this.lang.save();
@@ -95,6 +98,13 @@ public class LanguageCache {
         return MiniMessage.miniMessage().deserialize(KyoriUtil.translateChatColor(this.lang.getString(path, defaultTranslation)));
     }
 
+    /**
+     * @return The translation, compiled into a template with slots for the given placeholders.
+     */
+    public @NotNull MessageTemplate getTemplate(@NotNull String path, @NotNull String defaultTranslation, @NotNull String... placeholders) {
+        return MessageTemplate.compile(getListTranslation(path, defaultTranslation), placeholders);
+    }
+
     public @NotNull List<Component> getListTranslation(@NotNull String path, @NotNull String... defaultTranslation) {
         this.lang.addDefault(path, Arrays.asList(defaultTranslation));
         return this.lang.getStringList(path).stream().map(KyoriUtil::translateChatColor).map(MiniMessage.miniMessage()::deserialize).collect(Collectors.toList());
@@ -0,0 +1,162 @@
+package me.xginko.villageroptimizer.config;
+
+import me.xginko.villageroptimizer.utils.KyoriUtil;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import org.bukkit.command.CommandSender;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A translated message whose placeholders are located once, when the translation is loaded.
+ * <p>
+ * Filling in the placeholders only rebuilds the text components that contain one, and their parents.
+ * All other components of the message are shared between every message sent, so sending a message
+ * needs neither pattern matching nor a walk over the whole component tree.
+ */
+public final class MessageTemplate {
+
+    private final @NotNull List<String> placeholders;
+    private final Part @NotNull [] lines;
+
+    private MessageTemplate(@NotNull List<String> placeholders, Part @NotNull [] lines) {
+        this.placeholders = placeholders;
+        this.lines = lines;
+    }
+
+    /**
+     * @param lines The lines of the message, already deserialized.
+     * @param placeholders The placeholders in the message, like {@code %time%}. Values are later passed in this order.
+     * @return The compiled message.
+     */
+    public static @NotNull MessageTemplate compile(@NotNull List<Component> lines, @NotNull String... placeholders) {
+        final Part[] parts = new Part[lines.size()];
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = compile(lines.get(i), placeholders);
+        }
+        return new MessageTemplate(Collections.unmodifiableList(Arrays.asList(placeholders)), parts);
+    }
+
+    /**
+     * @param values The value for each placeholder, in the order the placeholders were given when compiling.
+     * @return The lines of the message with all placeholders filled in.
+     */
+    public @NotNull List<Component> fill(@NotNull String... values) {
+        if (values.length != placeholders.size()) {
+            throw new IllegalArgumentException("Expected values for " + placeholders + " but got " + values.length + ".");
+        }
+        final List<Component> filled = new ArrayList<>(lines.length);
+        for (Part line : lines) {
+            filled.add(line.build(values));
+        }
+        return filled;
+    }
+
+    /**
+     * Sends every line of the message with all placeholders filled in.
+     *
+     * @see #fill(String...)
+     */
+    public void send(@NotNull CommandSender sender, @NotNull String... values) {
+        for (Component line : fill(values)) {
+            KyoriUtil.sendMessage(sender, line);
+        }
+    }
+
+    public @NotNull List<String> placeholders() {
+        return placeholders;
+    }
+
+    private static @NotNull Part compile(@NotNull Component component, @NotNull String[] placeholders) {
+        final List<Component> children = component.children();
+        final Part[] childParts = new Part[children.size()];
+        boolean hasSlots = false;
+        for (int i = 0; i < childParts.length; i++) {
+            childParts[i] = compile(children.get(i), placeholders);
+            hasSlots |= !(childParts[i] instanceof Constant);
+        }
+
+        final Object[] pieces = component instanceof TextComponent ? split(((TextComponent) component).content(), placeholders) : null;
+        if (pieces == null && !hasSlots) return new Constant(component);
+        return new Dynamic(component.children(Collections.emptyList()), pieces, childParts);
+    }
+
+    /**
+     * @return The content split into literal strings and the indices of the placeholders between them,
+     * or null if the content contains none of the placeholders.
+     */
+    private static Object[] split(@NotNull String content, @NotNull String[] placeholders) {
+        final List<Object> pieces = new ArrayList<>();
+        int from = 0;
+        while (true) {
+            int nearest = -1, slot = -1;
+            for (int i = 0; i < placeholders.length; i++) {
+                final int index = content.indexOf(placeholders[i], from);
+                if (index >= 0 && (nearest < 0 || index < nearest)) {
+                    nearest = index;
+                    slot = i;
+                }
+            }
+            if (nearest < 0) break;
+            if (nearest > from) pieces.add(content.substring(from, nearest));
+            pieces.add(slot);
+            from = nearest + placeholders[slot].length();
+        }
+        if (pieces.isEmpty()) return null;
+        if (from < content.length()) pieces.add(content.substring(from));
+        return pieces.toArray();
+    }
+
+    private interface Part {
+        @NotNull Component build(@NotNull String[] values);
+    }
+
+    private static final class Constant implements Part {
+
+        private final @NotNull Component component;
+
+        private Constant(@NotNull Component component) {
+            this.component = component;
+        }
+
+        @Override
+        public @NotNull Component build(@NotNull String[] values) {
+            return component;
+        }
+    }
+
+    private static final class Dynamic implements Part {
+
+        private final @NotNull Component withoutChildren;
+        private final Object[] pieces;
+        private final Part @NotNull [] children;
+
+        private Dynamic(@NotNull Component withoutChildren, Object[] pieces, Part @NotNull [] children) {
+            this.withoutChildren = withoutChildren;
+            this.pieces = pieces;
+            this.children = children;
+        }
+
+        @Override
+        public @NotNull Component build(@NotNull String[] values) {
+            Component built = withoutChildren;
+            if (pieces != null) {
+                final StringBuilder content = new StringBuilder();
+                for (Object piece : pieces) {
+                    content.append(piece instanceof Integer ? values[(Integer) piece] : (String) piece);
+                }
+                built = ((TextComponent) withoutChildren).content(content.toString());
+            }
+            if (children.length == 0) return built;
+            final List<Component> builtChildren = new ArrayList<>(children.length);
+            for (Part child : children) {
+                builtChildren.add(child.build(values));
+            }
+            return built.children(builtChildren);
+        }
+    }
+}
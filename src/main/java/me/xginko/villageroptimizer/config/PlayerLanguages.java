@@ -0,0 +1,88 @@
+package me.xginko.villageroptimizer.config;
+
+import me.xginko.villageroptimizer.VillagerOptimizer;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLocaleChangeEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves the language of each online player once, when they join or change their client language,
+ * so sending them a message is a single lookup instead of parsing their locale every time.
+ * <p>
+ * A bound language stays in memory while a player using it is online, even after it was unloaded from the
+ * language cache, so the cache only limits the languages of players that are no longer online.
+ */
+public final class PlayerLanguages implements Listener {
+
+    private final @NotNull Map<UUID, LanguageCache> languages = new ConcurrentHashMap<>();
+
+    /**
+     * @return The language bound to the player, or null if none was bound yet.
+     */
+    public @Nullable LanguageCache get(@NotNull Player player) {
+        return languages.get(player.getUniqueId());
+    }
+
+    /**
+     * Binds the language for the given locale to the player. If the translation still needs to be loaded,
+     * the default language is bound until it is ready.
+     */
+    public void bind(@NotNull Player player, @NotNull Locale locale) {
+        final UUID uuid = player.getUniqueId();
+        final CompletableFuture<LanguageCache> translation = VillagerOptimizer.loadLang(locale.toString());
+        if (translation.isDone() && !translation.isCompletedExceptionally()) {
+            languages.put(uuid, translation.join());
+            return;
+        }
+
+        languages.put(uuid, VillagerOptimizer.getLang(VillagerOptimizer.config().default_lang));
+        translation.thenAccept(loaded -> {
+            // The player may have left or switched languages again in the meantime
+            if (player.isOnline() && VillagerOptimizer.loadLang(player.locale().toString()) == translation) {
+                languages.replace(uuid, loaded);
+            }
+        });
+    }
+
+    /**
+     * Binds the languages of all online players again, for example after translations were reloaded.
+     */
+    public void bindAll() {
+        languages.clear();
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            bind(player, player.locale());
+        }
+    }
+
+    public void clear() {
+        languages.clear();
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    private void onJoin(PlayerJoinEvent event) {
+        bind(event.getPlayer(), event.getPlayer().locale());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void onLocaleChange(PlayerLocaleChangeEvent event) {
+        bind(event.getPlayer(), event.locale());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void onQuit(PlayerQuitEvent event) {
+        languages.remove(event.getPlayer().getUniqueId());
+    }
+}
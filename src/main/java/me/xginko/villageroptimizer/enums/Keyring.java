@@ -52,7 +52,14 @@ public final class Keyring {
         OPTIMIZATION_TYPE("optimization-type"),
         LAST_OPTIMIZE_SYSTIME_MILLIS("last-optimize"),
         LAST_LEVELUP_SYSTIME_MILLIS("last-levelup"),
-        LAST_RESTOCK_SYSTIME_MILLIS("last-restock");
+        LAST_RESTOCK_SYSTIME_MILLIS("last-restock"),
+        PAUSED_WHILE_IDLE("paused-while-idle"),
+        HIBERNATED_VILLAGERS("hibernated-villagers"),
+        VIRTUAL_VILLAGER("virtual-villager"),
+        INVULNERABLE_WHILE_OPTIMIZED("invulnerable-while-optimized"),
+        OPTIMIZATION_TIER("optimization-tier"),
+        LAST_TRADE_SYSTIME_MILLIS("last-trade"),
+        TIER_CHANGES("tier-changes");
 
         private final @NotNull NamespacedKey key;
 
@@ -0,0 +1,76 @@
+package me.xginko.villageroptimizer.enums;
+
+import org.bukkit.entity.Villager;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * How much of an optimized villager's entity state is turned off. Each tier does everything the tiers before it do.
+ * Unlike {@link OptimizationType}, which records how a villager was optimized, this decides what optimizing does to it.
+ * <p>
+ * Only the state a tier actually changed is restored on revert, so values set by other plugins are left alone.
+ */
+public enum OptimizationTier {
+
+    /**
+     * The villager stops thinking, but can still be pushed, falls and makes sounds.
+     */
+    UNAWARE,
+    /**
+     * The villager is also silent and not affected by gravity, so it no longer plays ambient sounds or falls.
+     */
+    SILENT_NO_GRAVITY,
+    /**
+     * The villager's AI is removed entirely, so it skips its brain, goals and movement every tick.
+     */
+    NO_AI;
+
+    private static final byte AWARE = 1, SILENT = 1 << 1, GRAVITY = 1 << 2, AI = 1 << 3;
+
+    public void apply(@NotNull Villager villager) {
+        final PersistentDataContainer dataContainer = villager.getPersistentDataContainer();
+        byte changed = 0;
+        if (villager.isAware()) {
+            villager.setAware(false);
+            changed |= AWARE;
+        } else if (dataContainer.has(Keyring.VillagerOptimizer.PAUSED_WHILE_IDLE.getKey(), PersistentDataType.BYTE)) {
+            // Paused while idle, so the optimization takes the pause over and has to end it once it is reverted
+            dataContainer.remove(Keyring.VillagerOptimizer.PAUSED_WHILE_IDLE.getKey());
+            changed |= AWARE;
+        }
+        if (this != UNAWARE) {
+            if (!villager.isSilent()) {
+                villager.setSilent(true);
+                changed |= SILENT;
+            }
+            if (villager.hasGravity()) {
+                villager.setGravity(false);
+                changed |= GRAVITY;
+            }
+        }
+        if (this == NO_AI && villager.hasAI()) {
+            villager.setAI(false);
+            changed |= AI;
+        }
+
+        if (changed == 0) return;
+        // Applying again, e.g. after leveling up, must not forget what was changed the first time
+        final Byte alreadyChanged = dataContainer.get(Keyring.VillagerOptimizer.TIER_CHANGES.getKey(), PersistentDataType.BYTE);
+        if (alreadyChanged != null) changed |= alreadyChanged;
+        dataContainer.set(Keyring.VillagerOptimizer.TIER_CHANGES.getKey(), PersistentDataType.BYTE, changed);
+    }
+
+    public void revert(@NotNull Villager villager) {
+        final PersistentDataContainer dataContainer = villager.getPersistentDataContainer();
+        final Byte stored = dataContainer.get(Keyring.VillagerOptimizer.TIER_CHANGES.getKey(), PersistentDataType.BYTE);
+        // Villagers optimized before changes were recorded are reverted the way they always were
+        final int changed = stored != null ? stored : (this == UNAWARE ? AWARE | AI : AWARE | SILENT | GRAVITY | AI);
+
+        if ((changed & AWARE) != 0) villager.setAware(true);
+        if ((changed & SILENT) != 0) villager.setSilent(false);
+        if ((changed & GRAVITY) != 0) villager.setGravity(true);
+        if ((changed & AI) != 0) villager.setAI(true);
+        if (stored != null) dataContainer.remove(Keyring.VillagerOptimizer.TIER_CHANGES.getKey());
+    }
+}
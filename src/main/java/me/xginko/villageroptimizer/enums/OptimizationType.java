@@ -5,5 +5,7 @@ public enum OptimizationType {
     NAMETAG,
     WORKSTATION,
     BLOCK,
+    AUTOMATIC,
+    GOVERNOR,
     NONE
 }
@@ -18,7 +18,9 @@ public final class Permissions {
         WORKSTATION_COOLDOWN(new Permission("villageroptimizer.bypass.workstationcooldown",
                 "Permission to bypass Workstation optimization cooldown", PermissionDefault.FALSE)),
         COMMAND_COOLDOWN(new Permission("villageroptimizer.bypass.commandcooldown",
-                "Permission to bypass command optimization cooldown", PermissionDefault.FALSE));
+                "Permission to bypass command optimization cooldown", PermissionDefault.FALSE)),
+        AUTOMATIC_OPTIMIZATION(new Permission("villageroptimizer.bypass.automaticoptimization",
+                "Permission to opt out of automatic optimization of nearby villagers", PermissionDefault.FALSE));
 
         private final Permission permission;
 
@@ -38,6 +40,10 @@ public final class Permissions {
                 "Permission to reload the plugin config", PermissionDefault.OP)),
         DISABLE(new Permission("villageroptimizer.cmd.disable",
                 "Permission to disable the plugin", PermissionDefault.OP)),
+        JOB(new Permission("villageroptimizer.cmd.job",
+                "Permission to start and manage bulk optimization jobs", PermissionDefault.OP)),
+        PROFILE(new Permission("villageroptimizer.cmd.profile",
+                "Permission to view how much time each module takes", PermissionDefault.OP)),
         OPTIMIZE_RADIUS(new Permission("villageroptimizer.cmd.optimize",
                 "Permission to optimize villagers in a radius", PermissionDefault.TRUE)),
         UNOPTIMIZE_RADIUS(new Permission("villageroptimizer.cmd.unoptimize",
@@ -60,7 +66,9 @@ public final class Permissions {
         BLOCK(new Permission("villageroptimizer.optimize.block",
                 "Permission to optimize / unoptimize using Blocks", PermissionDefault.TRUE)),
         WORKSTATION(new Permission("villageroptimizer.optimize.workstation",
-                "Permission to optimize / unoptimize using Workstations", PermissionDefault.TRUE));
+                "Permission to optimize / unoptimize using Workstations", PermissionDefault.TRUE)),
+        VIRTUAL(new Permission("villageroptimizer.optimize.virtual",
+                "Permission to turn virtual villagers back into real ones", PermissionDefault.TRUE));
 
         private final Permission permission;
 
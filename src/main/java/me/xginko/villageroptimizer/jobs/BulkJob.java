@@ -0,0 +1,164 @@
+package me.xginko.villageroptimizer.jobs;
+
+import me.xginko.villageroptimizer.utils.ChunkBatch;
+import org.bukkit.util.BoundingBox;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bulk optimization job over a cuboid, a list of chunks or a whole world.
+ * Progress is tracked in chunks, so a job can be paused, checkpointed and resumed at any point.
+ * Cuboid jobs only keep their box and work out the chunk at each position when they get there.
+ */
+public final class BulkJob {
+
+    public enum Action {
+        OPTIMIZE, UNOPTIMIZE
+    }
+
+    public enum Scope {
+        CUBOID, CHUNKS, WORLD
+    }
+
+    private static final int CHUNKS_PER_REGION = 1024;
+
+    public final int id;
+    public final @NotNull Action action;
+    public final @NotNull Scope scope;
+    public final @NotNull UUID worldUID;
+    public final @Nullable BoundingBox box;
+    public final @Nullable UUID startedBy;
+    final AtomicInteger affected;
+    /**
+     * Sorted chunk keys, or region keys for jobs with {@link Scope#WORLD} as whole worlds can span millions of chunks.
+     * Empty for jobs with {@link Scope#CUBOID}.
+     */
+    private final long @NotNull [] keys;
+    /**
+     * The chunk area of jobs with {@link Scope#CUBOID}.
+     */
+    private final int minChunkX, minChunkZ, chunksX, chunksZ;
+    private volatile int cursor;
+    private volatile boolean paused;
+    volatile boolean sliceInFlight;
+
+    BulkJob(
+            int id, @NotNull Action action, @NotNull Scope scope, @NotNull UUID worldUID, @Nullable BoundingBox box,
+            long @NotNull [] keys, @Nullable UUID startedBy, int cursor, int affected, boolean paused
+    ) {
+        this.id = id;
+        this.action = action;
+        this.scope = scope;
+        this.worldUID = worldUID;
+        this.box = box;
+        this.keys = keys;
+        this.startedBy = startedBy;
+        this.cursor = cursor;
+        this.affected = new AtomicInteger(affected);
+        this.paused = paused;
+        Arrays.sort(this.keys);
+        if (scope == Scope.CUBOID) {
+            if (box == null) throw new IllegalArgumentException("Cuboid jobs need a box.");
+            this.minChunkX = (int) Math.floor(box.getMinX()) >> 4;
+            this.minChunkZ = (int) Math.floor(box.getMinZ()) >> 4;
+            this.chunksX = ((int) Math.floor(box.getMaxX()) >> 4) - minChunkX + 1;
+            this.chunksZ = ((int) Math.floor(box.getMaxZ()) >> 4) - minChunkZ + 1;
+        } else {
+            this.minChunkX = this.minChunkZ = this.chunksX = this.chunksZ = 0;
+        }
+    }
+
+    public int chunkCount() {
+        switch (scope) {
+            case WORLD:
+                return keys.length * CHUNKS_PER_REGION;
+            case CUBOID:
+                return chunksX * chunksZ; // Limited to a sane size when the job is submitted
+            default:
+                return keys.length;
+        }
+    }
+
+    public long chunkKeyAt(int index) {
+        if (scope == Scope.CUBOID) return ChunkBatch.chunkKey(minChunkX + index / chunksZ, minChunkZ + index % chunksZ);
+        if (scope != Scope.WORLD) return keys[index];
+
+        final long regionKey = keys[index / CHUNKS_PER_REGION];
+        final int inRegion = index % CHUNKS_PER_REGION;
+        final int chunkX = ((int) regionKey << 5) + (inRegion & 31);
+        final int chunkZ = ((int) (regionKey >> 32) << 5) + (inRegion >> 5);
+        return ChunkBatch.chunkKey(chunkX, chunkZ);
+    }
+
+    /**
+     * @param chunkKey The key of the chunk.
+     * @param otherBox The box the other job is limited to, or null if it covers whole chunks.
+     * @return True if this job processes everything another job would process in the given chunk.
+     */
+    boolean covers(long chunkKey, @Nullable BoundingBox otherBox) {
+        switch (scope) {
+            case WORLD:
+                return true;
+            case CHUNKS:
+                return Arrays.binarySearch(keys, chunkKey) >= 0;
+            default:
+                return otherBox != null && box != null && box.contains(otherBox) && containsChunk(chunkKey);
+        }
+    }
+
+    /**
+     * @param chunkKey The key of the chunk.
+     * @return True if this job touches the given chunk at all.
+     */
+    boolean touches(long chunkKey) {
+        switch (scope) {
+            case WORLD:
+                return true;
+            case CUBOID:
+                return containsChunk(chunkKey);
+            default:
+                return Arrays.binarySearch(keys, chunkKey) >= 0;
+        }
+    }
+
+    private boolean containsChunk(long chunkKey) {
+        final int chunkX = (int) chunkKey, chunkZ = (int) (chunkKey >> 32);
+        return chunkX >= minChunkX && chunkX - minChunkX < chunksX && chunkZ >= minChunkZ && chunkZ - minChunkZ < chunksZ;
+    }
+
+    long @NotNull [] keys() {
+        return keys;
+    }
+
+    public int cursor() {
+        return cursor;
+    }
+
+    void advance(int chunks) {
+        this.cursor = Math.min(cursor + chunks, chunkCount());
+    }
+
+    public boolean isDone() {
+        return cursor >= chunkCount();
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    void setPaused(boolean paused) {
+        this.paused = paused;
+    }
+
+    public int affected() {
+        return affected.get();
+    }
+
+    public double progress() {
+        return chunkCount() == 0 ? 1.0 : (double) cursor / chunkCount();
+    }
+}
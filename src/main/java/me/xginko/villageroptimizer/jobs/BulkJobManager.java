@@ -0,0 +1,392 @@
+package me.xginko.villageroptimizer.jobs;
+
+import com.cryptomorin.xseries.XEntityType;
+import me.xginko.villageroptimizer.VillagerOptimizer;
+import me.xginko.villageroptimizer.enums.OptimizationType;
+import me.xginko.villageroptimizer.events.VillagerOptimizeEvent;
+import me.xginko.villageroptimizer.events.VillagerUnoptimizeEvent;
+import me.xginko.villageroptimizer.utils.ChunkBatch;
+import me.xginko.villageroptimizer.utils.Disableable;
+import me.xginko.villageroptimizer.utils.Enableable;
+import me.xginko.villageroptimizer.utils.KyoriUtil;
+import me.xginko.villageroptimizer.wrapper.WrappedVillager;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.entity.Villager;
+import org.bukkit.util.BoundingBox;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import space.arim.morepaperlib.scheduling.ScheduledTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+public final class BulkJobManager implements Enableable, Disableable, Runnable {
+
+    private static final int CHUNKS_PER_SLICE = 32;
+
+    public enum Outcome {
+        /** The job was started as requested. */
+        STARTED,
+        /** The job was started, but chunks that overlapping jobs already take care of were left out. */
+        TRIMMED,
+        /** Another job already takes care of everything this job would have done. */
+        DUPLICATE,
+        /** Another job does the opposite action on an overlapping area. */
+        CONFLICT
+    }
+
+    public static final class Submission {
+        public final @NotNull Outcome outcome;
+        /** The started job, or the job that prevented it from starting. */
+        public final @NotNull BulkJob job;
+
+        private Submission(@NotNull Outcome outcome, @NotNull BulkJob job) {
+            this.outcome = outcome;
+            this.job = job;
+        }
+    }
+
+    private final Map<Integer, BulkJob> jobs;
+    private final AtomicInteger next_id;
+    private final File checkpoint_file;
+    private final long budget_per_tick_nanos;
+    private ScheduledTask dispatch_task, checkpoint_task;
+    private volatile boolean enabled, dirty;
+
+    public BulkJobManager() {
+        this.jobs = new ConcurrentSkipListMap<>();
+        this.next_id = new AtomicInteger(1);
+        this.checkpoint_file = new File(VillagerOptimizer.getInstance().getDataFolder(), "jobs.yml");
+        this.budget_per_tick_nanos = VillagerOptimizer.config().job_budget_per_tick_nanos;
+    }
+
+    @Override
+    public void enable() {
+        enabled = true;
+        loadCheckpoint();
+        dispatch_task = VillagerOptimizer.scheduling().globalRegionalScheduler().runAtFixedRate(this, 1L, 1L);
+        checkpoint_task = VillagerOptimizer.scheduling().asyncScheduler().runAtFixedRate(() -> {
+            if (dirty) saveCheckpoint();
+        }, Duration.ofSeconds(10), Duration.ofSeconds(10));
+    }
+
+    @Override
+    public void disable() {
+        // Slices that are still in flight will not advance their job anymore, so they are simply redone after a restart
+        enabled = false;
+        if (dispatch_task != null) dispatch_task.cancel();
+        if (checkpoint_task != null) checkpoint_task.cancel();
+        saveCheckpoint();
+        jobs.clear();
+    }
+
+    /**
+     * @param world The world to look at.
+     * @return The keys of all regions of the world that have a region file, meaning they have generated chunks.
+     */
+    public static long @NotNull [] generatedRegions(@NotNull World world) {
+        final File regionFolder;
+        switch (world.getEnvironment()) {
+            case NETHER:
+                regionFolder = new File(world.getWorldFolder(), "DIM-1" + File.separator + "region");
+                break;
+            case THE_END:
+                regionFolder = new File(world.getWorldFolder(), "DIM1" + File.separator + "region");
+                break;
+            default:
+                regionFolder = new File(world.getWorldFolder(), "region");
+        }
+
+        final File[] regionFiles = regionFolder.listFiles((dir, name) -> name.startsWith("r.") && name.endsWith(".mca"));
+        if (regionFiles == null) return new long[0];
+
+        return Arrays.stream(regionFiles).map(File::getName).mapToLong(name -> {
+            final String[] coords = name.split("\\.");
+            try {
+                final int regionX = Integer.parseInt(coords[1]), regionZ = Integer.parseInt(coords[2]);
+                return ChunkBatch.chunkKey(regionX, regionZ); // Region keys use the same layout as chunk keys
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                return Long.MIN_VALUE;
+            }
+        }).filter(regionKey -> regionKey != Long.MIN_VALUE).toArray();
+    }
+
+    public @NotNull Collection<BulkJob> getJobs() {
+        return jobs.values();
+    }
+
+    public @Nullable BulkJob getJob(int id) {
+        return jobs.get(id);
+    }
+
+    public synchronized @NotNull Submission submit(
+            @NotNull BulkJob.Action action, @NotNull BulkJob.Scope scope, @NotNull World world,
+            @Nullable BoundingBox box, long @NotNull [] keys, @Nullable UUID startedBy
+    ) {
+        final List<BulkJob> sameWorld = jobs.values().stream()
+                .filter(job -> job.worldUID.equals(world.getUID()))
+                .collect(Collectors.toList());
+
+        if (scope == BulkJob.Scope.WORLD) {
+            for (BulkJob existing : sameWorld) {
+                if (existing.action != action) return new Submission(Outcome.CONFLICT, existing);
+                if (existing.scope == BulkJob.Scope.WORLD) return new Submission(Outcome.DUPLICATE, existing);
+            }
+            // A whole world job covers every smaller job with the same action
+            sameWorld.forEach(superseded -> jobs.remove(superseded.id));
+            return start(action, scope, world, box, keys, startedBy, Outcome.STARTED);
+        }
+
+        if (scope == BulkJob.Scope.CUBOID) {
+            // A cuboid job stays a box, so chunks that other jobs already cover are processed again instead of cut out
+            final BulkJob requested = new BulkJob(0, action, scope, world.getUID(), box, keys, startedBy, 0, 0, false);
+            BulkJob coveredBy = null;
+            boolean covered = true;
+            for (int i = 0; i < requested.chunkCount(); i++) {
+                final long chunkKey = requested.chunkKeyAt(i);
+                BulkJob coveringJob = null;
+                for (BulkJob existing : sameWorld) {
+                    if (existing.action != action) {
+                        if (existing.touches(chunkKey)) return new Submission(Outcome.CONFLICT, existing);
+                    } else if (coveringJob == null && existing.covers(chunkKey, box)) {
+                        coveringJob = existing;
+                    }
+                }
+                if (coveringJob == null) covered = false;
+                else if (coveredBy == null) coveredBy = coveringJob;
+            }
+            if (covered && coveredBy != null) return new Submission(Outcome.DUPLICATE, coveredBy);
+            return start(action, scope, world, box, keys, startedBy, Outcome.STARTED);
+        }
+
+        final long[] remaining = Arrays.stream(keys).filter(chunkKey -> {
+            for (BulkJob existing : sameWorld) {
+                if (existing.action == action && existing.covers(chunkKey, box)) return false;
+            }
+            return true;
+        }).toArray();
+
+        for (BulkJob existing : sameWorld) {
+            if (existing.action == action) continue;
+            for (long chunkKey : remaining) {
+                if (existing.touches(chunkKey)) return new Submission(Outcome.CONFLICT, existing);
+            }
+        }
+
+        if (remaining.length == 0) {
+            return new Submission(Outcome.DUPLICATE, sameWorld.stream()
+                    .filter(existing -> existing.action == action && existing.covers(keys[0], box))
+                    .findFirst().orElse(sameWorld.get(0)));
+        }
+
+        return start(action, scope, world, box, remaining, startedBy,
+                remaining.length < keys.length ? Outcome.TRIMMED : Outcome.STARTED);
+    }
+
+    private @NotNull Submission start(
+            @NotNull BulkJob.Action action, @NotNull BulkJob.Scope scope, @NotNull World world,
+            @Nullable BoundingBox box, long @NotNull [] keys, @Nullable UUID startedBy, @NotNull Outcome outcome
+    ) {
+        final BulkJob job = new BulkJob(next_id.getAndIncrement(), action, scope, world.getUID(), box, keys, startedBy, 0, 0, false);
+        jobs.put(job.id, job);
+        dirty = true;
+        return new Submission(outcome, job);
+    }
+
+    public void pause(@NotNull BulkJob job) {
+        job.setPaused(true);
+        dirty = true;
+    }
+
+    public void resume(@NotNull BulkJob job) {
+        job.setPaused(false);
+        dirty = true;
+    }
+
+    public void cancel(@NotNull BulkJob job) {
+        jobs.remove(job.id);
+        dirty = true;
+    }
+
+    @Override
+    public void run() {
+        for (BulkJob job : jobs.values()) {
+            if (job.isPaused() || job.sliceInFlight) continue;
+
+            if (job.isDone()) {
+                jobs.remove(job.id);
+                dirty = true;
+                finished(job);
+                continue;
+            }
+
+            final World world = VillagerOptimizer.getInstance().getServer().getWorld(job.worldUID);
+            if (world == null) continue; // Wait for the world to be loaded again
+
+            final int from = job.cursor();
+            final int to = Math.min(from + CHUNKS_PER_SLICE, job.chunkCount());
+            final long[] slice = new long[to - from];
+            for (int i = from; i < to; i++) {
+                slice[i - from] = job.chunkKeyAt(i);
+            }
+
+            job.sliceInFlight = true;
+            ChunkBatch.of(world, slice)
+                    .budgetPerTick(budget_per_tick_nanos)
+                    .loadChunks(true)
+                    .forEachEntity(VillagerOptimizer.scheduling(), entity -> process(job, entity))
+                    .thenRun(() -> {
+                        if (!enabled) return;
+                        job.advance(slice.length);
+                        job.sliceInFlight = false;
+                        dirty = true;
+                    });
+        }
+    }
+
+    private void process(@NotNull BulkJob job, @NotNull Entity entity) {
+        if (!jobs.containsKey(job.id)) return; // Cancelled
+        if (entity.getType() != XEntityType.VILLAGER.get()) return;
+        if (job.box != null && !job.box.contains(entity.getLocation().toVector())) return;
+
+        final Villager villager = (Villager) entity;
+        final Villager.Profession profession = villager.getProfession();
+        if (profession == Villager.Profession.NITWIT || profession == Villager.Profession.NONE) return;
+
+        // The state is applied right away below, while the job still keeps the chunk loaded.
+        // Deferring it until the villager is done trading could let the chunk unload first.
+        if (villager.isTrading()) return;
+
+        final WrappedVillager wrapped = VillagerOptimizer.wrappers().get(villager, WrappedVillager::new);
+
+        if (job.action == BulkJob.Action.OPTIMIZE) {
+            if (wrapped.isOptimized()) return;
+            VillagerOptimizeEvent optimizeEvent = new VillagerOptimizeEvent(wrapped, OptimizationType.COMMAND, null);
+            if (optimizeEvent.callEvent()) {
+                wrapped.applyOptimizationType(optimizeEvent.getOptimizationType());
+                wrapped.saveOptimizeTime();
+                job.affected.incrementAndGet();
+            }
+        } else {
+            if (!wrapped.isOptimized()) return;
+            VillagerUnoptimizeEvent unOptimizeEvent = new VillagerUnoptimizeEvent(wrapped, null, OptimizationType.COMMAND);
+            if (unOptimizeEvent.callEvent()) {
+                wrapped.applyOptimizationType(OptimizationType.NONE);
+                job.affected.incrementAndGet();
+            }
+        }
+    }
+
+    private void finished(@NotNull BulkJob job) {
+        final String summary = "Job #" + job.id + " finished. " +
+                (job.action == BulkJob.Action.OPTIMIZE ? "Optimized " : "Unoptimized ") + job.affected() + " villager(s).";
+        VillagerOptimizer.logger().info(summary);
+
+        if (job.startedBy == null) return;
+        final Player player = VillagerOptimizer.getInstance().getServer().getPlayer(job.startedBy);
+        if (player != null) {
+            VillagerOptimizer.scheduling().entitySpecificScheduler(player).run(() ->
+                    KyoriUtil.sendMessage(player, Component.text(summary).color(NamedTextColor.GREEN)), null);
+        }
+    }
+
+    private void loadCheckpoint() {
+        if (!checkpoint_file.exists()) return;
+
+        final YamlConfiguration checkpoint = new YamlConfiguration();
+        try {
+            checkpoint.load(checkpoint_file);
+        } catch (IOException | InvalidConfigurationException e) {
+            VillagerOptimizer.logger().error("Failed to read job checkpoint file! Previous jobs will not be resumed.", e);
+            return;
+        }
+
+        next_id.set(Math.max(1, checkpoint.getInt("next-id", 1)));
+
+        final ConfigurationSection section = checkpoint.getConfigurationSection("jobs");
+        if (section == null) return;
+
+        for (String key : section.getKeys(false)) {
+            final ConfigurationSection stored = section.getConfigurationSection(key);
+            if (stored == null) continue;
+
+            try {
+                final List<Double> bounds = stored.getDoubleList("box");
+                final String startedBy = stored.getString("started-by");
+                final BulkJob.Scope scope = BulkJob.Scope.valueOf(stored.getString("scope"));
+                final long[] keys = stored.getLongList("keys").stream().mapToLong(Long::longValue).toArray();
+                // Cuboid jobs used to store their chunk keys in a different order, so those start over
+                final boolean restart = scope == BulkJob.Scope.CUBOID && keys.length > 0;
+                final BulkJob job = new BulkJob(
+                        Integer.parseInt(key),
+                        BulkJob.Action.valueOf(stored.getString("action")),
+                        scope,
+                        UUID.fromString(stored.getString("world")),
+                        bounds.size() == 6 ? new BoundingBox(bounds.get(0), bounds.get(1), bounds.get(2),
+                                bounds.get(3), bounds.get(4), bounds.get(5)) : null,
+                        scope == BulkJob.Scope.CUBOID ? new long[0] : keys,
+                        startedBy == null ? null : UUID.fromString(startedBy),
+                        restart ? 0 : stored.getInt("cursor"),
+                        stored.getInt("affected"),
+                        stored.getBoolean("paused")
+                );
+                jobs.put(job.id, job);
+                next_id.set(Math.max(next_id.get(), job.id + 1));
+            } catch (Exception e) {
+                VillagerOptimizer.logger().error("Failed to resume job #{} from checkpoint.", key, e);
+            }
+        }
+
+        if (!jobs.isEmpty()) {
+            VillagerOptimizer.logger().info("Resumed {} bulk optimization job(s) from checkpoint.", jobs.size());
+        }
+    }
+
+    private synchronized void saveCheckpoint() {
+        dirty = false;
+
+        final YamlConfiguration checkpoint = new YamlConfiguration();
+        checkpoint.set("next-id", next_id.get());
+
+        for (BulkJob job : jobs.values()) {
+            final String path = "jobs." + job.id;
+            checkpoint.set(path + ".action", job.action.name());
+            checkpoint.set(path + ".scope", job.scope.name());
+            checkpoint.set(path + ".world", job.worldUID.toString());
+            if (job.box != null) {
+                checkpoint.set(path + ".box", Arrays.asList(job.box.getMinX(), job.box.getMinY(), job.box.getMinZ(),
+                        job.box.getMaxX(), job.box.getMaxY(), job.box.getMaxZ()));
+            }
+            if (job.scope != BulkJob.Scope.CUBOID) {
+                checkpoint.set(path + ".keys", Arrays.stream(job.keys()).boxed().collect(Collectors.toCollection(ArrayList::new)));
+            }
+            checkpoint.set(path + ".started-by", job.startedBy == null ? null : job.startedBy.toString());
+            checkpoint.set(path + ".cursor", job.cursor());
+            checkpoint.set(path + ".affected", job.affected());
+            checkpoint.set(path + ".paused", job.isPaused());
+        }
+
+        try {
+            checkpoint.save(checkpoint_file);
+        } catch (IOException e) {
+            VillagerOptimizer.logger().error("Failed to save job checkpoint file!", e);
+        }
+    }
+}
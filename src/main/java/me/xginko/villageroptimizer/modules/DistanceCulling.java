@@ -0,0 +1,162 @@
+package me.xginko.villageroptimizer.modules;
+
+import com.cryptomorin.xseries.XEntityType;
+import me.xginko.villageroptimizer.events.VillagerUnoptimizeEvent;
+import me.xginko.villageroptimizer.wrapper.WrappedVillager;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.entity.Villager;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.jetbrains.annotations.NotNull;
+import space.arim.morepaperlib.scheduling.ScheduledTask;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class DistanceCulling extends VillagerOptimizerModule implements Runnable, Listener {
+
+    /**
+     * A player's visible villagers are also updated after this many checks without the player changing chunks,
+     * so villagers that were optimized near a player who is standing still get hidden eventually.
+     */
+    private static final int CHECKS_UNTIL_REFRESH = 15;
+
+    private final Map<UUID, PlayerView> player_views;
+    private ScheduledTask periodic_visibility_check;
+    private final long check_period;
+    private final double hide_distance_squared, tracking_range;
+
+    public DistanceCulling() {
+        super("distance-culling");
+        config.master().addComment(configPath + ".enable",
+                "Hides optimized villagers that are far away from a player from that player only.\n" +
+                "The server then doesn't send their movement and metadata to the player anymore, which takes a lot of\n" +
+                "network and client load off of players walking past big trading halls or shop districts.");
+        this.check_period = Math.max(1, config.getInt(configPath + ".check-period-in-ticks", 20,
+                "How often to check if players changed chunks and need different villagers hidden. 1 second = 20 ticks"));
+        final double hideDistance = Math.max(1, config.getInt(configPath + ".hide-distance-in-blocks", 32,
+                "Optimized villagers further away from a player than this are hidden from them."));
+        this.hide_distance_squared = hideDistance * hideDistance;
+        this.tracking_range = Math.max(hideDistance, config.getInt(configPath + ".search-radius-in-blocks", 128,
+                "Villagers within this radius of a player are looked at. Should be at least the entity tracking\n" +
+                "range of your server, because villagers outside of it are not sent to players anyway."));
+        this.player_views = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void enable() {
+        registerEvents(this);
+        periodic_visibility_check = scheduling.globalRegionalScheduler().runAtFixedRate(timed(this), check_period, check_period);
+    }
+
+    @Override
+    public boolean shouldEnable() {
+        return config.getBoolean(configPath + ".enable", false);
+    }
+
+    @Override
+    public void disable() {
+        HandlerList.unregisterAll(this);
+        if (periodic_visibility_check != null) periodic_visibility_check.cancel();
+        // Don't leave any villagers hidden when the feature is turned off
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            final PlayerView view = player_views.get(player.getUniqueId());
+            if (view == null) continue;
+            scheduling.entitySpecificScheduler(player).run(timed(() -> {
+                for (Entity villager : view.hidden) {
+                    player.showEntity(plugin, villager);
+                }
+            }), null);
+        }
+        player_views.clear();
+    }
+
+    @Override
+    public void run() {
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            final PlayerView view = player_views.computeIfAbsent(player.getUniqueId(), uuid -> new PlayerView());
+            // Update on the region of the player, where the villagers around them are ticked as well
+            scheduling.entitySpecificScheduler(player).run(timed(() -> {
+                if (view.needsUpdate(player.getLocation())) {
+                    updateVisibility(player, view);
+                }
+            }), null);
+        }
+    }
+
+    private void updateVisibility(@NotNull Player player, @NotNull PlayerView view) {
+        final Location playerLocation = player.getLocation();
+
+        // The server remembers hidden entities by their id, so villagers that were unloaded need to be shown again
+        // to not stay hidden after they are loaded back in
+        view.hidden.removeIf(villager -> {
+            if (villager.isValid() && villager.getWorld() == playerLocation.getWorld()) return false;
+            player.showEntity(plugin, villager);
+            return true;
+        });
+
+        for (Entity entity : player.getNearbyEntities(tracking_range, tracking_range, tracking_range)) {
+            if (entity.getType() != XEntityType.VILLAGER.get()) continue;
+
+            final boolean hide = entity.getLocation().distanceSquared(playerLocation) > hide_distance_squared
+                    && wrapperCache.get((Villager) entity, WrappedVillager::new).isOptimized();
+
+            if (hide) {
+                if (view.hidden.add(entity)) player.hideEntity(plugin, entity);
+            } else {
+                if (view.hidden.remove(entity)) player.showEntity(plugin, entity);
+            }
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    private void onUnoptimize(VillagerUnoptimizeEvent event) {
+        final Villager villager = event.getWrappedVillager().villager;
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            final PlayerView view = player_views.get(player.getUniqueId());
+            if (view == null || !view.hidden.contains(villager)) continue;
+            scheduling.entitySpecificScheduler(player).run(timed(() -> {
+                if (view.hidden.remove(villager)) player.showEntity(plugin, villager);
+            }), null);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void onQuit(PlayerQuitEvent event) {
+        // Hidden entities are not remembered by the server across sessions
+        player_views.remove(event.getPlayer().getUniqueId());
+    }
+
+    private static final class PlayerView {
+
+        private final Set<Entity> hidden = ConcurrentHashMap.newKeySet();
+        private World world;
+        private int chunkX, chunkZ, checksSinceUpdate = CHECKS_UNTIL_REFRESH;
+
+        /**
+         * @return True if the player changed chunks since the last update, or it has been a while.
+         */
+        private boolean needsUpdate(@NotNull Location location) {
+            final int currentChunkX = location.getBlockX() >> 4, currentChunkZ = location.getBlockZ() >> 4;
+            if (
+                    location.getWorld() == world && currentChunkX == chunkX && currentChunkZ == chunkZ
+                    && ++checksSinceUpdate < CHECKS_UNTIL_REFRESH
+            ) {
+                return false;
+            }
+            world = location.getWorld();
+            chunkX = currentChunkX;
+            chunkZ = currentChunkZ;
+            checksSinceUpdate = 0;
+            return true;
+        }
+    }
+}
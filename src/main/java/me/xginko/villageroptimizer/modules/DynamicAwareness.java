@@ -0,0 +1,187 @@
+package me.xginko.villageroptimizer.modules;
+
+import com.cryptomorin.xseries.XEntityType;
+import me.xginko.villageroptimizer.enums.Keyring;
+import me.xginko.villageroptimizer.utils.LocationUtil;
+import me.xginko.villageroptimizer.utils.PlayerPresence;
+import me.xginko.villageroptimizer.utils.Util;
+import me.xginko.villageroptimizer.wrapper.WrappedVillager;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Villager;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.EntitiesLoadEvent;
+import org.bukkit.event.world.EntitiesUnloadEvent;
+import org.bukkit.persistence.PersistentDataType;
+import org.jetbrains.annotations.NotNull;
+import space.arim.morepaperlib.scheduling.ScheduledTask;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+public class DynamicAwareness extends VillagerOptimizerModule implements Runnable, Listener {
+
+    private final Map<UUID, Map<Long, Long>> last_player_presence;
+    private final Map<UUID, Set<Long>> paused_chunks;
+    private ScheduledTask periodic_presence_check;
+    private final long check_period, idle_millis;
+    private final int player_radius_chunks;
+    private final boolean log_enabled;
+
+    public DynamicAwareness() {
+        super("dynamic-awareness");
+        config.master().addComment(configPath + ".enable",
+                "Pauses the AI of unoptimized villagers in chunks that haven't had a player nearby for a while\n" +
+                "and resumes it as soon as a player comes close again. Useful for villages in spawn chunks or bases\n" +
+                "that are kept loaded while nobody is around.");
+        this.check_period = Math.max(1, config.getInt(configPath + ".check-period-in-ticks", 200,
+                "Check player presence for all loaded chunks every X ticks. 1 second = 20 ticks"));
+        this.player_radius_chunks = (int) Math.ceil(Math.max(1, config.getInt(configPath + ".player-radius-in-blocks", 64,
+                "Villagers will be paused if no player has been within this radius of their chunk.\n" +
+                "Presence is checked per chunk, so this is rounded up to whole chunks.")) / 16.0);
+        this.idle_millis = TimeUnit.SECONDS.toMillis(Math.max(1, config.getInt(configPath + ".idle-time-seconds", 300,
+                "How long no player needs to be near a chunk before its villagers are paused.")));
+        this.log_enabled = config.getBoolean(configPath + ".log", false);
+        this.last_player_presence = new ConcurrentHashMap<>();
+        this.paused_chunks = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void enable() {
+        registerEvents(this);
+        periodic_presence_check = scheduling.globalRegionalScheduler().runAtFixedRate(timed(this), check_period, check_period);
+    }
+
+    @Override
+    public boolean shouldEnable() {
+        return config.getBoolean(configPath + ".enable", false);
+    }
+
+    @Override
+    public void disable() {
+        HandlerList.unregisterAll(this);
+        if (periodic_presence_check != null) periodic_presence_check.cancel();
+        // Don't leave any villagers paused when the feature is turned off
+        for (World world : plugin.getServer().getWorlds()) {
+            final Set<Long> pausedInWorld = paused_chunks.get(world.getUID());
+            if (pausedInWorld == null) continue;
+            for (Long chunkKey : pausedInWorld) {
+                final int chunkX = (int) (long) chunkKey, chunkZ = (int) (chunkKey >> 32);
+                scheduling.regionSpecificScheduler(world, chunkX, chunkZ).run(timed(() -> {
+                    if (world.isChunkLoaded(chunkX, chunkZ)) {
+                        resumeVillagers(world.getChunkAt(chunkX, chunkZ).getEntities());
+                    }
+                }));
+            }
+        }
+        paused_chunks.clear();
+        last_player_presence.clear();
+    }
+
+    @Override
+    public void run() {
+        final long now = System.currentTimeMillis();
+
+        for (World world : plugin.getServer().getWorlds()) {
+            final PlayerPresence playerPresence = PlayerPresence.of(world);
+
+            final Map<Long, Long> lastPresenceInWorld = last_player_presence.computeIfAbsent(world.getUID(), uid -> new ConcurrentHashMap<>());
+            final Set<Long> pausedInWorld = paused_chunks.computeIfAbsent(world.getUID(), uid -> ConcurrentHashMap.newKeySet());
+
+            for (Chunk chunk : world.getLoadedChunks()) {
+                final long chunkKey = chunk.getChunkKey();
+
+                if (playerPresence.isPlayerNearby(chunk.getX(), chunk.getZ(), player_radius_chunks)) {
+                    lastPresenceInWorld.put(chunkKey, now);
+                    if (pausedInWorld.remove(chunkKey)) {
+                        scheduling.regionSpecificScheduler(world, chunk.getX(), chunk.getZ()).run(timed(() -> {
+                            if (Util.isChunkLoaded(chunk)) {
+                                resumeVillagers(chunk.getEntities());
+                            }
+                        }));
+                    }
+                    continue;
+                }
+
+                final Long lastPresence = lastPresenceInWorld.putIfAbsent(chunkKey, now);
+                if (lastPresence == null || now - lastPresence < idle_millis) continue;
+
+                // Keep pausing villagers that wandered or spawned into the chunk while it stays idle
+                pausedInWorld.add(chunkKey);
+                scheduling.regionSpecificScheduler(world, chunk.getX(), chunk.getZ()).run(timed(() -> {
+                    if (Util.isChunkLoaded(chunk)) {
+                        pauseVillagers(chunk);
+                    }
+                }));
+            }
+        }
+    }
+
+    private void pauseVillagers(@NotNull Chunk chunk) {
+        for (Entity entity : chunk.getEntities()) {
+            if (entity.getType() != XEntityType.VILLAGER.get()) continue;
+
+            final Villager villager = (Villager) entity;
+            if (!villager.isAware() || villager.isTrading()) continue;
+            if (wrapperCache.get(villager, WrappedVillager::new).isOptimized()) continue;
+
+            villager.getPersistentDataContainer().set(Keyring.VillagerOptimizer.PAUSED_WHILE_IDLE.getKey(), PersistentDataType.BYTE, (byte) 1);
+            villager.setAware(false);
+
+            if (log_enabled) {
+                info("Paused idle villager at " + LocationUtil.toString(villager.getLocation()));
+            }
+        }
+    }
+
+    private void resumeVillagers(@NotNull Entity @NotNull [] entities) {
+        for (Entity entity : entities) {
+            if (entity.getType() != XEntityType.VILLAGER.get()) continue;
+            if (!entity.getPersistentDataContainer().has(Keyring.VillagerOptimizer.PAUSED_WHILE_IDLE.getKey(), PersistentDataType.BYTE)) continue;
+
+            final Villager villager = (Villager) entity;
+            villager.getPersistentDataContainer().remove(Keyring.VillagerOptimizer.PAUSED_WHILE_IDLE.getKey());
+            // Villagers might have been optimized while they were paused
+            if (!wrapperCache.get(villager, WrappedVillager::new).isOptimized()) {
+                villager.setAware(true);
+            }
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    private void onEntitiesLoad(EntitiesLoadEvent event) {
+        // Villagers that were still paused when the server stopped need to be resumed once a player comes by
+        for (Entity entity : event.getEntities()) {
+            if (
+                    entity.getType() == XEntityType.VILLAGER.get()
+                    && entity.getPersistentDataContainer().has(Keyring.VillagerOptimizer.PAUSED_WHILE_IDLE.getKey(), PersistentDataType.BYTE)
+            ) {
+                paused_chunks.computeIfAbsent(event.getWorld().getUID(), uid -> ConcurrentHashMap.newKeySet())
+                        .add(event.getChunk().getChunkKey());
+                return;
+            }
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    private void onEntitiesUnload(EntitiesUnloadEvent event) {
+        final UUID worldUID = event.getWorld().getUID();
+        final long chunkKey = event.getChunk().getChunkKey();
+
+        final Map<Long, Long> lastPresenceInWorld = last_player_presence.get(worldUID);
+        if (lastPresenceInWorld != null) lastPresenceInWorld.remove(chunkKey);
+
+        // Resume villagers before they are saved, so nothing stays paused if the feature gets turned off
+        final Set<Long> pausedInWorld = paused_chunks.get(worldUID);
+        if (pausedInWorld != null && pausedInWorld.remove(chunkKey)) {
+            resumeVillagers(event.getEntities().toArray(new Entity[0]));
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package me.xginko.villageroptimizer.modules;
+
+import com.cryptomorin.xseries.XEntityType;
+import me.xginko.villageroptimizer.trace.EventTrace;
+import org.bukkit.Location;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.CreatureSpawnEvent;
+import org.bukkit.event.entity.EntityDamageByEntityEvent;
+import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.event.entity.EntityTargetEvent;
+import org.bukkit.event.player.PlayerInteractEntityEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import space.arim.morepaperlib.scheduling.ScheduledTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class EventTraceRecorder extends VillagerOptimizerModule implements Listener {
+
+    private final BlockingQueue<EventTrace.Record> pending;
+    private final AtomicLong dropped;
+    private final long max_duration_millis;
+    private final boolean record_blocks;
+    private EventTrace.Writer writer;
+    private ScheduledTask flush_task;
+    private File trace_file;
+    private long started_millis;
+
+    public EventTraceRecorder() {
+        super("event-trace");
+        config.master().addComment(configPath + ".enable",
+                "Record every event the plugin reacts to into a compact binary file in the traces folder.\n" +
+                "Traces can be replayed offline with the benchmarks module to reproduce the load of a busy server.\n" +
+                "Only enable this while you need a trace, recording costs a little performance and disk space.");
+        this.max_duration_millis = TimeUnit.MINUTES.toMillis(Math.max(1, config.getInt(configPath + ".max-duration-minutes", 60,
+                "Recording stops on its own after this many minutes.")));
+        this.pending = new ArrayBlockingQueue<>(Math.max(1024, config.getInt(configPath + ".max-queued-events", 100000,
+                "Events are written to disk once per second. If more than this many events pile up in between,\n" +
+                "the rest are dropped so the server never runs out of memory.")));
+        this.record_blocks = config.getBoolean(configPath + ".record-block-events", true,
+                "Whether to record blocks being placed and broken. These are needed to replay block and workstation\n" +
+                "optimization, but are by far the most frequent events.");
+        this.dropped = new AtomicLong();
+    }
+
+    @Override
+    public void enable() {
+        final File directory = new File(plugin.getDataFolder(), "traces");
+        if (!directory.exists() && !directory.mkdirs()) {
+            error("Could not create traces folder, not recording.");
+            return;
+        }
+
+        this.started_millis = System.currentTimeMillis();
+        this.trace_file = new File(directory, "trace-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date(started_millis))
+                + EventTrace.FILE_EXTENSION);
+
+        try {
+            this.writer = new EventTrace.Writer(trace_file, started_millis);
+        } catch (IOException e) {
+            error("Could not create trace file " + trace_file.getName() + ", not recording.", e);
+            return;
+        }
+
+        registerEvents(this);
+        flush_task = scheduling.asyncScheduler().runAtFixedRate(() -> {
+            drain();
+            if (System.currentTimeMillis() - started_millis > max_duration_millis) {
+                info("Reached the maximum recording time.");
+                disable();
+            }
+        }, Duration.ofSeconds(1), Duration.ofSeconds(1));
+        info("Recording events to " + trace_file.getName());
+    }
+
+    @Override
+    public synchronized void disable() {
+        HandlerList.unregisterAll(this);
+        if (flush_task != null) flush_task.cancel();
+        if (writer != null) {
+            drain();
+            try {
+                writer.close();
+            } catch (IOException e) {
+                error("Failed to close trace file " + trace_file.getName(), e);
+            }
+            writer = null;
+            info("Stopped recording to " + trace_file.getName() + (dropped.get() > 0 ? ", dropped " + dropped.get() + " events." : "."));
+        }
+    }
+
+    @Override
+    public boolean shouldEnable() {
+        return config.getBoolean(configPath + ".enable", false);
+    }
+
+    private synchronized void drain() {
+        if (writer == null) return;
+
+        try {
+            EventTrace.Record record;
+            while ((record = pending.poll()) != null) {
+                writer.write(record);
+            }
+            writer.flush();
+        } catch (IOException e) {
+            error("Failed to write to trace file " + trace_file.getName() + ", stopping.", e);
+            HandlerList.unregisterAll(this);
+            if (flush_task != null) flush_task.cancel();
+        }
+    }
+
+    private void record(
+            @NotNull EventTrace.Type type, @NotNull Entity subject, @Nullable Entity other, @NotNull Location location,
+            @Nullable Enum<?> detail, double value
+    ) {
+        record(type, subject.getEntityId(), subject.getType().name(), other, location, detail == null ? null : detail.name(), value);
+    }
+
+    private void record(
+            @NotNull EventTrace.Type type, int subjectId, @NotNull String subjectType, @Nullable Entity other,
+            @NotNull Location location, @Nullable String detail, double value
+    ) {
+        final EventTrace.Record record = new EventTrace.Record(type, System.currentTimeMillis(), subjectId, subjectType,
+                other == null ? -1 : other.getEntityId(), other == null ? null : other.getType().name(),
+                location.getWorld().getName(), location.getBlockX(), location.getBlockY(), location.getBlockZ(), detail, (float) value);
+        if (!pending.offer(record)) dropped.incrementAndGet();
+    }
+
+    private static boolean isVillager(@Nullable Entity entity) {
+        return entity != null && entity.getType() == XEntityType.VILLAGER.get();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void onPathfind(com.destroystokyo.paper.event.entity.EntityPathfindEvent event) {
+        if (isVillager(event.getEntity()) || isVillager(event.getTargetEntity())) {
+            record(EventTrace.Type.PATHFIND, event.getEntity(), event.getTargetEntity(), event.getEntity().getLocation(), null, 0);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void onTarget(EntityTargetEvent event) {
+        if (isVillager(event.getTarget())) {
+            record(EventTrace.Type.TARGET, event.getEntity(), event.getTarget(), event.getEntity().getLocation(), event.getReason(), 0);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void onDamage(EntityDamageEvent event) {
+        if (isVillager(event.getEntity())) {
+            record(EventTrace.Type.DAMAGE, event.getEntity(),
+                    event instanceof EntityDamageByEntityEvent ? ((EntityDamageByEntityEvent) event).getDamager() : null,
+                    event.getEntity().getLocation(), event.getCause(), event.getDamage());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void onInteract(PlayerInteractEntityEvent event) {
+        if (isVillager(event.getRightClicked())) {
+            final Player player = event.getPlayer();
+            record(EventTrace.Type.INTERACT, event.getRightClicked(), player, event.getRightClicked().getLocation(),
+                    player.getInventory().getItem(event.getHand()).getType(), 0);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void onSpawn(CreatureSpawnEvent event) {
+        if (isVillager(event.getEntity())) {
+            record(EventTrace.Type.SPAWN, event.getEntity(), null, event.getLocation(), event.getSpawnReason(), 0);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void onBlockPlace(BlockPlaceEvent event) {
+        if (!record_blocks) return;
+        final Block block = event.getBlockPlaced();
+        record(EventTrace.Type.BLOCK_PLACE, event.getPlayer().getEntityId(), event.getPlayer().getType().name(), null,
+                block.getLocation(), block.getType().name(), 0);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void onBlockBreak(BlockBreakEvent event) {
+        if (!record_blocks) return;
+        final Block block = event.getBlock();
+        record(EventTrace.Type.BLOCK_BREAK, event.getPlayer().getEntityId(), event.getPlayer().getType().name(), null,
+                block.getLocation(), block.getType().name(), 0);
+    }
+}
@@ -0,0 +1,473 @@
+package me.xginko.villageroptimizer.modules;
+
+import com.cryptomorin.xseries.XEntityType;
+import com.destroystokyo.paper.event.entity.EntityAddToWorldEvent;
+import com.destroystokyo.paper.event.entity.EntityRemoveFromWorldEvent;
+import io.papermc.paper.event.player.PlayerTradeEvent;
+import me.xginko.villageroptimizer.VillagerOptimizer;
+import me.xginko.villageroptimizer.enums.Keyring;
+import me.xginko.villageroptimizer.enums.OptimizationType;
+import me.xginko.villageroptimizer.events.VillagerOptimizeEvent;
+import me.xginko.villageroptimizer.events.VillagerUnoptimizeEvent;
+import me.xginko.villageroptimizer.utils.ChunkBatch;
+import me.xginko.villageroptimizer.wrapper.WrappedVillager;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Villager;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.EntitiesLoadEvent;
+import org.bukkit.persistence.PersistentDataType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import space.arim.morepaperlib.scheduling.ScheduledTask;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TickTimeGovernor extends VillagerOptimizerModule implements Runnable, Listener {
+
+    /**
+     * Villagers this module optimized that are loaded. Governed villagers in unloaded chunks keep their
+     * {@link OptimizationType#GOVERNOR} type and are added again or restored when they are loaded.
+     */
+    private final Set<Villager> governed;
+    /**
+     * All and unoptimized villagers per chunk key per world, kept up to date as villagers are added to and removed
+     * from worlds and are optimized and unoptimized, so finding crowded chunks doesn't need a look at every loaded
+     * chunk. Villagers walking into another chunk or optimized without an event can make the counts drift until
+     * their chunk is looked at, so a chunk's real villagers are always looked at before any of them are optimized.
+     */
+    private final Map<UUID, Map<Long, Integer>> villagers_per_chunk, unoptimized_per_chunk;
+    private final Map<UUID, Long> counted_in_chunk;
+    private final Set<UUID> counted_unoptimized;
+    private @Nullable RegionTickTime region_tick_time;
+    /**
+     * When the chunks of the running check started being looked at, 0 if none are.
+     */
+    private final AtomicLong optimizing_since;
+    private ScheduledTask periodic_tick_time_check;
+    private final long check_period;
+    private final double optimize_above_mspt, restore_below_mspt;
+    private final int villagers_per_check, min_villagers_per_chunk, max_per_chunk_per_check;
+    private final boolean log_enabled;
+    private volatile boolean enabled, governing;
+
+    public TickTimeGovernor() {
+        super("tick-time-governor");
+        config.master().addComment(configPath + ".enable",
+                "Temporarily optimizes villagers when the server is struggling to keep up and unoptimizes them again\n" +
+                "once it has recovered. Villagers in crowded chunks that haven't been traded with in the longest time\n" +
+                "are optimized first. Unlike the chunk limit, no villagers are removed.");
+        this.check_period = Math.max(1, config.getInt(configPath + ".check-period-in-ticks", 100,
+                "How often to look at the average tick time of the server. 1 second = 20 ticks\n" +
+                "On Folia, every region ticks on its own, so villagers are optimized and unoptimized based on\n" +
+                "the tick time of the region they are in instead."));
+        this.optimize_above_mspt = config.getDouble(configPath + ".optimize-above-mspt", 45.0,
+                "Villagers are optimized while the average milliseconds per tick are above this value.\n" +
+                "A server has to stay below 50 to run at the full 20 ticks per second.");
+        this.restore_below_mspt = Math.min(optimize_above_mspt, config.getDouble(configPath + ".restore-below-mspt", 35.0,
+                "Villagers are unoptimized again while the average milliseconds per tick are below this value.\n" +
+                "Keep some distance to optimize-above-mspt, so the villagers don't get the server straight back\n" +
+                "over it and are optimized and unoptimized over and over."));
+        this.villagers_per_check = Math.max(1, config.getInt(configPath + ".villagers-per-check", 50,
+                "The maximum amount of villagers to optimize or unoptimize per check, so the tick time can settle\n" +
+                "before more villagers are changed."));
+        this.min_villagers_per_chunk = Math.max(1, config.getInt(configPath + ".min-villagers-per-chunk", 8,
+                "Only optimize villagers in chunks with at least this many villagers."));
+        this.max_per_chunk_per_check = Math.max(1, config.getInt(configPath + ".max-per-chunk-per-check", 10,
+                "The maximum amount of villagers to optimize in a single chunk per check."));
+        this.log_enabled = config.getBoolean(configPath + ".log", false);
+        this.governed = ConcurrentHashMap.newKeySet();
+        this.villagers_per_chunk = new ConcurrentHashMap<>();
+        this.unoptimized_per_chunk = new ConcurrentHashMap<>();
+        this.counted_in_chunk = new ConcurrentHashMap<>();
+        this.counted_unoptimized = ConcurrentHashMap.newKeySet();
+        this.optimizing_since = new AtomicLong();
+    }
+
+    @Override
+    public void enable() {
+        enabled = true;
+        region_tick_time = RegionTickTime.find();
+        registerEvents(this);
+        // Villagers that are already loaded won't be added to the world again
+        for (World world : plugin.getServer().getWorlds()) {
+            final Chunk[] loadedChunks = world.getLoadedChunks();
+            final long[] chunkKeys = new long[loadedChunks.length];
+            for (int i = 0; i < loadedChunks.length; i++) {
+                chunkKeys[i] = loadedChunks[i].getChunkKey();
+            }
+            ChunkBatch.of(world, chunkKeys).forEachEntity(scheduling, this::countIfVillager);
+        }
+        periodic_tick_time_check = scheduling.globalRegionalScheduler().runAtFixedRate(timed(this), check_period, check_period);
+    }
+
+    @Override
+    public boolean shouldEnable() {
+        return config.getBoolean(configPath + ".enable", false);
+    }
+
+    @Override
+    public void disable() {
+        enabled = false;
+        HandlerList.unregisterAll(this);
+        if (periodic_tick_time_check != null) periodic_tick_time_check.cancel();
+        // Don't leave villagers optimized that nobody asked to be optimized
+        for (Villager villager : governed) {
+            scheduling.entitySpecificScheduler(villager).run(() -> restore(villager), null);
+        }
+        governed.clear();
+        villagers_per_chunk.clear();
+        unoptimized_per_chunk.clear();
+        counted_in_chunk.clear();
+        counted_unoptimized.clear();
+        governing = false;
+    }
+
+    @Override
+    public void run() {
+        if (region_tick_time != null) {
+            // Every chunk and villager is judged by the tick time of its own region once there
+            optimizeCrowdedChunks();
+            restoreSome();
+            return;
+        }
+
+        final double mspt = plugin.getServer().getAverageTickTime();
+
+        if (mspt > optimize_above_mspt) {
+            if (!governing) {
+                governing = true;
+                if (log_enabled) info("Average tick time is " + String.format(Locale.ROOT, "%.2f", mspt) + "ms, optimizing villagers.");
+            }
+            optimizeCrowdedChunks();
+        } else if (mspt < restore_below_mspt) {
+            if (governing) {
+                governing = false;
+                if (log_enabled) info("Average tick time is " + String.format(Locale.ROOT, "%.2f", mspt) + "ms, unoptimizing " +
+                        governed.size() + " villagers.");
+            }
+            restoreSome();
+        }
+    }
+
+    /**
+     * @return The average milliseconds per tick that apply to the current thread: those of the region it ticks
+     * on Folia, otherwise those of the server. {@link Double#NaN} if that isn't known, which never counts as lagging.
+     */
+    private double currentMspt() {
+        return region_tick_time != null ? region_tick_time.currentRegionMspt() : plugin.getServer().getAverageTickTime();
+    }
+
+    /**
+     * Looks at the most crowded chunks one after another and stops as soon as enough villagers were optimized,
+     * so a check never queues more than one chunk at a time.
+     */
+    private void optimizeCrowdedChunks() {
+        final long now = System.nanoTime(), since = optimizing_since.get();
+        // Let the previous check finish first, unless it got stuck on a chunk that was unloaded in the meantime
+        if (since != 0 && now - since < TimeUnit.MILLISECONDS.toNanos(check_period * 50L * 10L)) return;
+        if (!optimizing_since.compareAndSet(since, now)) return;
+        optimizeNext(crowdedChunks().iterator(), new AtomicInteger(villagers_per_check), now);
+    }
+
+    private void optimizeNext(@NotNull Iterator<CrowdedChunk> crowdedChunks, @NotNull AtomicInteger budget, long since) {
+        if (!enabled || budget.get() <= 0 || !crowdedChunks.hasNext()) {
+            optimizing_since.compareAndSet(since, 0L);
+            return;
+        }
+
+        final CrowdedChunk next = crowdedChunks.next();
+        scheduling.regionSpecificScheduler(next.world, next.chunkX, next.chunkZ).run(timed(() -> {
+            try {
+                if (enabled && next.world.isChunkLoaded(next.chunkX, next.chunkZ) && currentMspt() > optimize_above_mspt) {
+                    optimizeLeastTraded(next.world.getChunkAt(next.chunkX, next.chunkZ), budget);
+                }
+            } finally {
+                optimizeNext(crowdedChunks, budget, since);
+            }
+        }));
+    }
+
+    /**
+     * @return The chunks with at least {@link #min_villagers_per_chunk} villagers of which some aren't optimized yet,
+     * the ones with the most unoptimized villagers first.
+     */
+    private @NotNull List<CrowdedChunk> crowdedChunks() {
+        final List<CrowdedChunk> crowdedChunks = new ArrayList<>();
+        for (Map.Entry<UUID, Map<Long, Integer>> worldCounts : unoptimized_per_chunk.entrySet()) {
+            final World world = plugin.getServer().getWorld(worldCounts.getKey());
+            final Map<Long, Integer> allInWorld = villagers_per_chunk.get(worldCounts.getKey());
+            if (world == null || allInWorld == null) continue;
+            for (Map.Entry<Long, Integer> chunkCount : worldCounts.getValue().entrySet()) {
+                if (allInWorld.getOrDefault(chunkCount.getKey(), 0) >= min_villagers_per_chunk) {
+                    crowdedChunks.add(new CrowdedChunk(world, chunkCount.getKey(), chunkCount.getValue()));
+                }
+            }
+        }
+        crowdedChunks.sort(Comparator.comparingInt((CrowdedChunk crowded) -> crowded.unoptimized).reversed());
+        return crowdedChunks;
+    }
+
+    private void optimizeLeastTraded(@NotNull Chunk chunk, @NotNull AtomicInteger budget) {
+        final List<WrappedVillager> candidates = new ArrayList<>();
+        int villagerCount = 0;
+
+        for (Entity entity : chunk.getEntities()) {
+            if (entity.getType() != XEntityType.VILLAGER.get()) continue;
+            villagerCount++;
+            final WrappedVillager wrapped = wrapperCache.get((Villager) entity, WrappedVillager::new);
+            final boolean unoptimized = !wrapped.isOptimized();
+            count((Villager) entity, unoptimized);
+            if (unoptimized) candidates.add(wrapped);
+        }
+
+        if (villagerCount < min_villagers_per_chunk || candidates.isEmpty()) return;
+
+        candidates.sort(Comparator.comparingLong(TickTimeGovernor::lastTradeTime));
+
+        int optimized = 0;
+        for (int i = 0; i < candidates.size() && i < max_per_chunk_per_check; i++) {
+            if (budget.getAndDecrement() <= 0) break;
+
+            final WrappedVillager wrapped = candidates.get(i);
+            VillagerOptimizeEvent optimizeEvent = new VillagerOptimizeEvent(wrapped, OptimizationType.GOVERNOR, null);
+            if (!optimizeEvent.callEvent()) continue;
+
+            wrapped.setOptimizationType(optimizeEvent.getOptimizationType());
+            if (optimizeEvent.getOptimizationType() == OptimizationType.GOVERNOR) {
+                governed.add(wrapped.villager);
+                optimized++;
+            }
+        }
+
+        if (log_enabled && region_tick_time != null && optimized > 0) {
+            info("Region tick time is " + String.format(Locale.ROOT, "%.2f", currentMspt()) + "ms, optimized " + optimized +
+                    " villagers in chunk x=" + chunk.getX() + ", z=" + chunk.getZ() + " in world " + chunk.getWorld().getName() + ".");
+        }
+    }
+
+    private void restoreSome() {
+        if (governed.isEmpty()) return;
+        final List<Villager> snapshot = new ArrayList<>(governed);
+        // Start somewhere else every time, so villagers in regions that are still lagging can't keep the rest waiting
+        final int start = ThreadLocalRandom.current().nextInt(snapshot.size());
+        for (int i = 0; i < snapshot.size() && i < villagers_per_check; i++) {
+            final Villager villager = snapshot.get((start + i) % snapshot.size());
+            if (!governed.remove(villager)) continue;
+            scheduling.entitySpecificScheduler(villager).run(() -> restoreIfRecovered(villager), null);
+        }
+    }
+
+    private void restoreIfRecovered(@NotNull Villager villager) {
+        if (!villager.isValid()) return;
+
+        // Also restores if the tick time isn't known, so villagers are never left optimized by a guess
+        if (!(currentMspt() >= restore_below_mspt)) {
+            restore(villager);
+        } else if (wrapperCache.get(villager, WrappedVillager::new).getOptimizationType() == OptimizationType.GOVERNOR) {
+            governed.add(villager);
+        }
+    }
+
+    private void restore(@NotNull Villager villager) {
+        if (!villager.isValid()) return;
+
+        final WrappedVillager wrapped = wrapperCache.get(villager, WrappedVillager::new);
+        // Villagers that were optimized in a different way since then are left alone
+        if (wrapped.getOptimizationType() != OptimizationType.GOVERNOR) return;
+
+        VillagerUnoptimizeEvent unOptimizeEvent = new VillagerUnoptimizeEvent(wrapped, null, OptimizationType.GOVERNOR);
+        if (!unOptimizeEvent.callEvent()) return;
+
+        wrapped.setOptimizationType(OptimizationType.NONE);
+    }
+
+    private void countIfVillager(@NotNull Entity entity) {
+        if (entity.getType() == XEntityType.VILLAGER.get()) {
+            final Villager villager = (Villager) entity;
+            count(villager, !wrapperCache.get(villager, WrappedVillager::new).isOptimized());
+        }
+    }
+
+    private void count(@NotNull Villager villager, boolean unoptimized) {
+        final Location location = villager.getLocation();
+        final UUID worldUID = location.getWorld().getUID();
+        final long chunkKey = Chunk.getChunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+        final Long previousChunkKey = counted_in_chunk.put(villager.getUniqueId(), chunkKey);
+        final boolean wasUnoptimized = unoptimized
+                ? !counted_unoptimized.add(villager.getUniqueId())
+                : counted_unoptimized.remove(villager.getUniqueId());
+        if (previousChunkKey != null && previousChunkKey == chunkKey && wasUnoptimized == unoptimized) return;
+
+        if (previousChunkKey != null) {
+            adjust(villagers_per_chunk, worldUID, previousChunkKey, -1);
+            if (wasUnoptimized) adjust(unoptimized_per_chunk, worldUID, previousChunkKey, -1);
+        }
+        adjust(villagers_per_chunk, worldUID, chunkKey, 1);
+        if (unoptimized) adjust(unoptimized_per_chunk, worldUID, chunkKey, 1);
+    }
+
+    private void uncount(@NotNull Villager villager) {
+        final Long chunkKey = counted_in_chunk.remove(villager.getUniqueId());
+        final boolean wasUnoptimized = counted_unoptimized.remove(villager.getUniqueId());
+        if (chunkKey == null) return;
+        final UUID worldUID = villager.getWorld().getUID();
+        adjust(villagers_per_chunk, worldUID, chunkKey, -1);
+        if (wasUnoptimized) adjust(unoptimized_per_chunk, worldUID, chunkKey, -1);
+    }
+
+    private static void adjust(@NotNull Map<UUID, Map<Long, Integer>> counts, @NotNull UUID worldUID, long chunkKey, int change) {
+        if (change > 0) {
+            counts.computeIfAbsent(worldUID, uid -> new ConcurrentHashMap<>()).merge(chunkKey, change, Integer::sum);
+            return;
+        }
+        final Map<Long, Integer> worldCounts = counts.get(worldUID);
+        if (worldCounts != null) worldCounts.computeIfPresent(chunkKey, (key, count) -> count + change > 0 ? count + change : null);
+    }
+
+    private static long lastTradeTime(@NotNull WrappedVillager wrapped) {
+        final Long lastTrade = wrapped.villager.getPersistentDataContainer()
+                .get(Keyring.VillagerOptimizer.LAST_TRADE_SYSTIME_MILLIS.getKey(), PersistentDataType.LONG);
+        return lastTrade == null ? 0L : lastTrade;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    private void onTrade(PlayerTradeEvent event) {
+        if (event.getVillager().getType() == XEntityType.VILLAGER.get()) {
+            event.getVillager().getPersistentDataContainer().set(
+                    Keyring.VillagerOptimizer.LAST_TRADE_SYSTIME_MILLIS.getKey(), PersistentDataType.LONG, System.currentTimeMillis());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    private void onOptimize(VillagerOptimizeEvent event) {
+        final Villager villager = event.getWrappedVillager().villager;
+        if (counted_in_chunk.containsKey(villager.getUniqueId())) count(villager, false);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    private void onUnoptimize(VillagerUnoptimizeEvent event) {
+        final Villager villager = event.getWrappedVillager().villager;
+        governed.remove(villager);
+        if (counted_in_chunk.containsKey(villager.getUniqueId())) count(villager, true);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void onEntitiesLoad(EntitiesLoadEvent event) {
+        for (Entity entity : event.getEntities()) {
+            if (entity.getType() != XEntityType.VILLAGER.get()) continue;
+            final Villager villager = (Villager) entity;
+            if (wrapperCache.get(villager, WrappedVillager::new).getOptimizationType() == OptimizationType.GOVERNOR) {
+                restoreIfRecovered(villager);
+            }
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void onAdd(EntityAddToWorldEvent event) {
+        countIfVillager(event.getEntity());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void onRemove(EntityRemoveFromWorldEvent event) {
+        if (event.getEntityType() == XEntityType.VILLAGER.get()) {
+            governed.remove(event.getEntity());
+            uncount((Villager) event.getEntity());
+        }
+    }
+
+    private static final class CrowdedChunk {
+
+        private final World world;
+        private final int chunkX, chunkZ, unoptimized;
+
+        private CrowdedChunk(@NotNull World world, long chunkKey, int unoptimized) {
+            this.world = world;
+            this.chunkX = (int) chunkKey;
+            this.chunkZ = (int) (chunkKey >> 32);
+            this.unoptimized = unoptimized;
+        }
+    }
+
+    /**
+     * Reads the tick time of the region the current thread is ticking on Folia. Folia has no API for this,
+     * so it is read the same way its own /tps command does, through reflection.
+     */
+    private static final class RegionTickTime {
+
+        private Method getCurrentRegion, getData, getRegionSchedulingHandle, getTickReport5s,
+                timePerTickData, segmentAll, average;
+        private volatile boolean failed;
+
+        private RegionTickTime() {
+            final String threadedRegions = "io.papermc.paper.threadedregions.";
+            try {
+                this.getCurrentRegion = Class.forName(threadedRegions + "TickRegionScheduler").getMethod("getCurrentRegion");
+                this.getData = Class.forName(threadedRegions + "ThreadedRegionizer$ThreadedRegion").getMethod("getData");
+                this.getRegionSchedulingHandle = Class.forName(threadedRegions + "TickRegions$TickRegionData").getMethod("getRegionSchedulingHandle");
+                this.getTickReport5s = Class.forName(threadedRegions + "TickRegionScheduler$RegionScheduleHandle").getMethod("getTickReport5s", long.class);
+                this.timePerTickData = Class.forName(threadedRegions + "TickData$TickReportData").getMethod("timePerTickData");
+                this.segmentAll = Class.forName(threadedRegions + "TickData$SegmentedAverage").getMethod("segmentAll");
+                this.average = Class.forName(threadedRegions + "TickData$SegmentData").getMethod("average");
+            } catch (ReflectiveOperationException e) {
+                fail(e);
+            }
+        }
+
+        /**
+         * @return The region tick time reader, or null if this isn't a Folia server.
+         */
+        private static @Nullable RegionTickTime find() {
+            try {
+                Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+                return new RegionTickTime();
+            } catch (ClassNotFoundException e) {
+                return null;
+            }
+        }
+
+        /**
+         * @return The average milliseconds per tick of the region ticking on the current thread over the last
+         * 5 seconds, or {@link Double#NaN} if the current thread isn't ticking a region or it can't be read.
+         */
+        private double currentRegionMspt() {
+            if (failed) return Double.NaN;
+            try {
+                final Object region = getCurrentRegion.invoke(null);
+                if (region == null) return Double.NaN;
+                final Object handle = getRegionSchedulingHandle.invoke(getData.invoke(region));
+                final Object report = getTickReport5s.invoke(handle, System.nanoTime());
+                if (report == null) return Double.NaN; // Not enough ticks yet
+                return (double) average.invoke(segmentAll.invoke(timePerTickData.invoke(report))) / 1.0E6;
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                fail(e);
+                return Double.NaN;
+            }
+        }
+
+        private void fail(@NotNull Throwable throwable) {
+            failed = true;
+            // The server wide average says nothing about a single region, so better do nothing than guess
+            VillagerOptimizer.logger().warn("Unable to read region tick times on this Folia version. The tick time " +
+                    "governor will not optimize any more villagers and unoptimizes the ones it did.", throwable);
+        }
+    }
+}
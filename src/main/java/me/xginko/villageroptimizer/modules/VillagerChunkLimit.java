@@ -1,11 +1,17 @@
 package me.xginko.villageroptimizer.modules;
 
 import com.cryptomorin.xseries.XEntityType;
+import com.destroystokyo.paper.event.entity.EntityAddToWorldEvent;
+import com.destroystokyo.paper.event.entity.EntityRemoveFromWorldEvent;
+import me.xginko.villageroptimizer.events.VillagerOptimizeEvent;
+import me.xginko.villageroptimizer.events.VillagerUnoptimizeEvent;
+import me.xginko.villageroptimizer.utils.ChunkBatch;
 import me.xginko.villageroptimizer.utils.ExpiringSet;
 import me.xginko.villageroptimizer.utils.LocationUtil;
 import me.xginko.villageroptimizer.utils.Util;
 import me.xginko.villageroptimizer.wrapper.WrappedVillager;
 import org.bukkit.Chunk;
+import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Villager;
@@ -14,6 +20,7 @@ import org.bukkit.event.EventPriority;
 import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 import org.bukkit.event.entity.CreatureSpawnEvent;
+import org.bukkit.event.entity.EntityBreedEvent;
 import org.bukkit.event.player.PlayerInteractEntityEvent;
 import org.jetbrains.annotations.NotNull;
 import space.arim.morepaperlib.scheduling.ScheduledTask;
@@ -21,25 +28,32 @@ import space.arim.morepaperlib.scheduling.ScheduledTask;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class VillagerChunkLimit extends VillagerOptimizerModule implements Runnable, Listener {
 
     private ScheduledTask periodic_chunk_check;
-    private final List<Villager.Profession> non_optimized_removal_priority, optimized_removal_priority;
+    private final Map<Villager.Profession, Integer> non_optimized_removal_priority, optimized_removal_priority;
     private final Set<Villager.Profession> profession_whitelist;
     private final ExpiringSet<Chunk> checked_chunks;
+    private final SpawnAdmission spawn_admission;
     private final long check_period;
     private final int non_optimized_max_per_chunk, optimized_max_per_chunk;
     private final boolean log_enabled, skip_unloaded_chunks, use_whitelist;
 
-    protected VillagerChunkLimit() {
+    public VillagerChunkLimit() {
         super("villager-chunk-limit");
         config.master().addComment(configPath + ".enable",
                 "Checks chunks for too many villagers and removes excess villagers based on priority.");
@@ -85,7 +99,7 @@ public class VillagerChunkLimit extends VillagerOptimizerModule implements Runna
                 .collect(Collectors.toCollection(HashSet::new));
         this.non_optimized_max_per_chunk = config.getInt(configPath + ".unoptimized.max-per-chunk", 20,
                 "The maximum amount of unoptimized villagers per chunk.");
-        this.non_optimized_removal_priority = config.getList(configPath + ".unoptimized.removal-priority", new ArrayList<>(defaults),
+        this.non_optimized_removal_priority = priorityIndex(config.getList(configPath + ".unoptimized.removal-priority", new ArrayList<>(defaults),
                         "Professions that are in the top of the list are going to be scheduled for removal first.\n" +
                         "Use enums from https://jd.papermc.io/paper/1.20/org/bukkit/entity/Villager.Profession.html")
                 .stream()
@@ -100,10 +114,10 @@ public class VillagerChunkLimit extends VillagerOptimizerModule implements Runna
                     }
                 })
                 .filter(Objects::nonNull)
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
         this.optimized_max_per_chunk = config.getInt(configPath + ".optimized.max-per-chunk", 60,
                 "The maximum amount of optimized villagers per chunk.");
-        this.optimized_removal_priority = config.getList(configPath + ".optimized.removal-priority", new ArrayList<>(defaults))
+        this.optimized_removal_priority = priorityIndex(config.getList(configPath + ".optimized.removal-priority", new ArrayList<>(defaults))
                 .stream()
                 .map(configuredProfession -> {
                     try {
@@ -116,13 +130,48 @@ public class VillagerChunkLimit extends VillagerOptimizerModule implements Runna
                     }
                 })
                 .filter(Objects::nonNull)
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
+        if (config.getBoolean(configPath + ".admission-control.enable", false,
+                "Prevents new unoptimized villagers from spawning in chunks that are already at the unoptimized limit,\n" +
+                "instead of letting them spawn and removing them on the next check.\n" +
+                "Villagers are counted live as they are added, removed, optimized and unoptimized.")) {
+            this.spawn_admission = new SpawnAdmission(config.getList(configPath + ".admission-control.spawn-reasons",
+                            Arrays.asList("BREEDING", "CURED", "SPAWNER_EGG", "DISPENSE_EGG"),
+                            "Villagers spawning for these reasons are refused if the chunk is full. Breeding is also stopped\n" +
+                            "before the parents use up their food. Use enums from\n" +
+                            "https://jd.papermc.io/paper/1.20/org/bukkit/event/entity/CreatureSpawnEvent.SpawnReason.html")
+                    .stream()
+                    .map(configuredReason -> {
+                        try {
+                            return CreatureSpawnEvent.SpawnReason.valueOf(configuredReason);
+                        } catch (IllegalArgumentException e) {
+                            notRecognized(CreatureSpawnEvent.SpawnReason.class, configuredReason);
+                            return null;
+                        }
+                    })
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toCollection(() -> EnumSet.noneOf(CreatureSpawnEvent.SpawnReason.class))));
+        } else {
+            this.spawn_admission = null;
+        }
     }
 
     @Override
     public void enable() {
-        plugin.getServer().getPluginManager().registerEvents(this, plugin);
-        periodic_chunk_check = scheduling.globalRegionalScheduler().runAtFixedRate(this, check_period, check_period);
+        registerEvents(this);
+        if (spawn_admission != null) {
+            registerEvents(spawn_admission);
+            // Villagers that are already loaded won't be added to the world again
+            for (World world : plugin.getServer().getWorlds()) {
+                final Chunk[] loadedChunks = world.getLoadedChunks();
+                final long[] chunkKeys = new long[loadedChunks.length];
+                for (int i = 0; i < loadedChunks.length; i++) {
+                    chunkKeys[i] = loadedChunks[i].getChunkKey();
+                }
+                ChunkBatch.of(world, chunkKeys).forEachEntity(scheduling, spawn_admission::countIfLimited);
+            }
+        }
+        periodic_chunk_check = scheduling.globalRegionalScheduler().runAtFixedRate(timed(this), check_period, check_period);
     }
 
     @Override
@@ -133,6 +182,10 @@ public class VillagerChunkLimit extends VillagerOptimizerModule implements Runna
     @Override
     public void disable() {
         HandlerList.unregisterAll(this);
+        if (spawn_admission != null) {
+            HandlerList.unregisterAll(spawn_admission);
+            spawn_admission.clear();
+        }
         if (periodic_chunk_check != null) periodic_chunk_check.cancel();
     }
 
@@ -140,11 +193,11 @@ public class VillagerChunkLimit extends VillagerOptimizerModule implements Runna
     public void run() {
         for (World world : plugin.getServer().getWorlds()) {
             for (Chunk chunk : world.getLoadedChunks()) {
-                scheduling.regionSpecificScheduler(chunk.getWorld(), chunk.getX(), chunk.getZ()).run(() -> {
+                scheduling.regionSpecificScheduler(chunk.getWorld(), chunk.getX(), chunk.getZ()).run(timed(() -> {
                     if (!skip_unloaded_chunks || Util.isChunkLoaded(chunk)) {
                         manageVillagerCount(chunk);
                     }
-                });
+                }));
             }
         }
     }
@@ -152,18 +205,18 @@ public class VillagerChunkLimit extends VillagerOptimizerModule implements Runna
     @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
     private void onCreatureSpawn(CreatureSpawnEvent event) {
         if (event.getEntityType() == XEntityType.VILLAGER.get()) {
-            scheduling.regionSpecificScheduler(event.getLocation()).run(() -> {
+            scheduling.regionSpecificScheduler(event.getLocation()).run(timed(() -> {
                 manageVillagerCount(event.getEntity().getChunk());
-            });
+            }));
         }
     }
 
     @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
     private void onInteract(PlayerInteractEntityEvent event) {
         if (event.getRightClicked().getType() == XEntityType.VILLAGER.get()) {
-            scheduling.regionSpecificScheduler(event.getRightClicked().getLocation()).run(() -> {
+            scheduling.regionSpecificScheduler(event.getRightClicked().getLocation()).run(timed(() -> {
                 manageVillagerCount(event.getRightClicked().getChunk());
-            });
+            }));
         }
     }
 
@@ -191,42 +244,168 @@ public class VillagerChunkLimit extends VillagerOptimizerModule implements Runna
             }
         }
 
+        // Villagers walk between chunks without an event, so correct the live counts while we're at it
+        if (spawn_admission != null) {
+            for (Villager villager : not_optimized_villagers) {
+                spawn_admission.count(villager);
+            }
+        }
+
         // Check if there are more unoptimized villagers in that chunk than allowed
-        final int not_optimized_villagers_too_many = not_optimized_villagers.size() - non_optimized_max_per_chunk;
-        if (not_optimized_villagers_too_many > 0) {
-            // Sort villagers by profession priority
-            not_optimized_villagers.sort(Comparator.comparingInt(villager -> {
-                final Villager.Profession profession = villager.getProfession();
-                return non_optimized_removal_priority.contains(profession) ? non_optimized_removal_priority.indexOf(profession) : Integer.MAX_VALUE;
-            }));
-            // Remove prioritized villagers that are too many
-            for (int i = 0; i < not_optimized_villagers_too_many; i++) {
-                Villager villager = not_optimized_villagers.get(i);
-                scheduling.entitySpecificScheduler(villager).run(kill -> {
-                    villager.remove();
-                    if (log_enabled) info("Removed unoptimized villager with profession '" +
-                            Util.toNiceString(villager.getProfession()) + "' at " + LocationUtil.toString(villager.getLocation()));
-                }, null);
+        // Remove prioritized unoptimized villagers that are too many
+        for (Villager villager : selectForRemoval(not_optimized_villagers, non_optimized_max_per_chunk, non_optimized_removal_priority)) {
+            scheduling.entitySpecificScheduler(villager).run(timed(kill -> {
+                villager.remove();
+                if (log_enabled) info("Removed unoptimized villager with profession '" +
+                        Util.toNiceString(villager.getProfession()) + "' at " + LocationUtil.toString(villager.getLocation()));
+            }), null);
+        }
+
+        // Remove prioritized optimized villagers that are too many
+        for (Villager villager : selectForRemoval(optimized_villagers, optimized_max_per_chunk, optimized_removal_priority)) {
+            scheduling.entitySpecificScheduler(villager).run(timed(kill -> {
+                villager.remove();
+                if (log_enabled) info("Removed unoptimized villager with profession '" +
+                        Util.toNiceString(villager.getProfession()) + "' at " + LocationUtil.toString(villager.getLocation()));
+            }), null);
+        }
+    }
+
+    /**
+     * @param villagers The villagers of a chunk. Will be sorted by removal priority if there are too many.
+     * @param maxPerChunk The maximum amount of villagers allowed.
+     * @param removalPriority The removal priority of each profession, lower gets removed first.
+     * @return The villagers that exceed the limit, in the order they should be removed.
+     */
+    public static @NotNull List<Villager> selectForRemoval(
+            @NotNull List<Villager> villagers, int maxPerChunk, @NotNull Map<Villager.Profession, Integer> removalPriority
+    ) {
+        final int tooMany = villagers.size() - maxPerChunk;
+        if (tooMany <= 0) return Collections.emptyList();
+
+        villagers.sort(Comparator.comparingInt(villager -> removalPriority.getOrDefault(villager.getProfession(), Integer.MAX_VALUE)));
+        return villagers.subList(0, tooMany);
+    }
+
+    /**
+     * @param professions The professions in order of priority.
+     * @return A lookup of the index each profession first appears at.
+     */
+    public static @NotNull Map<Villager.Profession, Integer> priorityIndex(@NotNull List<Villager.Profession> professions) {
+        final Map<Villager.Profession, Integer> index = new HashMap<>(professions.size());
+        for (int i = 0; i < professions.size(); i++) {
+            index.putIfAbsent(professions.get(i), i);
+        }
+        return index;
+    }
+
+    /**
+     * Keeps a live count of unoptimized villagers per chunk so spawns can be refused before they happen.
+     * The counts are updated when villagers are added to or removed from a world, optimized or unoptimized,
+     * and corrected by the periodic chunk check for villagers that walked into another chunk.
+     */
+    private final class SpawnAdmission implements Listener {
+
+        private final Set<CreatureSpawnEvent.SpawnReason> spawn_reasons;
+        private final Map<UUID, Map<Long, Integer>> villagers_per_chunk;
+        private final Map<UUID, Long> counted_in_chunk;
+
+        private SpawnAdmission(@NotNull Set<CreatureSpawnEvent.SpawnReason> spawnReasons) {
+            this.spawn_reasons = spawnReasons;
+            this.villagers_per_chunk = new ConcurrentHashMap<>();
+            this.counted_in_chunk = new ConcurrentHashMap<>();
+        }
+
+        private boolean isLimited(@NotNull Villager villager) {
+            return !use_whitelist || !profession_whitelist.contains(villager.getProfession());
+        }
+
+        private void countIfLimited(@NotNull Entity entity) {
+            if (entity.getType() != XEntityType.VILLAGER.get()) return;
+            final Villager villager = (Villager) entity;
+            if (isLimited(villager) && !wrapperCache.get(villager, WrappedVillager::new).isOptimized()) {
+                count(villager);
             }
         }
 
-        // Check if there are more optimized villagers in that chunk than allowed
-        final int optimized_villagers_too_many = optimized_villagers.size() - optimized_max_per_chunk;
-        if (optimized_villagers_too_many > 0) {
-            // Sort villagers by profession priority
-            optimized_villagers.sort(Comparator.comparingInt(villager -> {
-                final Villager.Profession profession = villager.getProfession();
-                return optimized_removal_priority.contains(profession) ? optimized_removal_priority.indexOf(profession) : Integer.MAX_VALUE;
-            }));
-            // Remove prioritized villagers that are too many
-            for (int i = 0; i < optimized_villagers_too_many; i++) {
-                Villager villager = optimized_villagers.get(i);
-                scheduling.entitySpecificScheduler(villager).run(kill -> {
-                    villager.remove();
-                    if (log_enabled) info("Removed unoptimized villager with profession '" +
-                            Util.toNiceString(villager.getProfession()) + "' at " + LocationUtil.toString(villager.getLocation()));
-                }, null);
+        private void count(@NotNull Villager villager) {
+            final Location location = villager.getLocation();
+            final long chunkKey = Chunk.getChunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+            final Long previousChunkKey = counted_in_chunk.put(villager.getUniqueId(), chunkKey);
+            if (previousChunkKey != null && previousChunkKey == chunkKey) return;
+
+            final Map<Long, Integer> worldCounts = villagers_per_chunk.computeIfAbsent(location.getWorld().getUID(), uid -> new ConcurrentHashMap<>());
+            if (previousChunkKey != null) worldCounts.computeIfPresent(previousChunkKey, (key, count) -> count > 1 ? count - 1 : null);
+            worldCounts.merge(chunkKey, 1, Integer::sum);
+        }
+
+        private void uncount(@NotNull Villager villager) {
+            final Long chunkKey = counted_in_chunk.remove(villager.getUniqueId());
+            if (chunkKey == null) return;
+            final Map<Long, Integer> worldCounts = villagers_per_chunk.get(villager.getWorld().getUID());
+            if (worldCounts != null) worldCounts.computeIfPresent(chunkKey, (key, count) -> count > 1 ? count - 1 : null);
+        }
+
+        private boolean isFull(@NotNull Location location) {
+            final Map<Long, Integer> worldCounts = villagers_per_chunk.get(location.getWorld().getUID());
+            if (worldCounts == null) return false;
+            final Integer count = worldCounts.get(Chunk.getChunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4));
+            return count != null && count >= non_optimized_max_per_chunk;
+        }
+
+        private void clear() {
+            villagers_per_chunk.clear();
+            counted_in_chunk.clear();
+        }
+
+        @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+        private void onCreatureSpawn(CreatureSpawnEvent event) {
+            if (
+                    event.getEntityType() == XEntityType.VILLAGER.get()
+                    && spawn_reasons.contains(event.getSpawnReason())
+                    && isLimited((Villager) event.getEntity())
+                    && isFull(event.getLocation())
+            ) {
+                event.setCancelled(true);
+                if (log_enabled) info("Refused " + Util.toNiceString(event.getSpawnReason()) + " villager spawn at " +
+                        LocationUtil.toString(event.getLocation()) + " because the chunk is at its limit.");
             }
         }
+
+        @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+        private void onBreed(EntityBreedEvent event) {
+            if (
+                    event.getEntityType() == XEntityType.VILLAGER.get()
+                    && spawn_reasons.contains(CreatureSpawnEvent.SpawnReason.BREEDING)
+                    && isLimited((Villager) event.getEntity())
+                    && isFull(event.getMother().getLocation())
+            ) {
+                event.setCancelled(true);
+            }
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR)
+        private void onAdd(EntityAddToWorldEvent event) {
+            countIfLimited(event.getEntity());
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR)
+        private void onRemove(EntityRemoveFromWorldEvent event) {
+            if (event.getEntityType() == XEntityType.VILLAGER.get()) {
+                uncount((Villager) event.getEntity());
+            }
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+        private void onOptimize(VillagerOptimizeEvent event) {
+            uncount(event.getWrappedVillager().villager);
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+        private void onUnoptimize(VillagerUnoptimizeEvent event) {
+            // Fired before the villager is unoptimized, so it can't be checked for that here
+            final Villager villager = event.getWrappedVillager().villager;
+            if (isLimited(villager)) count(villager);
+        }
     }
-}
\ No newline at end of file
+}
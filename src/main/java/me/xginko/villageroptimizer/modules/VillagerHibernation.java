@@ -0,0 +1,264 @@
+package me.xginko.villageroptimizer.modules;
+
+import com.cryptomorin.xseries.XEntityType;
+import me.xginko.villageroptimizer.enums.Keyring;
+import me.xginko.villageroptimizer.enums.OptimizationType;
+import me.xginko.villageroptimizer.utils.LocationUtil;
+import me.xginko.villageroptimizer.utils.PlayerPresence;
+import me.xginko.villageroptimizer.utils.Util;
+import me.xginko.villageroptimizer.wrapper.VillagerRecord;
+import me.xginko.villageroptimizer.wrapper.WrappedVillager;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Villager;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.jetbrains.annotations.NotNull;
+import space.arim.morepaperlib.scheduling.ScheduledTask;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+public class VillagerHibernation extends VillagerOptimizerModule implements Runnable, Listener {
+
+    private final Map<UUID, Map<Long, Long>> last_player_presence;
+    private final Map<UUID, Set<Long>> hibernating_chunks;
+    private ScheduledTask periodic_presence_check;
+    private final long check_period, hibernate_after_millis;
+    private final int wake_radius_chunks;
+    private final boolean hibernation_enabled, log_enabled;
+
+    public VillagerHibernation() {
+        super("villager-hibernation");
+        this.hibernation_enabled = config.getBoolean(configPath + ".enable", false,
+                "Stores optimized villagers in chunks that haven't had a player nearby for a long time as compact\n" +
+                "records in the chunk's data and removes their entities. They are respawned at their exact previous\n" +
+                "position with all their trades once a player comes close again.\n" +
+                "If you disable this again, stored villagers will be respawned as soon as their chunk loads.");
+        this.check_period = Math.max(1, config.getInt(configPath + ".check-period-in-ticks", 100,
+                "Check player presence for all loaded chunks every X ticks. 1 second = 20 ticks"));
+        this.hibernate_after_millis = TimeUnit.MINUTES.toMillis(Math.max(1, config.getInt(configPath + ".hibernate-after-minutes", 180,
+                "How long no player needs to be near a loaded chunk before its optimized villagers are stored.")));
+        this.wake_radius_chunks = (int) Math.ceil(Math.max(1, config.getInt(configPath + ".wake-radius-in-blocks", 96,
+                "Stored villagers will be respawned when a player comes within this radius of their chunk.\n" +
+                "Should be larger than the entity tracking range so players never see villagers pop in.")) / 16.0);
+        this.log_enabled = config.getBoolean(configPath + ".log", false);
+        this.last_player_presence = new ConcurrentHashMap<>();
+        this.hibernating_chunks = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void enable() {
+        registerEvents(this);
+        if (hibernation_enabled) {
+            periodic_presence_check = scheduling.globalRegionalScheduler().runAtFixedRate(timed(this), check_period, check_period);
+        }
+    }
+
+    @Override
+    public boolean shouldEnable() {
+        // Always enabled so villagers that have been stored before can be restored when the feature is turned off
+        return true;
+    }
+
+    @Override
+    public void disable() {
+        HandlerList.unregisterAll(this);
+        if (periodic_presence_check != null) periodic_presence_check.cancel();
+        last_player_presence.clear();
+        hibernating_chunks.clear();
+    }
+
+    @Override
+    public void run() {
+        final long now = System.currentTimeMillis();
+
+        for (World world : plugin.getServer().getWorlds()) {
+            final PlayerPresence playerPresence = PlayerPresence.of(world);
+            final Map<Long, Long> lastPresenceInWorld = last_player_presence.computeIfAbsent(world.getUID(), uid -> new ConcurrentHashMap<>());
+            final Set<Long> hibernatingInWorld = hibernating_chunks.computeIfAbsent(world.getUID(), uid -> ConcurrentHashMap.newKeySet());
+
+            for (Chunk chunk : world.getLoadedChunks()) {
+                final long chunkKey = chunk.getChunkKey();
+
+                if (playerPresence.isPlayerNearby(chunk.getX(), chunk.getZ(), wake_radius_chunks)) {
+                    lastPresenceInWorld.put(chunkKey, now);
+                    if (hibernatingInWorld.remove(chunkKey)) {
+                        scheduling.regionSpecificScheduler(world, chunk.getX(), chunk.getZ()).run(timed(() -> wakeVillagers(chunk)));
+                    }
+                    continue;
+                }
+
+                // Chunks that are already hibernating had their villagers stored before
+                if (hibernatingInWorld.contains(chunkKey)) continue;
+
+                final Long lastPresence = lastPresenceInWorld.putIfAbsent(chunkKey, now);
+                if (lastPresence == null || now - lastPresence < hibernate_after_millis) continue;
+
+                scheduling.regionSpecificScheduler(world, chunk.getX(), chunk.getZ()).run(timed(() -> {
+                    if (Util.isChunkLoaded(chunk) && hibernateVillagers(chunk) > 0) {
+                        hibernatingInWorld.add(chunkKey);
+                    }
+                }));
+            }
+        }
+    }
+
+    private int hibernateVillagers(@NotNull Chunk chunk) {
+        final List<Villager> selected = new ArrayList<>();
+        for (Entity entity : chunk.getEntities()) {
+            if (entity.getType() != XEntityType.VILLAGER.get()) continue;
+
+            final Villager villager = (Villager) entity;
+            if (villager.isTrading() || villager.isLeashed() || villager.isInsideVehicle() || !villager.getPassengers().isEmpty()) continue;
+            final WrappedVillager wrapped = wrapperCache.get(villager, WrappedVillager::new);
+            // Villagers optimized by the tick time governor are only optimized for a while
+            if (!wrapped.isOptimized() || wrapped.getOptimizationType() == OptimizationType.GOVERNOR) continue;
+            selected.add(villager);
+        }
+
+        if (selected.isEmpty()) return 0;
+
+        final List<byte[]> records = readRecords(chunk.getPersistentDataContainer());
+        int hibernated = 0;
+
+        for (Villager villager : selected) {
+            try {
+                records.add(VillagerRecord.serialize(villager));
+                wrapperCache.invalidate(villager);
+                villager.remove();
+                hibernated++;
+            } catch (Throwable t) {
+                error("Failed to store villager at " + LocationUtil.toString(villager.getLocation()), t);
+            }
+        }
+
+        if (hibernated > 0) {
+            writeRecords(chunk.getPersistentDataContainer(), records);
+            if (log_enabled) {
+                info("Stored " + hibernated + " optimized villager(s) in chunk x=" + chunk.getX() + ", z=" + chunk.getZ() +
+                        " in world " + chunk.getWorld().getName());
+            }
+        }
+
+        return hibernated;
+    }
+
+    private void wakeVillagers(@NotNull Chunk chunk) {
+        final PersistentDataContainer chunkData = chunk.getPersistentDataContainer();
+        final List<byte[]> records = readRecords(chunkData);
+        if (records.isEmpty()) return;
+
+        final List<byte[]> failed = new ArrayList<>();
+
+        for (byte[] record : records) {
+            try {
+                final Villager villager = VillagerRecord.spawn(chunk.getWorld(), record);
+                if (villager == null) {
+                    // The villager was never removed, so the record is a stale copy
+                    warn("Dropped the record of a stored villager in chunk x=" + chunk.getX() + ", z=" + chunk.getZ() +
+                            " in world " + chunk.getWorld().getName() + " because the villager still exists.");
+                    continue;
+                }
+                // Only optimized villagers are stored, so we can skip looking at the restored data
+                wrapperCache.get(villager, WrappedVillager::new).getOptimizationTier().apply(villager);
+            } catch (Throwable t) {
+                failed.add(record);
+                error("Failed to restore a stored villager in chunk x=" + chunk.getX() + ", z=" + chunk.getZ() +
+                        " in world " + chunk.getWorld().getName() + ". Keeping its record.", t);
+            }
+        }
+
+        // Never throw away villagers that could not be restored
+        writeRecords(chunkData, failed);
+
+        if (log_enabled) {
+            info("Restored " + (records.size() - failed.size()) + " stored villager(s) in chunk x=" + chunk.getX() +
+                    ", z=" + chunk.getZ() + " in world " + chunk.getWorld().getName());
+        }
+    }
+
+    private @NotNull List<byte[]> readRecords(@NotNull PersistentDataContainer chunkData) {
+        final byte[] stored = chunkData.get(Keyring.VillagerOptimizer.HIBERNATED_VILLAGERS.getKey(), PersistentDataType.BYTE_ARRAY);
+        final List<byte[]> records = new ArrayList<>();
+        if (stored == null) return records;
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(stored))) {
+            final int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                final byte[] record = new byte[in.readInt()];
+                in.readFully(record);
+                records.add(record);
+            }
+        } catch (IOException e) {
+            error("Stored villager data of a chunk is corrupted.", e);
+        }
+
+        return records;
+    }
+
+    private void writeRecords(@NotNull PersistentDataContainer chunkData, @NotNull List<byte[]> records) {
+        if (records.isEmpty()) {
+            chunkData.remove(Keyring.VillagerOptimizer.HIBERNATED_VILLAGERS.getKey());
+            return;
+        }
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(records.size());
+            for (byte[] record : records) {
+                out.writeInt(record.length);
+                out.write(record);
+            }
+        } catch (IOException e) {
+            // Can't happen when writing to memory
+            error("Failed to write stored villager data.", e);
+            return;
+        }
+
+        chunkData.set(Keyring.VillagerOptimizer.HIBERNATED_VILLAGERS.getKey(), PersistentDataType.BYTE_ARRAY, bytes.toByteArray());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void onChunkLoad(ChunkLoadEvent event) {
+        final Chunk chunk = event.getChunk();
+        if (!chunk.getPersistentDataContainer().has(Keyring.VillagerOptimizer.HIBERNATED_VILLAGERS.getKey(), PersistentDataType.BYTE_ARRAY)) return;
+
+        if (hibernation_enabled) {
+            // Let the next presence check decide whether a player is close enough
+            hibernating_chunks.computeIfAbsent(chunk.getWorld().getUID(), uid -> ConcurrentHashMap.newKeySet()).add(chunk.getChunkKey());
+        } else {
+            scheduling.regionSpecificScheduler(chunk.getWorld(), chunk.getX(), chunk.getZ()).runDelayed(timed(() -> {
+                if (chunk.isLoaded()) wakeVillagers(chunk);
+            }), 1L);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void onChunkUnload(ChunkUnloadEvent event) {
+        final UUID worldUID = event.getWorld().getUID();
+        final long chunkKey = event.getChunk().getChunkKey();
+
+        final Map<Long, Long> lastPresenceInWorld = last_player_presence.get(worldUID);
+        if (lastPresenceInWorld != null) lastPresenceInWorld.remove(chunkKey);
+        final Set<Long> hibernatingInWorld = hibernating_chunks.get(worldUID);
+        if (hibernatingInWorld != null) hibernatingInWorld.remove(chunkKey);
+    }
+}
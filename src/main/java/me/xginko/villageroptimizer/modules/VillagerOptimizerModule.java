@@ -5,21 +5,33 @@ import me.xginko.villageroptimizer.VillagerOptimizer;
 import me.xginko.villageroptimizer.config.Config;
 import me.xginko.villageroptimizer.utils.Disableable;
 import me.xginko.villageroptimizer.utils.Enableable;
+import me.xginko.villageroptimizer.utils.LatencyProfile;
+import me.xginko.villageroptimizer.utils.ServiceIndex;
 import me.xginko.villageroptimizer.wrapper.WrappedVillager;
 import org.bukkit.entity.Villager;
-import org.reflections.Reflections;
-import org.reflections.scanners.Scanners;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.jetbrains.annotations.NotNull;
 import space.arim.morepaperlib.scheduling.GracefulScheduling;
+import space.arim.morepaperlib.scheduling.ScheduledTask;
 
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Modifier;
+import java.lang.reflect.Method;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 public abstract class VillagerOptimizerModule implements Enableable, Disableable {
 
-    private static final Reflections MODULES_PACKAGE = new Reflections(VillagerOptimizerModule.class.getPackage().getName());
     public static final Set<VillagerOptimizerModule> ENABLED_MODULES = new HashSet<>();
+    private static final Map<Class<?>, String> CONFIG_PATHS = new ConcurrentHashMap<>();
+    private static List<Class<? extends VillagerOptimizerModule>> moduleClasses;
 
     public abstract boolean shouldEnable();
 
@@ -28,6 +40,7 @@ public abstract class VillagerOptimizerModule implements Enableable, Disableable
     protected final Cache<Villager, WrappedVillager> wrapperCache;
     protected final GracefulScheduling scheduling;
     public final String configPath;
+    public final LatencyProfile profile;
     private final String logFormat;
 
     public VillagerOptimizerModule(String configPath) {
@@ -36,6 +49,7 @@ public abstract class VillagerOptimizerModule implements Enableable, Disableable
         this.wrapperCache = VillagerOptimizer.wrappers();
         this.scheduling = VillagerOptimizer.scheduling();
         this.configPath = configPath;
+        this.profile = new LatencyProfile();
         shouldEnable(); // Ensure enable option is always first
         String[] paths = configPath.split("\\.");
         if (paths.length <= 2) {
@@ -49,22 +63,142 @@ public abstract class VillagerOptimizerModule implements Enableable, Disableable
         ENABLED_MODULES.forEach(VillagerOptimizerModule::disable);
         ENABLED_MODULES.clear();
 
-        for (Class<?> clazz : MODULES_PACKAGE.get(Scanners.SubTypes.of(VillagerOptimizerModule.class).asClass())) {
-            if (clazz.isInterface() || Modifier.isAbstract(clazz.getModifiers())) continue;
-
-            try {
-                VillagerOptimizerModule module = (VillagerOptimizerModule) clazz.getDeclaredConstructor().newInstance();
-                if (module.shouldEnable()) {
-                    ENABLED_MODULES.add(module);
-                }
-            } catch (InstantiationException | IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
-                VillagerOptimizer.logger().error("Failed initialising module class '{}'.", clazz.getSimpleName(), e);
+        for (Class<? extends VillagerOptimizerModule> clazz : moduleClasses()) {
+            final VillagerOptimizerModule module = create(clazz);
+            if (module != null && module.shouldEnable()) {
+                ENABLED_MODULES.add(module);
             }
         }
 
         ENABLED_MODULES.forEach(VillagerOptimizerModule::enable);
     }
 
+    /**
+     * Only re-creates the modules whose config section differs between the two configs, leaving every
+     * other module running untouched. Changes to the general section affect all modules, so they still
+     * cause a full reload. The current config needs to be the one returned by {@link VillagerOptimizer#config()}.
+     *
+     * @return The amount of modules that were re-created.
+     */
+    public static int reloadModules(@NotNull Config previous, @NotNull Config current) {
+        if (current.differs(previous, "general")) {
+            reloadModules();
+            return moduleClasses().size();
+        }
+
+        final Map<Class<?>, VillagerOptimizerModule> running = new HashMap<>(ENABLED_MODULES.size());
+        for (VillagerOptimizerModule module : ENABLED_MODULES) {
+            running.put(module.getClass(), module);
+        }
+
+        int reloaded = 0;
+        for (Class<? extends VillagerOptimizerModule> clazz : moduleClasses()) {
+            final String configPath = CONFIG_PATHS.get(clazz);
+            if (configPath != null && !current.differs(previous, configPath)) continue;
+
+            final VillagerOptimizerModule old = running.get(clazz);
+            if (old != null) {
+                old.disable();
+                ENABLED_MODULES.remove(old);
+            }
+
+            final VillagerOptimizerModule module = create(clazz);
+            if (module != null && module.shouldEnable()) {
+                ENABLED_MODULES.add(module);
+                module.enable();
+            }
+            reloaded++;
+        }
+        return reloaded;
+    }
+
+    private static VillagerOptimizerModule create(@NotNull Class<? extends VillagerOptimizerModule> clazz) {
+        try {
+            final VillagerOptimizerModule module = clazz.getDeclaredConstructor().newInstance();
+            CONFIG_PATHS.put(clazz, module.configPath);
+            return module;
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
+            VillagerOptimizer.logger().error("Failed initialising module class '{}'.", clazz.getSimpleName(), e);
+        } catch (LinkageError e) {
+            VillagerOptimizer.logger().warn("Module class '{}' is not supported on this server version.", clazz.getSimpleName());
+        }
+        return null;
+    }
+
+    /**
+     * @return All module implementations, as listed in
+     * {@code META-INF/services/me.xginko.villageroptimizer.modules.VillagerOptimizerModule}.
+     * New modules need to be added there to be picked up.
+     */
+    private static synchronized @NotNull List<Class<? extends VillagerOptimizerModule>> moduleClasses() {
+        if (moduleClasses == null) moduleClasses = ServiceIndex.load(VillagerOptimizerModule.class);
+        return moduleClasses;
+    }
+
+    /**
+     * Registers all event handlers of the listener. If module profiling is enabled, every call is timed
+     * and recorded in this module's {@link LatencyProfile}.
+     */
+    protected void registerEvents(@NotNull Listener listener) {
+        if (!config.profile_modules) {
+            plugin.getServer().getPluginManager().registerEvents(listener, plugin);
+            return;
+        }
+
+        for (Method method : listener.getClass().getDeclaredMethods()) {
+            final EventHandler handler = method.getAnnotation(EventHandler.class);
+            if (handler == null || method.isBridge() || method.isSynthetic()) continue;
+            if (method.getParameterCount() != 1 || !Event.class.isAssignableFrom(method.getParameterTypes()[0])) continue;
+
+            final Class<? extends Event> eventClass = method.getParameterTypes()[0].asSubclass(Event.class);
+            method.setAccessible(true);
+
+            plugin.getServer().getPluginManager().registerEvent(eventClass, listener, handler.priority(), (l, event) -> {
+                if (!eventClass.isInstance(event)) return;
+                final long start = System.nanoTime();
+                try {
+                    method.invoke(l, event);
+                } catch (InvocationTargetException e) {
+                    throw new EventException(e.getCause());
+                } catch (Throwable t) {
+                    throw new EventException(t);
+                } finally {
+                    profile.record(System.nanoTime() - start);
+                }
+            }, plugin, handler.ignoreCancelled());
+        }
+    }
+
+    /**
+     * @return The task, timed and recorded in this module's {@link LatencyProfile} if module profiling is enabled.
+     */
+    protected @NotNull Runnable timed(@NotNull Runnable task) {
+        if (!config.profile_modules) return task;
+        return () -> {
+            final long start = System.nanoTime();
+            try {
+                task.run();
+            } finally {
+                profile.record(System.nanoTime() - start);
+            }
+        };
+    }
+
+    /**
+     * @return The task, timed and recorded in this module's {@link LatencyProfile} if module profiling is enabled.
+     */
+    protected @NotNull Consumer<ScheduledTask> timed(@NotNull Consumer<ScheduledTask> task) {
+        if (!config.profile_modules) return task;
+        return scheduledTask -> {
+            final long start = System.nanoTime();
+            try {
+                task.accept(scheduledTask);
+            } finally {
+                profile.record(System.nanoTime() - start);
+            }
+        };
+    }
+
     protected void error(String message, Throwable throwable) {
         VillagerOptimizer.logger().error(logFormat, message, throwable);
     }
@@ -31,7 +31,7 @@ public class EnableLeashingVillagers extends VillagerOptimizerModule implements
 
     @Override
     public void enable() {
-        plugin.getServer().getPluginManager().registerEvents(this, plugin);
+        registerEvents(this);
     }
 
     @Override
@@ -69,7 +69,7 @@ public class EnableLeashingVillagers extends VillagerOptimizerModule implements
         // If canceled by any plugin, do nothing
         if (!leashEvent.callEvent()) return;
 
-        scheduling.entitySpecificScheduler(villager).run(leash -> {
+        scheduling.entitySpecificScheduler(villager).run(timed(leash -> {
             // Legitimate to not use entities from the event object since they are final in PlayerLeashEntityEvent
             if (!villager.setLeashHolder(player)) return;
             if (player.getGameMode().equals(GameMode.SURVIVAL))
@@ -78,6 +78,6 @@ public class EnableLeashingVillagers extends VillagerOptimizerModule implements
             if (log_enabled) {
                 info(player.getName() + " leashed a villager at " + LocationUtil.toString(villager.getLocation()));
             }
-        }, null);
+        }), null);
     }
 }
@@ -18,7 +18,7 @@ public class FixOptimisationAfterCure extends VillagerOptimizerModule implements
 
     @Override
     public void enable() {
-        plugin.getServer().getPluginManager().registerEvents(this, plugin);
+        registerEvents(this);
     }
 
     @Override
@@ -38,10 +38,10 @@ public class FixOptimisationAfterCure extends VillagerOptimizerModule implements
                 && event.getTransformedEntity().getType() == XEntityType.VILLAGER.get()
         ) {
             Villager villager = (Villager) event.getTransformedEntity();
-            scheduling.entitySpecificScheduler(villager).runDelayed(() -> {
+            scheduling.entitySpecificScheduler(villager).runDelayed(timed(() -> {
                 WrappedVillager wVillager = wrapperCache.get(villager, WrappedVillager::new);
                 wVillager.setOptimizationType(wVillager.getOptimizationType());
-            }, null, 40L);
+            }), null, 40L);
         }
     }
 }
\ No newline at end of file
@@ -3,11 +3,10 @@ package me.xginko.villageroptimizer.modules.gameplay;
 import com.cryptomorin.xseries.XPotion;
 import me.xginko.villageroptimizer.VillagerOptimizer;
 import me.xginko.villageroptimizer.config.Config;
+import me.xginko.villageroptimizer.enums.OptimizationTier;
 import me.xginko.villageroptimizer.modules.VillagerOptimizerModule;
-import me.xginko.villageroptimizer.utils.KyoriUtil;
 import me.xginko.villageroptimizer.utils.Util;
 import me.xginko.villageroptimizer.wrapper.WrappedVillager;
-import net.kyori.adventure.text.TextReplacementConfig;
 import org.bukkit.entity.Player;
 import org.bukkit.entity.Villager;
 import org.bukkit.event.EventHandler;
@@ -26,7 +25,20 @@ public class LevelOptimizedProfession extends VillagerOptimizerModule implements
     private static final PotionEffect SUPER_SLOWNESS = new PotionEffect(
             XPotion.SLOWNESS.getPotionEffectType(), 120, 120, false, false);
 
-    private final boolean notify_player;
+    private static final boolean CAN_INCREASE_LEVEL;
+
+    static {
+        boolean canIncreaseLevel;
+        try {
+            Villager.class.getMethod("increaseLevel", int.class);
+            canIncreaseLevel = true;
+        } catch (NoSuchMethodException e) {
+            canIncreaseLevel = false;
+        }
+        CAN_INCREASE_LEVEL = canIncreaseLevel;
+    }
+
+    private final boolean notify_player, level_without_ai;
     private final long cooldown_millis;
 
     public LevelOptimizedProfession() {
@@ -34,18 +46,26 @@ public class LevelOptimizedProfession extends VillagerOptimizerModule implements
         Config config = VillagerOptimizer.config();
         config.master().addComment(configPath,
                 "This is needed to allow optimized villagers to level up.\n" +
-                "Temporarily enables the villagers AI to allow it to level up and then disables it again.");
+                "With level-up-without-ai, the new level and its trades are applied directly.\n" +
+                "Otherwise the villagers AI is temporarily enabled to let it level up and disabled again afterwards.");
         this.cooldown_millis = TimeUnit.SECONDS.toMillis(
                 config.getInt(configPath + ".level-check-cooldown-seconds", 5,
                 "Cooldown in seconds until the level of a villager will be checked and updated again.\n" +
                 "Recommended to leave as is."));
         this.notify_player = config.getBoolean(configPath + ".notify-player", true,
                 "Tell players to wait when a villager is leveling up.");
+        final boolean levelWithoutAI = config.getBoolean(configPath + ".level-up-without-ai", true,
+                "Apply the new level and its trades directly instead of enabling the villagers AI for 5 seconds.\n" +
+                "Needs a server version that supports Villager#increaseLevel, otherwise the AI is used.");
+        if (levelWithoutAI && !CAN_INCREASE_LEVEL) {
+            warn("Your server version does not support leveling up villagers directly. Temporarily enabling their AI instead.");
+        }
+        this.level_without_ai = levelWithoutAI && CAN_INCREASE_LEVEL;
     }
 
     @Override
     public void enable() {
-        plugin.getServer().getPluginManager().registerEvents(this, plugin);
+        registerEvents(this);
     }
 
     @Override
@@ -71,23 +91,30 @@ public class LevelOptimizedProfession extends VillagerOptimizerModule implements
             if (wVillager.canLevelUp(cooldown_millis)) {
                 if (wVillager.calculateLevel() <= villager.getVillagerLevel()) return;
 
-                scheduling.entitySpecificScheduler(villager).run(enableAI -> {
+                if (level_without_ai) {
+                    scheduling.entitySpecificScheduler(villager).run(timed(levelUp -> {
+                        final int levels = wVillager.calculateLevel() - villager.getVillagerLevel();
+                        if (levels > 0 && villager.increaseLevel(levels)) {
+                            wVillager.saveLastLevelUp();
+                        }
+                    }), null);
+                    return;
+                }
+
+                scheduling.entitySpecificScheduler(villager).run(timed(enableAI -> {
+                    final OptimizationTier tier = wVillager.getOptimizationTier();
                     villager.addPotionEffect(SUPER_SLOWNESS);
-                    villager.setAware(true);
-                    scheduling.entitySpecificScheduler(villager).runDelayed(disableAI -> {
-                        villager.setAware(false);
+                    tier.revert(villager);
+                    scheduling.entitySpecificScheduler(villager).runDelayed(timed(disableAI -> {
+                        tier.apply(villager);
                         wVillager.saveLastLevelUp();
-                    }, null, 100L);
-                }, null);
+                    }), null, 100L);
+                }), null);
             } else {
                 if (notify_player) {
                     Player player = (Player) event.getPlayer();
-                    final TextReplacementConfig timeLeft = TextReplacementConfig.builder()
-                            .matchLiteral("%time%")
-                            .replacement(Util.formatDuration(Duration.ofMillis(wVillager.getLevelCooldownMillis(cooldown_millis))))
-                            .build();
-                    VillagerOptimizer.getLang(player.locale()).villager_leveling_up
-                            .forEach(line -> KyoriUtil.sendMessage(player, line.replaceText(timeLeft)));
+                    VillagerOptimizer.getLang(player).villager_leveling_up.send(player,
+                            Util.formatDuration(Duration.ofMillis(wVillager.getLevelCooldownMillis(cooldown_millis))));
                 }
             }
         }
@@ -22,7 +22,7 @@ public class MakeVillagersSpawnAdult extends VillagerOptimizerModule implements
 
     @Override
     public void enable() {
-        plugin.getServer().getPluginManager().registerEvents(this, plugin);
+        registerEvents(this);
     }
 
     @Override
@@ -0,0 +1,115 @@
+package me.xginko.villageroptimizer.modules.gameplay;
+
+import com.cryptomorin.xseries.XEntityType;
+import com.destroystokyo.paper.event.entity.EntityAddToWorldEvent;
+import com.destroystokyo.paper.event.entity.EntityRemoveFromWorldEvent;
+import me.xginko.villageroptimizer.enums.OptimizationType;
+import me.xginko.villageroptimizer.events.VillagerOptimizeEvent;
+import me.xginko.villageroptimizer.events.VillagerUnoptimizeEvent;
+import me.xginko.villageroptimizer.modules.VillagerOptimizerModule;
+import me.xginko.villageroptimizer.utils.ChunkBatch;
+import me.xginko.villageroptimizer.wrapper.WrappedVillager;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Villager;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class PreventOptimizedCollision extends VillagerOptimizerModule implements Listener {
+
+    /**
+     * Villagers this module made non-collidable. The collidable flag isn't saved with the entity,
+     * so villagers are added again whenever they are added to a world.
+     */
+    private final Set<Villager> non_collidable;
+
+    public PreventOptimizedCollision() {
+        super("gameplay.prevent-collision-of-optimized");
+        config.master().addComment(configPath + ".enable",
+                "Makes optimized villagers non-collidable, so the server doesn't have to calculate them pushing\n" +
+                "each other and the walls of their cells every tick. Helps a lot in packed trading halls.\n" +
+                "Villagers made non-collidable by other plugins are left untouched.");
+        this.non_collidable = ConcurrentHashMap.newKeySet();
+    }
+
+    @Override
+    public void enable() {
+        registerEvents(this);
+        // Villagers that are already loaded won't be part of an EntitiesLoadEvent anymore
+        for (World world : plugin.getServer().getWorlds()) {
+            final Chunk[] loadedChunks = world.getLoadedChunks();
+            final long[] chunkKeys = new long[loadedChunks.length];
+            for (int i = 0; i < loadedChunks.length; i++) {
+                chunkKeys[i] = loadedChunks[i].getChunkKey();
+            }
+            ChunkBatch.of(world, chunkKeys).forEachEntity(scheduling, this::disableCollisionIfOptimized);
+        }
+    }
+
+    @Override
+    public void disable() {
+        HandlerList.unregisterAll(this);
+        for (Villager villager : non_collidable) {
+            if (!villager.isValid()) continue;
+            scheduling.entitySpecificScheduler(villager).run(() -> villager.setCollidable(true), null);
+        }
+        non_collidable.clear();
+    }
+
+    @Override
+    public boolean shouldEnable() {
+        return config.getBoolean(configPath + ".enable", false);
+    }
+
+    private void disableCollisionIfOptimized(@NotNull Entity entity) {
+        if (entity.getType() != XEntityType.VILLAGER.get()) return;
+        final WrappedVillager wrapped = wrapperCache.get((Villager) entity, WrappedVillager::new);
+        if (wrapped.isOptimized() && wrapped.getOptimizationType() != OptimizationType.GOVERNOR) {
+            disableCollision((Villager) entity);
+        }
+    }
+
+    private void disableCollision(@NotNull Villager villager) {
+        if (!villager.isCollidable()) return;
+        villager.setCollidable(false);
+        non_collidable.add(villager);
+    }
+
+    private void enableCollision(@NotNull Villager villager) {
+        if (non_collidable.remove(villager)) {
+            villager.setCollidable(true);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    private void onOptimize(VillagerOptimizeEvent event) {
+        // Villagers optimized by the tick time governor are only optimized for a while and stay as they were
+        if (event.getOptimizationType() == OptimizationType.GOVERNOR) return;
+        disableCollision(event.getWrappedVillager().villager);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    private void onUnoptimize(VillagerUnoptimizeEvent event) {
+        enableCollision(event.getWrappedVillager().villager);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void onAdd(EntityAddToWorldEvent event) {
+        // Covers villagers loaded with their chunk as well as ones spawned back from a record
+        disableCollisionIfOptimized(event.getEntity());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void onRemove(EntityRemoveFromWorldEvent event) {
+        if (event.getEntityType() == XEntityType.VILLAGER.get()) {
+            non_collidable.remove(event.getEntity());
+        }
+    }
+}
@@ -1,14 +1,18 @@
 package me.xginko.villageroptimizer.modules.gameplay;
 
 import com.cryptomorin.xseries.XEntityType;
+import me.xginko.villageroptimizer.enums.OptimizationType;
 import me.xginko.villageroptimizer.modules.VillagerOptimizerModule;
+import me.xginko.villageroptimizer.wrapper.PDCWrapperVO;
 import me.xginko.villageroptimizer.wrapper.WrappedVillager;
+import org.bukkit.entity.Entity;
 import org.bukkit.entity.Villager;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.event.world.EntitiesLoadEvent;
 
 import java.util.Arrays;
 import java.util.EnumSet;
@@ -19,7 +23,8 @@ import java.util.stream.Collectors;
 public class PreventOptimizedDamage extends VillagerOptimizerModule implements Listener {
 
     private final Set<EntityDamageEvent.DamageCause> damage_causes_to_cancel;
-    private final boolean cancel_knockback;
+    private final InvulnerableFlags invulnerable_flags;
+    private final boolean prevent_damage, cancel_knockback;
 
     public PreventOptimizedDamage() {
         super("gameplay.prevent-damage-to-optimized");
@@ -44,21 +49,26 @@ public class PreventOptimizedDamage extends VillagerOptimizerModule implements L
                 })
                 .filter(Objects::nonNull)
                 .collect(Collectors.toCollection(() -> EnumSet.noneOf(EntityDamageEvent.DamageCause.class)));
+        this.prevent_damage = config.getBoolean(configPath + ".enable", true);
+        this.invulnerable_flags = new InvulnerableFlags();
     }
 
     @Override
     public void enable() {
-        plugin.getServer().getPluginManager().registerEvents(this, plugin);
+        if (prevent_damage) registerEvents(this);
+        registerEvents(invulnerable_flags);
     }
 
     @Override
     public void disable() {
         HandlerList.unregisterAll(this);
+        HandlerList.unregisterAll(invulnerable_flags);
     }
 
     @Override
     public boolean shouldEnable() {
-        return config.getBoolean(configPath + ".enable", true);
+        // Always enabled so villagers that were made invulnerable can be made vulnerable again when the feature is turned off
+        return true;
     }
 
     @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
@@ -82,4 +92,27 @@ public class PreventOptimizedDamage extends VillagerOptimizerModule implements L
             event.setCancelled(true);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * The invulnerable flag itself is set and cleared by the wrapper whenever the optimization state is written,
+     * so every way of optimizing a villager gets it. This only catches villagers optimized before the feature was
+     * turned on, or still flagged after it was turned off, once they are loaded.
+     */
+    private final class InvulnerableFlags implements Listener {
+
+        @EventHandler(priority = EventPriority.MONITOR)
+        private void onEntitiesLoad(EntitiesLoadEvent event) {
+            final boolean applies = config.invulnerable_while_optimized;
+            for (Entity entity : event.getEntities()) {
+                if (entity.getType() != XEntityType.VILLAGER.get()) continue;
+                final Villager villager = (Villager) entity;
+                final WrappedVillager wrapped = wrapperCache.get(villager, WrappedVillager::new);
+                if (applies && wrapped.isOptimized() && wrapped.getOptimizationType() != OptimizationType.GOVERNOR) {
+                    PDCWrapperVO.makeInvulnerable(villager);
+                } else {
+                    PDCWrapperVO.makeVulnerable(villager);
+                }
+            }
+        }
+    }
+}
@@ -18,12 +18,14 @@ public class PreventOptimizedTargeting extends VillagerOptimizerModule implement
     public PreventOptimizedTargeting() {
         super("gameplay.prevent-entities-from-targeting-optimized");
         config.master().addComment(configPath + ".enable",
-                "Prevents hostile entities from targeting optimized villagers.");
+                "Prevents hostile entities from targeting optimized villagers.\n" +
+                "If gameplay.prevent-damage-to-optimized.use-invulnerable-flag is enabled, hostile mobs already\n" +
+                "ignore optimized villagers on their own and this only catches villagers that aren't flagged yet.");
     }
 
     @Override
     public void enable() {
-        plugin.getServer().getPluginManager().registerEvents(this, plugin);
+        registerEvents(this);
     }
 
     @Override
@@ -31,7 +31,7 @@ public class PreventUnoptimizedTrading extends VillagerOptimizerModule implement
 
     @Override
     public void enable() {
-        plugin.getServer().getPluginManager().registerEvents(this, plugin);
+        registerEvents(this);
     }
 
     @Override
@@ -55,7 +55,7 @@ public class PreventUnoptimizedTrading extends VillagerOptimizerModule implement
 
         if (notify_player) {
             Player player = (Player) event.getWhoClicked();
-            VillagerOptimizer.getLang(player.locale()).optimize_for_trading.forEach(line -> KyoriUtil.sendMessage(player, line));
+            VillagerOptimizer.getLang(player).optimize_for_trading.forEach(line -> KyoriUtil.sendMessage(player, line));
         }
     }
 
@@ -70,7 +70,7 @@ public class PreventUnoptimizedTrading extends VillagerOptimizerModule implement
 
         if (notify_player) {
             Player player = (Player) event.getWhoClicked();
-            VillagerOptimizer.getLang(player.locale()).optimize_for_trading.forEach(line -> KyoriUtil.sendMessage(player, line));
+            VillagerOptimizer.getLang(player).optimize_for_trading.forEach(line -> KyoriUtil.sendMessage(player, line));
         }
     }
 }
@@ -4,11 +4,12 @@ import com.cryptomorin.xseries.XEntityType;
 import me.xginko.villageroptimizer.VillagerOptimizer;
 import me.xginko.villageroptimizer.enums.Permissions;
 import me.xginko.villageroptimizer.modules.VillagerOptimizerModule;
-import me.xginko.villageroptimizer.utils.KyoriUtil;
+import me.xginko.villageroptimizer.utils.ChunkBatch;
 import me.xginko.villageroptimizer.utils.LocationUtil;
 import me.xginko.villageroptimizer.utils.Util;
 import me.xginko.villageroptimizer.wrapper.WrappedVillager;
-import net.kyori.adventure.text.TextReplacementConfig;
+import org.bukkit.Chunk;
+import org.bukkit.World;
 import org.bukkit.entity.Player;
 import org.bukkit.entity.Villager;
 import org.bukkit.event.EventHandler;
@@ -16,13 +17,28 @@ import org.bukkit.event.EventPriority;
 import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerInteractEntityEvent;
+import space.arim.morepaperlib.scheduling.ScheduledTask;
 
 import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
-public class RestockOptimizedTrades extends VillagerOptimizerModule implements Listener {
+public class RestockOptimizedTrades extends VillagerOptimizerModule implements Listener, Runnable {
 
-    private final long restock_delay_millis;
-    private final boolean log_enabled, notify_player;
+    private static final long TICKS_PER_DAY = 24000L;
+
+    private final Map<UUID, Long> last_checked_time;
+    private final Set<UUID> restocking_worlds;
+    private final long[] restock_times;
+    private final long restock_delay_millis, budget_per_tick_nanos;
+    private final boolean log_enabled, notify_player, scheduled_restock;
+    private ScheduledTask restock_task;
 
     public RestockOptimizedTrades() {
         super("gameplay.restock-optimized-trades");
@@ -33,17 +49,102 @@ public class RestockOptimizedTrades extends VillagerOptimizerModule implements L
                 "1 second = 20 ticks. There are 24.000 ticks in a single minecraft day.") * 50L;
         this.notify_player = config.getBoolean(configPath + ".notify-player", true,
                 "Sends the player a message when the trades were restocked on a clicked villager.");
+        this.scheduled_restock = config.getBoolean(configPath + ".scheduled.enable", false,
+                "Restock all optimized villagers in loaded chunks at fixed times of the minecraft day, like vanilla\n" +
+                "villagers restock at their workstation, instead of when a player clicks them.\n" +
+                "Clicking a villager then only opens its trades, so delay-in-ticks and notify-player are not used.");
+        this.restock_times = config.getList(configPath + ".scheduled.world-times", Arrays.asList("2000", "7000"),
+                        "The times of day in ticks at which villagers are restocked. 0 is sunrise, 6000 is noon.")
+                .stream()
+                .map(configuredTime -> {
+                    try {
+                        return Math.floorMod(Long.parseLong(configuredTime.trim()), TICKS_PER_DAY);
+                    } catch (NumberFormatException e) {
+                        notRecognized(Long.class, configuredTime);
+                        return null;
+                    }
+                })
+                .filter(Objects::nonNull)
+                .mapToLong(Long::longValue)
+                .distinct()
+                .toArray();
+        this.budget_per_tick_nanos = TimeUnit.MICROSECONDS.toNanos(Math.max(1, config.getInt(configPath + ".scheduled.budget-per-tick-micros", 1000,
+                "How much time may be spent restocking villagers per tick. If a world has more villagers than\n" +
+                "fit into that time, restocking continues over the next ticks.")));
         this.log_enabled = config.getBoolean(configPath + ".log", false);
+        this.last_checked_time = new ConcurrentHashMap<>();
+        this.restocking_worlds = ConcurrentHashMap.newKeySet();
     }
 
     @Override
     public void enable() {
-        plugin.getServer().getPluginManager().registerEvents(this, plugin);
+        if (scheduled_restock) {
+            restock_task = scheduling.globalRegionalScheduler().runAtFixedRate(timed(this), 20L, 20L);
+        } else {
+            registerEvents(this);
+        }
     }
 
     @Override
     public void disable() {
         HandlerList.unregisterAll(this);
+        if (restock_task != null) restock_task.cancel();
+        last_checked_time.clear();
+    }
+
+    @Override
+    public void run() {
+        for (World world : plugin.getServer().getWorlds()) {
+            final long now = world.getFullTime();
+            final Long lastChecked = last_checked_time.put(world.getUID(), now);
+            // Skip the first check and times that were set back with commands
+            if (lastChecked == null || now <= lastChecked || !passedRestockTime(lastChecked, now)) continue;
+            if (!restocking_worlds.add(world.getUID())) continue; // Still busy with the previous restock
+
+            final Chunk[] loadedChunks = world.getLoadedChunks();
+            final long[] chunkKeys = new long[loadedChunks.length];
+            for (int i = 0; i < loadedChunks.length; i++) {
+                chunkKeys[i] = loadedChunks[i].getChunkKey();
+            }
+
+            final AtomicInteger restocked = new AtomicInteger(), skipped = new AtomicInteger();
+            ChunkBatch.of(world, chunkKeys)
+                    .budgetPerTick(budget_per_tick_nanos)
+                    .forEachEntity(scheduling, entity -> {
+                        if (entity.getType() != XEntityType.VILLAGER.get()) return;
+                        final WrappedVillager wrapped = wrapperCache.get((Villager) entity, WrappedVillager::new);
+                        if (!wrapped.isOptimized()) return;
+                        if (wrapped.restock()) {
+                            wrapped.saveRestockTime();
+                            restocked.incrementAndGet();
+                        } else {
+                            skipped.incrementAndGet();
+                        }
+                    })
+                    .whenComplete((result, throwable) -> {
+                        // Always free the world, or it would never be restocked again until the next reload
+                        restocking_worlds.remove(world.getUID());
+                        if (throwable != null) {
+                            error("Scheduled restock in world " + world.getName() + " failed.", throwable);
+                        } else if (log_enabled) {
+                            info("Restocked " + restocked.get() + " optimized villager(s) in world " + world.getName() +
+                                    ", skipped " + skipped.get() + " with untouched trades.");
+                        }
+                    });
+        }
+    }
+
+    /**
+     * @return True if one of the configured restock times of day lies after the first and up to the second full world time.
+     */
+    private boolean passedRestockTime(long fromExclusive, long toInclusive) {
+        final long dayStart = fromExclusive - Math.floorMod(fromExclusive, TICKS_PER_DAY);
+        for (long restockTime : restock_times) {
+            long next = dayStart + restockTime;
+            if (next <= fromExclusive) next += TICKS_PER_DAY;
+            if (next <= toInclusive) return true;
+        }
+        return false;
     }
 
     @Override
@@ -62,16 +163,13 @@ public class RestockOptimizedTrades extends VillagerOptimizerModule implements L
         final boolean player_bypassing = player.hasPermission(Permissions.Bypass.RESTOCK_COOLDOWN.get());
         if (!wrapped.canRestock(restock_delay_millis) && !player_bypassing) return;
 
-        wrapped.restock();
+        // Nothing was traded since the last restock, so there is nothing to write and nothing to tell the player
+        if (!wrapped.restock()) return;
         wrapped.saveRestockTime();
 
         if (notify_player && !player_bypassing) {
-            final TextReplacementConfig timeLeft = TextReplacementConfig.builder()
-                    .matchLiteral("%time%")
-                    .replacement(Util.formatDuration(Duration.ofMillis(wrapped.getRestockCooldownMillis(restock_delay_millis))))
-                    .build();
-            VillagerOptimizer.getLang(player.locale()).trades_restocked
-                    .forEach(line -> KyoriUtil.sendMessage(player, line.replaceText(timeLeft)));
+            VillagerOptimizer.getLang(player).trades_restocked.send(player,
+                    Util.formatDuration(Duration.ofMillis(wrapped.getRestockCooldownMillis(restock_delay_millis))));
         }
 
         if (log_enabled) {
@@ -0,0 +1,184 @@
+package me.xginko.villageroptimizer.modules.gameplay;
+
+import com.cryptomorin.xseries.XEntityType;
+import com.destroystokyo.paper.entity.villager.Reputation;
+import com.destroystokyo.paper.entity.villager.ReputationType;
+import me.xginko.villageroptimizer.enums.OptimizationType;
+import me.xginko.villageroptimizer.events.VillagerOptimizeEvent;
+import me.xginko.villageroptimizer.modules.VillagerOptimizerModule;
+import me.xginko.villageroptimizer.utils.LocationUtil;
+import me.xginko.villageroptimizer.wrapper.WrappedVillager;
+import org.bukkit.Bukkit;
+import org.bukkit.NamespacedKey;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Villager;
+import org.bukkit.entity.memory.MemoryKey;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.EntitiesLoadEvent;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+public class SlimOptimizedVillagers extends VillagerOptimizerModule implements Listener {
+
+    private final List<MemoryKey<?>> memories_to_clear;
+    private final AtomicLong slimmed_villagers, bytes_saved;
+    private final int max_gossip_targets;
+    private final boolean log_enabled;
+
+    public SlimOptimizedVillagers() {
+        super("gameplay.slim-optimized-villagers");
+        config.master().addComment(configPath + ".enable",
+                "Removes data optimized villagers don't need from them when they are optimized and when they are loaded.\n" +
+                "Villagers keep their gossip and brain memories forever, which is saved with every chunk save and\n" +
+                "makes the region files of trading halls a lot larger than they need to be.");
+        this.max_gossip_targets = Math.max(0, config.getInt(configPath + ".max-gossip-players", 10,
+                "Keep the gossip of at most this many players, the ones with the most influence on prices first.\n" +
+                "Gossip is what gives players a discount after curing a villager, so set this to at least the number\n" +
+                "of players that usually trade with the same villager."));
+        this.memories_to_clear = config.getList(configPath + ".memories-to-clear",
+                        Arrays.asList("golem_detected_recently", "last_slept", "last_woken", "last_worked_at_poi"),
+                        "Brain memories to remove. Memories that point at a block, like home or meeting_point, also\n" +
+                        "reserve that block for the villager and should stay, same as job_site which is needed for trading.")
+                .stream()
+                .map(configuredMemory -> {
+                    final MemoryKey<?> memoryKey = MemoryKey.getByKey(NamespacedKey.minecraft(configuredMemory.toLowerCase(Locale.ROOT)));
+                    if (memoryKey == null) {
+                        notRecognized(MemoryKey.class, configuredMemory);
+                        return null;
+                    }
+                    if (memoryKey == MemoryKey.JOB_SITE) {
+                        warn("Memory '" + configuredMemory + "' is needed for trading and will not be cleared.");
+                        return null;
+                    }
+                    return memoryKey;
+                })
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        this.log_enabled = config.getBoolean(configPath + ".log", false,
+                "Logs what was removed and how much smaller the villager's saved data got. The villager is saved\n" +
+                "before and after slimming to measure that, so only turn this on to see what slimming does.");
+        this.slimmed_villagers = new AtomicLong();
+        this.bytes_saved = new AtomicLong();
+    }
+
+    @Override
+    public void enable() {
+        registerEvents(this);
+    }
+
+    @Override
+    public void disable() {
+        HandlerList.unregisterAll(this);
+    }
+
+    @Override
+    public boolean shouldEnable() {
+        return config.getBoolean(configPath + ".enable", false);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    private void onOptimize(VillagerOptimizeEvent event) {
+        // Villagers optimized by the tick time governor are only optimized for a while and keep their data
+        if (event.getOptimizationType() == OptimizationType.GOVERNOR) return;
+        final Villager villager = event.getWrappedVillager().villager;
+        scheduling.entitySpecificScheduler(villager).run(timed(() -> slim(villager)), null);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void onEntitiesLoad(EntitiesLoadEvent event) {
+        // Optimized villagers still collect gossip from trading
+        for (Entity entity : event.getEntities()) {
+            if (entity.getType() != XEntityType.VILLAGER.get()) continue;
+            final WrappedVillager wrapped = wrapperCache.get((Villager) entity, WrappedVillager::new);
+            if (wrapped.isOptimized() && wrapped.getOptimizationType() != OptimizationType.GOVERNOR) {
+                slim((Villager) entity);
+            }
+        }
+    }
+
+    private void slim(@NotNull Villager villager) {
+        if (!villager.isValid()) return;
+
+        final int sizeBefore = log_enabled ? Bukkit.getUnsafe().serializeEntity(villager).length : 0;
+        final int removedGossip = capGossip(villager);
+        int removedMemories = 0;
+        for (MemoryKey<?> memoryKey : memories_to_clear) {
+            if (villager.getMemory(memoryKey) != null) {
+                villager.setMemory(memoryKey, null);
+                removedMemories++;
+            }
+        }
+
+        if (removedGossip == 0 && removedMemories == 0) return;
+
+        if (log_enabled) {
+            // Measured on the entity data as the server saves it, which is compressed like the region files
+            final long saved = sizeBefore - Bukkit.getUnsafe().serializeEntity(villager).length;
+            final long totalSaved = bytes_saved.addAndGet(saved);
+            final long totalSlimmed = slimmed_villagers.incrementAndGet();
+            info("Removed " + removedGossip + " gossip entries and " + removedMemories + " memories from villager at " +
+                    LocationUtil.toString(villager.getLocation()) + ", its saved data is " + saved + " bytes smaller. " +
+                    "On average " + (totalSaved / totalSlimmed) + " bytes per villager so far.");
+        }
+    }
+
+    /**
+     * @return The number of gossip entries removed.
+     */
+    private int capGossip(@NotNull Villager villager) {
+        final Map<UUID, Reputation> reputations = villager.getReputations();
+        if (reputations.size() <= max_gossip_targets) return 0;
+
+        final List<Map.Entry<UUID, Reputation>> ranked = new ArrayList<>(reputations.entrySet());
+        ranked.sort(Comparator.comparingInt((Map.Entry<UUID, Reputation> entry) -> influence(entry.getValue())).reversed());
+
+        final Map<UUID, Reputation> kept = new HashMap<>(max_gossip_targets);
+        int removed = 0;
+        for (int i = 0; i < ranked.size(); i++) {
+            if (i < max_gossip_targets) {
+                kept.put(ranked.get(i).getKey(), ranked.get(i).getValue());
+            } else {
+                removed += entryCount(ranked.get(i).getValue());
+            }
+        }
+
+        villager.clearReputations();
+        villager.setReputations(kept);
+        return removed;
+    }
+
+    /**
+     * @return How much the reputation changes prices, weighted the same way the game does.
+     */
+    private static int influence(@NotNull Reputation reputation) {
+        return Math.abs(
+                reputation.getReputation(ReputationType.MAJOR_POSITIVE) * 5
+                + reputation.getReputation(ReputationType.MINOR_POSITIVE)
+                + reputation.getReputation(ReputationType.TRADING)
+                - reputation.getReputation(ReputationType.MINOR_NEGATIVE)
+                - reputation.getReputation(ReputationType.MAJOR_NEGATIVE) * 5
+        );
+    }
+
+    private static int entryCount(@NotNull Reputation reputation) {
+        int entries = 0;
+        for (ReputationType type : ReputationType.values()) {
+            if (reputation.getReputation(type) != 0) entries++;
+        }
+        return entries;
+    }
+}
@@ -1,6 +1,7 @@
 package me.xginko.villageroptimizer.modules.gameplay;
 
 import me.xginko.villageroptimizer.enums.OptimizationType;
+import me.xginko.villageroptimizer.events.VillagerUnoptimizeEvent;
 import me.xginko.villageroptimizer.modules.VillagerOptimizerModule;
 import me.xginko.villageroptimizer.wrapper.WrappedVillager;
 import org.bukkit.event.EventHandler;
@@ -19,7 +20,7 @@ public class UnoptimizeOnJobLoose extends VillagerOptimizerModule implements Lis
 
     @Override
     public void enable() {
-        plugin.getServer().getPluginManager().registerEvents(this, plugin);
+        registerEvents(this);
     }
 
     @Override
@@ -36,7 +37,16 @@ public class UnoptimizeOnJobLoose extends VillagerOptimizerModule implements Lis
     private void onJobReset(VillagerCareerChangeEvent event) {
         if (event.getReason() != VillagerCareerChangeEvent.ChangeReason.LOSING_JOB) return;
         final WrappedVillager wrapped = wrapperCache.get(event.getEntity(), WrappedVillager::new);
-        if (wrapped.isOptimized()) {
+        if (!wrapped.isOptimized()) return;
+
+        VillagerUnoptimizeEvent unOptimizeEvent = new VillagerUnoptimizeEvent(
+                wrapped,
+                null,
+                wrapped.getOptimizationType(),
+                event.isAsynchronous()
+        );
+
+        if (unOptimizeEvent.callEvent()) {
             wrapped.setOptimizationType(OptimizationType.NONE);
         }
     }
@@ -19,7 +19,7 @@ public class VisuallyHighlightOptimized extends VillagerOptimizerModule implemen
 
     @Override
     public void enable() {
-        plugin.getServer().getPluginManager().registerEvents(this, plugin);
+        registerEvents(this);
     }
 
     @Override
@@ -35,16 +35,16 @@ public class VisuallyHighlightOptimized extends VillagerOptimizerModule implemen
     @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
     private void onOptimize(VillagerOptimizeEvent event) {
         Villager villager = event.getWrappedVillager().villager;
-        scheduling.entitySpecificScheduler(villager).run(glow -> {
+        scheduling.entitySpecificScheduler(villager).run(timed(glow -> {
             if (!villager.isGlowing()) villager.setGlowing(true);
-        }, null);
+        }), null);
     }
 
     @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
     private void onUnOptimize(VillagerUnoptimizeEvent event) {
         Villager villager = event.getWrappedVillager().villager;
-        scheduling.entitySpecificScheduler(villager).run(unGlow -> {
+        scheduling.entitySpecificScheduler(villager).run(timed(unGlow -> {
             if (villager.isGlowing()) villager.setGlowing(false);
-        }, null);
+        }), null);
     }
 }
\ No newline at end of file
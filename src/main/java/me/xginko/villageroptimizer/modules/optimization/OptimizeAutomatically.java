@@ -0,0 +1,127 @@
+package me.xginko.villageroptimizer.modules.optimization;
+
+import com.cryptomorin.xseries.XEntityType;
+import me.xginko.villageroptimizer.enums.OptimizationType;
+import me.xginko.villageroptimizer.enums.Permissions;
+import me.xginko.villageroptimizer.events.VillagerOptimizeEvent;
+import me.xginko.villageroptimizer.modules.VillagerOptimizerModule;
+import me.xginko.villageroptimizer.utils.ExpiringSet;
+import me.xginko.villageroptimizer.utils.LocationUtil;
+import me.xginko.villageroptimizer.utils.Util;
+import me.xginko.villageroptimizer.wrapper.WrappedVillager;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Villager;
+import org.jetbrains.annotations.NotNull;
+import space.arim.morepaperlib.scheduling.ScheduledTask;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+public class OptimizeAutomatically extends VillagerOptimizerModule implements Runnable {
+
+    private final ExpiringSet<UUID> recently_checked;
+    private ScheduledTask periodic_scan;
+    private final long check_period, cooldown_millis, scan_budget_nanos;
+    private final double opt_out_radius;
+    private final boolean require_confinement, require_job_site, require_trades, log_enabled;
+
+    public OptimizeAutomatically() {
+        super("optimization-methods.automatic-optimization");
+        config.master().addComment(configPath + ".enable",
+                "When enabled, loaded villagers will periodically be checked and automatically optimized if they\n" +
+                "look like they are part of a trading hall. Players with the permission\n" +
+                "villageroptimizer.bypass.automaticoptimization can opt out for villagers around them.");
+        this.check_period = Math.max(1, config.getInt(configPath + ".check-period-in-ticks", 1200,
+                "Check all loaded chunks every X ticks. 1 second = 20 ticks"));
+        this.recently_checked = new ExpiringSet<>(Duration.ofSeconds(
+                Math.max(1, config.getInt(configPath + ".villager-recheck-cooldown-seconds", 300,
+                "The delay in seconds until a villager that has already been checked will be checked again."))));
+        this.scan_budget_nanos = TimeUnit.MICROSECONDS.toNanos(
+                Math.max(1, config.getInt(configPath + ".scan-budget-per-chunk-micros", 500,
+                "The maximum time in microseconds that may be spent checking the villagers of a single chunk.\n" +
+                "Villagers that couldn't be checked in time will be checked on the next run.")));
+        this.require_confinement = config.getBoolean(configPath + ".criteria.confined-to-1x1-cell", true,
+                "Only optimize villagers that are standing in a 1x1 cell they can't walk out of.");
+        this.require_job_site = config.getBoolean(configPath + ".criteria.has-claimed-job-site", true,
+                "Only optimize villagers that have claimed a workstation.");
+        this.require_trades = config.getBoolean(configPath + ".criteria.has-been-traded-with", true,
+                "Only optimize villagers that have been traded with at least once.");
+        this.opt_out_radius = config.getDouble(configPath + ".opt-out-radius-in-blocks", 32.0,
+                "Villagers within this radius of a player that has the opt-out permission will not be optimized.");
+        this.cooldown_millis = TimeUnit.SECONDS.toMillis(
+                config.getInt(configPath + ".optimize-cooldown-seconds", 600,
+                "Cooldown in seconds until a villager can be optimized again automatically.\n" +
+                "Prevents villagers that players just unoptimized from being optimized again right away."));
+        this.log_enabled = config.getBoolean(configPath + ".log", false);
+    }
+
+    @Override
+    public void enable() {
+        periodic_scan = scheduling.globalRegionalScheduler().runAtFixedRate(timed(this), check_period, check_period);
+    }
+
+    @Override
+    public void disable() {
+        if (periodic_scan != null) periodic_scan.cancel();
+    }
+
+    @Override
+    public boolean shouldEnable() {
+        return config.getBoolean(configPath + ".enable", false);
+    }
+
+    @Override
+    public void run() {
+        for (World world : plugin.getServer().getWorlds()) {
+            for (Chunk chunk : world.getLoadedChunks()) {
+                scheduling.regionSpecificScheduler(world, chunk.getX(), chunk.getZ()).run(timed(() -> {
+                    if (Util.isChunkLoaded(chunk)) {
+                        optimizeConfinedVillagers(chunk);
+                    }
+                }));
+            }
+        }
+    }
+
+    private void optimizeConfinedVillagers(@NotNull Chunk chunk) {
+        final long deadline = System.nanoTime() + scan_budget_nanos;
+        Boolean opted_out = null; // Only look for players once we found a villager that qualifies
+
+        for (Entity entity : chunk.getEntities()) {
+            // Leave the remaining villagers for the next run once the budget is used up
+            if (System.nanoTime() > deadline) return;
+            if (entity.getType() != XEntityType.VILLAGER.get()) continue;
+            if (!recently_checked.add(entity.getUniqueId())) continue;
+
+            final WrappedVillager wrapped = wrapperCache.get((Villager) entity, WrappedVillager::new);
+            if (wrapped.isOptimized() || !wrapped.canOptimize(cooldown_millis) || !qualifies(wrapped)) continue;
+
+            if (opted_out == null) {
+                opted_out = !entity.getLocation().getNearbyPlayers(opt_out_radius,
+                        player -> player.hasPermission(Permissions.Bypass.AUTOMATIC_OPTIMIZATION.get())).isEmpty();
+            }
+            if (opted_out) return;
+
+            VillagerOptimizeEvent optimizeEvent = new VillagerOptimizeEvent(wrapped, OptimizationType.AUTOMATIC, null);
+            if (!optimizeEvent.callEvent()) continue;
+
+            wrapped.setOptimizationType(optimizeEvent.getOptimizationType());
+            wrapped.saveOptimizeTime();
+
+            if (log_enabled) {
+                info("Automatically optimized villager at " + LocationUtil.toString(wrapped.villager.getLocation()));
+            }
+        }
+    }
+
+    private boolean qualifies(@NotNull WrappedVillager wrapped) {
+        final Villager.Profession profession = wrapped.villager.getProfession();
+        if (profession == Villager.Profession.NONE || profession == Villager.Profession.NITWIT) return false;
+        if (require_trades && wrapped.villager.getVillagerExperience() <= 0) return false;
+        if (require_job_site && wrapped.getJobSite() == null) return false;
+        return !require_confinement || wrapped.isConfined();
+    }
+}
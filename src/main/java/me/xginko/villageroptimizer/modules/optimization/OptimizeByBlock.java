@@ -7,11 +7,9 @@ import me.xginko.villageroptimizer.enums.Permissions;
 import me.xginko.villageroptimizer.events.VillagerOptimizeEvent;
 import me.xginko.villageroptimizer.events.VillagerUnoptimizeEvent;
 import me.xginko.villageroptimizer.modules.VillagerOptimizerModule;
-import me.xginko.villageroptimizer.utils.KyoriUtil;
 import me.xginko.villageroptimizer.utils.LocationUtil;
 import me.xginko.villageroptimizer.utils.Util;
 import me.xginko.villageroptimizer.wrapper.WrappedVillager;
-import net.kyori.adventure.text.TextReplacementConfig;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
@@ -79,7 +77,7 @@ public class OptimizeByBlock extends VillagerOptimizerModule implements Listener
 
     @Override
     public void enable() {
-        plugin.getServer().getPluginManager().registerEvents(this, plugin);
+        registerEvents(this);
     }
 
     @Override
@@ -133,16 +131,8 @@ public class OptimizeByBlock extends VillagerOptimizerModule implements Listener
             closestOptimizableVillager.saveOptimizeTime();
 
             if (notify_player) {
-                final TextReplacementConfig vilProfession = TextReplacementConfig.builder()
-                        .matchLiteral("%vil_profession%")
-                        .replacement(Util.toNiceString(closestOptimizableVillager.villager.getProfession()))
-                        .build();
-                final TextReplacementConfig placedMaterial = TextReplacementConfig.builder()
-                        .matchLiteral("%blocktype%")
-                        .replacement(Util.toNiceString(placed.getType()))
-                        .build();
-                VillagerOptimizer.getLang(player.locale()).block_optimize_success
-                        .forEach(line -> KyoriUtil.sendMessage(player, line.replaceText(vilProfession).replaceText(placedMaterial)));
+                VillagerOptimizer.getLang(player).block_optimize_success.send(player,
+                        Util.toNiceString(closestOptimizableVillager.villager.getProfession()), Util.toNiceString(placed.getType()));
             }
 
             if (log_enabled) {
@@ -152,12 +142,8 @@ public class OptimizeByBlock extends VillagerOptimizerModule implements Listener
         } else {
             closestOptimizableVillager.sayNo();
             if (notify_player) {
-                final TextReplacementConfig timeLeft = TextReplacementConfig.builder()
-                        .matchLiteral("%time%")
-                        .replacement(Util.formatDuration(Duration.ofMillis(closestOptimizableVillager.getOptimizeCooldownMillis(cooldown_millis))))
-                        .build();
-                VillagerOptimizer.getLang(player.locale()).block_on_optimize_cooldown
-                        .forEach(line -> KyoriUtil.sendMessage(player, line.replaceText(timeLeft)));
+                VillagerOptimizer.getLang(player).block_on_optimize_cooldown.send(player,
+                        Util.formatDuration(Duration.ofMillis(closestOptimizableVillager.getOptimizeCooldownMillis(cooldown_millis))));
             }
         }
     }
@@ -198,16 +184,8 @@ public class OptimizeByBlock extends VillagerOptimizerModule implements Listener
         closestOptimizedVillager.setOptimizationType(OptimizationType.NONE);
 
         if (notify_player) {
-            final TextReplacementConfig vilProfession = TextReplacementConfig.builder()
-                    .matchLiteral("%vil_profession%")
-                    .replacement(Util.toNiceString(closestOptimizedVillager.villager.getProfession()))
-                    .build();
-            final TextReplacementConfig brokenMaterial = TextReplacementConfig.builder()
-                    .matchLiteral("%blocktype%")
-                    .replacement(Util.toNiceString(broken.getType()))
-                    .build();
-            VillagerOptimizer.getLang(player.locale()).block_unoptimize_success
-                    .forEach(line -> KyoriUtil.sendMessage(player, line.replaceText(vilProfession).replaceText(brokenMaterial)));
+            VillagerOptimizer.getLang(player).block_unoptimize_success.send(player,
+                    Util.toNiceString(closestOptimizedVillager.villager.getProfession()), Util.toNiceString(broken.getType()));
         }
 
         if (log_enabled) {
@@ -12,7 +12,6 @@ import me.xginko.villageroptimizer.utils.KyoriUtil;
 import me.xginko.villageroptimizer.utils.LocationUtil;
 import me.xginko.villageroptimizer.utils.Util;
 import me.xginko.villageroptimizer.wrapper.WrappedVillager;
-import net.kyori.adventure.text.TextReplacementConfig;
 import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
 import org.bukkit.entity.Villager;
@@ -58,7 +57,7 @@ public class OptimizeByNametag extends VillagerOptimizerModule implements Listen
 
     @Override
     public void enable() {
-        plugin.getServer().getPluginManager().registerEvents(this, plugin);
+        registerEvents(this);
     }
 
     @Override
@@ -107,7 +106,7 @@ public class OptimizeByNametag extends VillagerOptimizerModule implements Listen
                 wrapped.saveOptimizeTime();
 
                 if (notify_player) {
-                    VillagerOptimizer.getLang(player.locale()).nametag_optimize_success
+                    VillagerOptimizer.getLang(player).nametag_optimize_success
                             .forEach(line -> KyoriUtil.sendMessage(player, line));
                 }
 
@@ -119,12 +118,8 @@ public class OptimizeByNametag extends VillagerOptimizerModule implements Listen
                 event.setCancelled(true);
                 wrapped.sayNo();
                 if (notify_player) {
-                    final TextReplacementConfig timeLeft = TextReplacementConfig.builder()
-                            .matchLiteral("%time%")
-                            .replacement(Util.formatDuration(Duration.ofMillis(wrapped.getOptimizeCooldownMillis(cooldown))))
-                            .build();
-                    VillagerOptimizer.getLang(player.locale()).nametag_on_optimize_cooldown
-                            .forEach(line -> KyoriUtil.sendMessage(player, line.replaceText(timeLeft)));
+                    VillagerOptimizer.getLang(player).nametag_on_optimize_cooldown.send(player,
+                            Util.formatDuration(Duration.ofMillis(wrapped.getOptimizeCooldownMillis(cooldown))));
                 }
             }
         } else {
@@ -145,7 +140,7 @@ public class OptimizeByNametag extends VillagerOptimizerModule implements Listen
                 }
 
                 if (notify_player) {
-                    VillagerOptimizer.getLang(player.locale()).nametag_unoptimize_success
+                    VillagerOptimizer.getLang(player).nametag_unoptimize_success
                             .forEach(line -> KyoriUtil.sendMessage(player, line));
                 }
 
@@ -6,11 +6,9 @@ import me.xginko.villageroptimizer.enums.Permissions;
 import me.xginko.villageroptimizer.events.VillagerOptimizeEvent;
 import me.xginko.villageroptimizer.events.VillagerUnoptimizeEvent;
 import me.xginko.villageroptimizer.modules.VillagerOptimizerModule;
-import me.xginko.villageroptimizer.utils.KyoriUtil;
 import me.xginko.villageroptimizer.utils.LocationUtil;
 import me.xginko.villageroptimizer.utils.Util;
 import me.xginko.villageroptimizer.wrapper.WrappedVillager;
-import net.kyori.adventure.text.TextReplacementConfig;
 import org.bukkit.Location;
 import org.bukkit.block.Block;
 import org.bukkit.entity.Player;
@@ -58,7 +56,7 @@ public class OptimizeByWorkstation extends VillagerOptimizerModule implements Li
 
     @Override
     public void enable() {
-        plugin.getServer().getPluginManager().registerEvents(this, plugin);
+        registerEvents(this);
     }
 
     @Override
@@ -85,14 +83,14 @@ public class OptimizeByWorkstation extends VillagerOptimizerModule implements Li
         final AtomicBoolean taskComplete = new AtomicBoolean();
         final AtomicInteger taskAliveTicks = new AtomicInteger();
 
-        scheduling.regionSpecificScheduler(workstationLoc).runAtFixedRate(repeatingTask -> {
+        scheduling.regionSpecificScheduler(workstationLoc).runAtFixedRate(timed(repeatingTask -> {
             if (taskComplete.get() || taskAliveTicks.getAndAdd(10) > check_duration_ticks) {
                 repeatingTask.cancel();
                 return;
             }
 
             for (Villager villager : workstationLoc.getNearbyEntitiesByType(Villager.class, search_radius)) {
-                scheduling.entitySpecificScheduler(villager).run(() -> {
+                scheduling.entitySpecificScheduler(villager).run(timed(() -> {
                     if (villager.getProfession() != workstationProfession) return;
                     WrappedVillager wrapped = wrapperCache.get(villager, WrappedVillager::new);
 
@@ -104,12 +102,8 @@ public class OptimizeByWorkstation extends VillagerOptimizerModule implements Li
                         wrapped.sayNo();
 
                         if (notify_player) {
-                            final TextReplacementConfig timeLeft = TextReplacementConfig.builder()
-                                    .matchLiteral("%time%")
-                                    .replacement(Util.formatDuration(Duration.ofMillis(wrapped.getOptimizeCooldownMillis(cooldown_millis))))
-                                    .build();
-                            VillagerOptimizer.getLang(player.locale()).nametag_on_optimize_cooldown
-                                    .forEach(line -> KyoriUtil.sendMessage(player, line.replaceText(timeLeft)));
+                            VillagerOptimizer.getLang(player).nametag_on_optimize_cooldown.send(player,
+                                    Util.formatDuration(Duration.ofMillis(wrapped.getOptimizeCooldownMillis(cooldown_millis))));
                         }
 
                         taskComplete.set(true);
@@ -129,16 +123,8 @@ public class OptimizeByWorkstation extends VillagerOptimizerModule implements Li
                     wrapped.saveOptimizeTime();
 
                     if (notify_player) {
-                        final TextReplacementConfig vilProfession = TextReplacementConfig.builder()
-                                .matchLiteral("%vil_profession%")
-                                .replacement(Util.toNiceString(wrapped.villager.getProfession()))
-                                .build();
-                        final TextReplacementConfig placedWorkstation = TextReplacementConfig.builder()
-                                .matchLiteral("%blocktype%")
-                                .replacement(Util.toNiceString(placed.getType()))
-                                .build();
-                        VillagerOptimizer.getLang(player.locale()).workstation_optimize_success
-                                .forEach(line -> KyoriUtil.sendMessage(player, line.replaceText(vilProfession).replaceText(placedWorkstation)));
+                        VillagerOptimizer.getLang(player).workstation_optimize_success.send(player,
+                                Util.toNiceString(wrapped.villager.getProfession()), Util.toNiceString(placed.getType()));
                     }
 
                     if (log_enabled) {
@@ -147,9 +133,9 @@ public class OptimizeByWorkstation extends VillagerOptimizerModule implements Li
                     }
 
                     taskComplete.set(true);
-                }, null);
+                }), null);
             }
-        }, 1L, 10L);
+        }), 1L, 10L);
     }
 
     @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
@@ -193,16 +179,8 @@ public class OptimizeByWorkstation extends VillagerOptimizerModule implements Li
         closestOptimized.setOptimizationType(OptimizationType.NONE);
 
         if (notify_player) {
-            final TextReplacementConfig vilProfession = TextReplacementConfig.builder()
-                    .matchLiteral("%vil_profession%")
-                    .replacement(Util.toNiceString(closestOptimized.villager.getProfession()))
-                    .build();
-            final TextReplacementConfig brokenWorkstation = TextReplacementConfig.builder()
-                    .matchLiteral("%blocktype%")
-                    .replacement(Util.toNiceString(broken.getType()))
-                    .build();
-            VillagerOptimizer.getLang(player.locale()).workstation_unoptimize_success
-                    .forEach(line -> KyoriUtil.sendMessage(player, line.replaceText(vilProfession).replaceText(brokenWorkstation)));
+            VillagerOptimizer.getLang(player).workstation_unoptimize_success.send(player,
+                    Util.toNiceString(closestOptimized.villager.getProfession()), Util.toNiceString(broken.getType()));
         }
 
         if (log_enabled) {
@@ -0,0 +1,349 @@
+package me.xginko.villageroptimizer.modules.optimization;
+
+import com.cryptomorin.xseries.XEntityType;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import me.xginko.villageroptimizer.enums.Keyring;
+import me.xginko.villageroptimizer.enums.OptimizationType;
+import me.xginko.villageroptimizer.enums.Permissions;
+import me.xginko.villageroptimizer.modules.VillagerOptimizerModule;
+import me.xginko.villageroptimizer.utils.LocationUtil;
+import me.xginko.villageroptimizer.utils.Util;
+import me.xginko.villageroptimizer.wrapper.VillagerRecord;
+import me.xginko.villageroptimizer.wrapper.WrappedVillager;
+import org.bukkit.Chunk;
+import org.bukkit.Sound;
+import org.bukkit.World;
+import org.bukkit.entity.Display;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Interaction;
+import org.bukkit.entity.Player;
+import org.bukkit.entity.TextDisplay;
+import org.bukkit.entity.Villager;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.player.PlayerInteractEntityEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.world.EntitiesLoadEvent;
+import org.bukkit.inventory.EquipmentSlot;
+import org.bukkit.inventory.Merchant;
+import org.bukkit.inventory.MerchantRecipe;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.jetbrains.annotations.NotNull;
+import space.arim.morepaperlib.scheduling.ScheduledTask;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class VirtualVillagers extends VillagerOptimizerModule implements Runnable, Listener {
+
+    private final Cache<UUID, VirtualVillager> virtual_villagers;
+    private final Map<UUID, VirtualVillager> trading_sessions;
+    private ScheduledTask periodic_virtualization;
+    private final long check_period, restock_delay_millis;
+    private final boolean virtualization_enabled, log_enabled;
+
+    public VirtualVillagers() {
+        super("optimization-methods.virtual-villagers");
+        this.virtualization_enabled = config.getBoolean(configPath + ".enable", false,
+                "Replaces optimized villagers with a lightweight clickable stand-in that doesn't tick.\n" +
+                "Right-clicking it opens the villager's trades, which are restocked and leveled up as usual.\n" +
+                "Sneak-right-clicking turns it back into a real villager, so it can be unoptimized or moved.\n" +
+                "Requires 1.19.4 or newer. If you disable this again, all virtual villagers will turn back\n" +
+                "into real villagers as soon as their chunk loads.");
+        this.check_period = Math.max(1, config.getInt(configPath + ".check-period-in-ticks", 600,
+                "Turn optimized villagers in loaded chunks into virtual ones every X ticks. 1 second = 20 ticks"));
+        this.restock_delay_millis = config.getInt(configPath + ".restock-delay-in-ticks", 1000,
+                "1 second = 20 ticks. There are 24.000 ticks in a single minecraft day.") * 50L;
+        this.log_enabled = config.getBoolean(configPath + ".log", false);
+        this.virtual_villagers = Caffeine.newBuilder().expireAfterAccess(Duration.ofMinutes(5)).build();
+        this.trading_sessions = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void enable() {
+        registerEvents(this);
+        if (virtualization_enabled) {
+            periodic_virtualization = scheduling.globalRegionalScheduler().runAtFixedRate(timed(this), check_period, check_period);
+        }
+    }
+
+    @Override
+    public boolean shouldEnable() {
+        // Always enabled so virtual villagers can be turned back into real ones when the feature is turned off
+        return true;
+    }
+
+    @Override
+    public void disable() {
+        if (periodic_virtualization != null) periodic_virtualization.cancel();
+        // Save open trades ourselves, the close handler might be gone by the time the trade screens close.
+        // Sessions are taken out first so the close handler can't save them a second time.
+        final List<VirtualVillager> sessions = new ArrayList<>(trading_sessions.values());
+        trading_sessions.clear();
+        for (VirtualVillager session : sessions) {
+            final Player trader = session.trader;
+            if (trader == null) continue;
+            if (plugin.getServer().isOwnedByCurrentRegion(trader)) {
+                closeSession(trader, session);
+            } else {
+                scheduling.entitySpecificScheduler(trader).run(() -> closeSession(trader, session), null);
+            }
+        }
+        HandlerList.unregisterAll(this);
+        virtual_villagers.invalidateAll();
+    }
+
+    private void closeSession(@NotNull Player trader, @NotNull VirtualVillager session) {
+        finishTrading(session);
+        trader.closeInventory();
+    }
+
+    private void finishTrading(@NotNull VirtualVillager virtual) {
+        try {
+            virtual.finishTrading();
+        } catch (Throwable t) {
+            error("Failed to save trades of virtual villager at " + LocationUtil.toString(virtual.proxy.getLocation()), t);
+        }
+    }
+
+    @Override
+    public void run() {
+        for (World world : plugin.getServer().getWorlds()) {
+            for (Chunk chunk : world.getLoadedChunks()) {
+                scheduling.regionSpecificScheduler(world, chunk.getX(), chunk.getZ()).run(timed(() -> {
+                    if (!Util.isChunkLoaded(chunk)) return;
+                    for (Entity entity : chunk.getEntities()) {
+                        if (entity.getType() == XEntityType.VILLAGER.get()) {
+                            virtualize((Villager) entity);
+                        }
+                    }
+                }));
+            }
+        }
+    }
+
+    private void virtualize(@NotNull Villager villager) {
+        if (villager.isTrading() || villager.isLeashed() || villager.isInsideVehicle() || !villager.getPassengers().isEmpty()) return;
+        final WrappedVillager wrapped = wrapperCache.get(villager, WrappedVillager::new);
+        // Villagers optimized by the tick time governor are only optimized for a while
+        if (!wrapped.isOptimized() || wrapped.getOptimizationType() == OptimizationType.GOVERNOR) return;
+
+        final byte[] record;
+        try {
+            record = VillagerRecord.serialize(villager);
+        } catch (Throwable t) {
+            error("Failed to create virtual villager at " + LocationUtil.toString(villager.getLocation()), t);
+            return;
+        }
+
+        final Interaction proxy = villager.getWorld().spawn(villager.getLocation(), Interaction.class);
+        proxy.setInteractionWidth((float) villager.getWidth());
+        proxy.setInteractionHeight((float) villager.getHeight());
+        proxy.setResponsive(true);
+        proxy.getPersistentDataContainer().set(Keyring.VillagerOptimizer.VIRTUAL_VILLAGER.getKey(), PersistentDataType.BYTE_ARRAY, record);
+
+        final TextDisplay label = villager.getWorld().spawn(villager.getLocation(), TextDisplay.class);
+        label.setText(villager.getCustomName() != null ? villager.getCustomName() : Util.toNiceString(villager.getProfession()));
+        label.setBillboard(Display.Billboard.CENTER);
+        proxy.addPassenger(label);
+
+        wrapperCache.invalidate(villager);
+        villager.remove();
+
+        if (log_enabled) {
+            info("Turned optimized villager at " + LocationUtil.toString(proxy.getLocation()) + " into a virtual villager.");
+        }
+    }
+
+    private void devirtualize(@NotNull Interaction proxy) {
+        final byte[] record = proxy.getPersistentDataContainer().get(Keyring.VillagerOptimizer.VIRTUAL_VILLAGER.getKey(), PersistentDataType.BYTE_ARRAY);
+        if (record == null) return;
+
+        try {
+            final Villager villager = VillagerRecord.spawn(proxy.getWorld(), record);
+            if (villager == null) {
+                warn("Virtual villager at " + LocationUtil.toString(proxy.getLocation()) + " still exists as a real " +
+                        "villager, removing the stale copy.");
+            } else {
+                // Only optimized villagers are turned virtual, so we can skip looking at the restored data
+                wrapperCache.get(villager, WrappedVillager::new).getOptimizationTier().apply(villager);
+            }
+        } catch (Throwable t) {
+            error("Failed to restore virtual villager at " + LocationUtil.toString(proxy.getLocation()) + ". Keeping it virtual.", t);
+            return;
+        }
+
+        virtual_villagers.invalidate(proxy.getUniqueId());
+        proxy.getPassengers().forEach(Entity::remove);
+        proxy.remove();
+
+        if (log_enabled) {
+            info("Turned virtual villager at " + LocationUtil.toString(proxy.getLocation()) + " back into a real villager.");
+        }
+    }
+
+    @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
+    private void onInteract(PlayerInteractEntityEvent event) {
+        if (event.getHand() != EquipmentSlot.HAND) return;
+        if (!(event.getRightClicked() instanceof Interaction)) return;
+        final Interaction proxy = (Interaction) event.getRightClicked();
+        if (!proxy.getPersistentDataContainer().has(Keyring.VillagerOptimizer.VIRTUAL_VILLAGER.getKey(), PersistentDataType.BYTE_ARRAY)) return;
+
+        event.setCancelled(true);
+        final Player player = event.getPlayer();
+
+        VirtualVillager virtual = virtual_villagers.getIfPresent(proxy.getUniqueId());
+        if (virtual != null && virtual.trader != null) {
+            proxy.getWorld().playSound(proxy.getLocation(), Sound.ENTITY_VILLAGER_NO, 1.0F, 1.0F);
+            return;
+        }
+
+        if (player.isSneaking() && player.hasPermission(Permissions.Optimize.VIRTUAL.get())) {
+            devirtualize(proxy);
+            return;
+        }
+
+        try {
+            if (virtual == null) {
+                virtual = new VirtualVillager(proxy);
+                virtual_villagers.put(proxy.getUniqueId(), virtual);
+            }
+        } catch (Throwable t) {
+            error("Failed to read virtual villager at " + LocationUtil.toString(proxy.getLocation()), t);
+            return;
+        }
+
+        final PersistentDataContainer proxyData = proxy.getPersistentDataContainer();
+        final Long lastRestock = proxyData.get(Keyring.VillagerOptimizer.LAST_RESTOCK_SYSTIME_MILLIS.getKey(), PersistentDataType.LONG);
+        if (lastRestock == null || lastRestock + restock_delay_millis <= System.currentTimeMillis()) {
+            boolean restocked = false;
+            for (MerchantRecipe recipe : virtual.merchant.getRecipes()) {
+                if (recipe.getUses() > 0) {
+                    recipe.setUses(0);
+                    restocked = true;
+                }
+            }
+            if (restocked) {
+                proxyData.set(Keyring.VillagerOptimizer.LAST_RESTOCK_SYSTIME_MILLIS.getKey(), PersistentDataType.LONG, System.currentTimeMillis());
+            }
+        }
+
+        virtual.startTrading(player);
+        trading_sessions.put(player.getUniqueId(), virtual);
+        player.openMerchant(virtual.merchant, true);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void onTradeScreenClose(InventoryCloseEvent event) {
+        final VirtualVillager virtual = trading_sessions.remove(event.getPlayer().getUniqueId());
+        if (virtual == null) return;
+
+        scheduling.entitySpecificScheduler(virtual.proxy).run(timed(save -> finishTrading(virtual)), null);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void onQuit(PlayerQuitEvent event) {
+        final VirtualVillager virtual = trading_sessions.remove(event.getPlayer().getUniqueId());
+        if (virtual != null) virtual.trader = null;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    private void onEntitiesLoad(EntitiesLoadEvent event) {
+        if (virtualization_enabled) return;
+
+        for (Entity entity : event.getEntities()) {
+            if (
+                    entity instanceof Interaction
+                    && entity.getPersistentDataContainer().has(Keyring.VillagerOptimizer.VIRTUAL_VILLAGER.getKey(), PersistentDataType.BYTE_ARRAY)
+            ) {
+                scheduling.entitySpecificScheduler(entity).runDelayed(timed(() -> devirtualize((Interaction) entity)), null, 1L);
+            }
+        }
+    }
+
+    private final class VirtualVillager {
+
+        private final @NotNull Interaction proxy;
+        private final @NotNull Merchant merchant;
+        /**
+         * The villager as it was recorded. It is never added to the world and only holds its state.
+         */
+        private @NotNull Villager villager;
+        private int[] usesBeforeTrading;
+        private Player trader;
+
+        @SuppressWarnings("deprecation")
+        private VirtualVillager(@NotNull Interaction proxy) throws IOException {
+            this.proxy = proxy;
+            this.villager = VillagerRecord.fromBytes(proxy.getPersistentDataContainer()
+                    .get(Keyring.VillagerOptimizer.VIRTUAL_VILLAGER.getKey(), PersistentDataType.BYTE_ARRAY))
+                    .toVillager(proxy.getWorld());
+            this.merchant = plugin.getServer().createMerchant(Util.toNiceString(villager.getProfession()));
+            this.merchant.setRecipes(villager.getRecipes());
+        }
+
+        private void startTrading(@NotNull Player player) {
+            this.trader = player;
+            final List<MerchantRecipe> recipes = merchant.getRecipes();
+            this.usesBeforeTrading = new int[recipes.size()];
+            for (int i = 0; i < recipes.size(); i++) {
+                usesBeforeTrading[i] = recipes.get(i).getUses();
+            }
+        }
+
+        private void finishTrading() throws IOException {
+            this.trader = null;
+            final List<MerchantRecipe> recipes = new ArrayList<>(merchant.getRecipes());
+
+            // Award the same experience the real villager would have gotten for every completed trade
+            int gainedExperience = 0;
+            for (int i = 0; i < recipes.size() && i < usesBeforeTrading.length; i++) {
+                final MerchantRecipe recipe = recipes.get(i);
+                gainedExperience += Math.max(0, recipe.getUses() - usesBeforeTrading[i]) * recipe.getVillagerExperience();
+            }
+
+            villager.setRecipes(recipes);
+            villager.setVillagerExperience(villager.getVillagerExperience() + gainedExperience);
+
+            final int newLevel = WrappedVillager.calculateLevel(villager.getVillagerExperience());
+            if (newLevel > villager.getVillagerLevel()) {
+                levelUp(newLevel);
+            }
+
+            proxy.getPersistentDataContainer().set(Keyring.VillagerOptimizer.VIRTUAL_VILLAGER.getKey(),
+                    PersistentDataType.BYTE_ARRAY, VillagerRecord.serialize(villager));
+        }
+
+        private void levelUp(int newLevel) {
+            // Only the server can roll the new trades, so the real villager is spawned for the blink of an eye
+            final Villager spawned = VillagerRecord.of(villager).spawn(proxy.getWorld());
+            if (spawned == null) {
+                warn("Virtual villager at " + LocationUtil.toString(proxy.getLocation()) + " could not level up " +
+                        "because it still exists as a real villager.");
+                return;
+            }
+            try {
+                spawned.increaseLevel(newLevel - spawned.getVillagerLevel());
+            } catch (NoSuchMethodError e) {
+                spawned.setVillagerLevel(newLevel);
+            }
+            villager = VillagerRecord.of(spawned).toVillager(proxy.getWorld());
+            spawned.remove();
+            merchant.setRecipes(villager.getRecipes());
+
+            if (log_enabled) {
+                info("Virtual villager at " + LocationUtil.toString(proxy.getLocation()) + " leveled up to level " + newLevel);
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package me.xginko.villageroptimizer.trace;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The binary format of event traces, shared by the recorder and the offline replayer.
+ * <p>
+ * A trace is a gzipped stream starting with a header ({@link #MAGIC}, {@link #VERSION}, start time in epoch millis),
+ * followed by records. Numbers are written as variable length integers and every string, like entity types,
+ * world names or damage causes, is only written the first time it appears and referenced by index after that.
+ * A record is laid out as:
+ * <pre>
+ * type, time since previous record, subject id, subject type, other id + 1, [other type], world, x, y, z, detail, [value]
+ * </pre>
+ * where the other type is only present if there is another entity and the value only for {@link Type#DAMAGE}.
+ */
+public final class EventTrace {
+
+    public static final int MAGIC = 0x564F5452; // VOTR
+    public static final byte VERSION = 1;
+    public static final String FILE_EXTENSION = ".votrace";
+
+    public enum Type {
+        PATHFIND, TARGET, DAMAGE, INTERACT, SPAWN, BLOCK_PLACE, BLOCK_BREAK
+    }
+
+    /**
+     * A single recorded event. Depending on the type, the subject is the entity the event is about or,
+     * for block events, the player. The detail holds the cause, reason, hand or material of the event.
+     */
+    public static final class Record {
+
+        public final @NotNull Type type;
+        public final long timeMillis;
+        public final int subjectId, otherId;
+        public final @NotNull String subjectType, world;
+        public final @Nullable String otherType, detail;
+        public final int x, y, z;
+        public final float value;
+
+        public Record(
+                @NotNull Type type, long timeMillis, int subjectId, @NotNull String subjectType, int otherId, @Nullable String otherType,
+                @NotNull String world, int x, int y, int z, @Nullable String detail, float value
+        ) {
+            this.type = type;
+            this.timeMillis = timeMillis;
+            this.subjectId = subjectId;
+            this.subjectType = subjectType;
+            this.otherId = otherType == null ? -1 : otherId;
+            this.otherType = otherType;
+            this.world = world;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.detail = detail;
+            this.value = value;
+        }
+    }
+
+    public static final class Writer implements Closeable {
+
+        private final @NotNull DataOutputStream out;
+        private final @NotNull Map<String, Integer> strings = new HashMap<>();
+        private long lastTimeMillis;
+
+        public Writer(@NotNull File file, long startTimeMillis) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file), 1 << 16)));
+            this.lastTimeMillis = startTimeMillis;
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(startTimeMillis);
+        }
+
+        public synchronized void write(@NotNull Record record) throws IOException {
+            out.writeByte(record.type.ordinal());
+            // Records from different regions may arrive slightly out of order
+            writeVarLong(zigZag(record.timeMillis - lastTimeMillis));
+            lastTimeMillis = record.timeMillis;
+            writeVarLong(record.subjectId & 0xffffffffL);
+            writeString(record.subjectType);
+            writeVarLong(record.otherId + 1L);
+            if (record.otherType != null) writeString(record.otherType);
+            writeString(record.world);
+            writeVarLong(zigZag(record.x));
+            writeVarLong(zigZag(record.y));
+            writeVarLong(zigZag(record.z));
+            writeString(record.detail);
+            if (record.type == Type.DAMAGE) out.writeFloat(record.value);
+        }
+
+        public synchronized void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            out.close();
+        }
+
+        private void writeString(@Nullable String string) throws IOException {
+            if (string == null) {
+                writeVarLong(0);
+                return;
+            }
+            final Integer index = strings.get(string);
+            if (index != null) {
+                writeVarLong(index);
+                return;
+            }
+            final int newIndex = strings.size() + 1;
+            strings.put(string, newIndex);
+            writeVarLong(newIndex);
+            out.writeUTF(string);
+        }
+
+        private void writeVarLong(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                out.writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.writeByte((int) value);
+        }
+    }
+
+    public static final class Reader implements Closeable {
+
+        private final @NotNull DataInputStream in;
+        private final @NotNull List<String> strings = new ArrayList<>();
+        public final long startTimeMillis;
+        private long lastTimeMillis;
+
+        public Reader(@NotNull File file) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file), 1 << 16)));
+            if (in.readInt() != MAGIC) {
+                in.close();
+                throw new IOException(file.getName() + " is not an event trace.");
+            }
+            final byte version = in.readByte();
+            if (version != VERSION) {
+                in.close();
+                throw new IOException(file.getName() + " was written with trace version " + version + ", expected " + VERSION + ".");
+            }
+            this.startTimeMillis = in.readLong();
+            this.lastTimeMillis = startTimeMillis;
+            strings.add(null);
+        }
+
+        /**
+         * @return The next record, or null if the end of the trace was reached.
+         */
+        public @Nullable Record next() throws IOException {
+            final int typeOrdinal;
+            try {
+                typeOrdinal = in.readUnsignedByte();
+            } catch (EOFException e) {
+                return null;
+            }
+
+            final Type type = Type.values()[typeOrdinal];
+            lastTimeMillis += unZigZag(readVarLong());
+            final int subjectId = (int) readVarLong();
+            final String subjectType = readString();
+            final int otherId = (int) (readVarLong() - 1);
+            final String otherType = otherId >= 0 ? readString() : null;
+            final String world = readString();
+            final int x = (int) unZigZag(readVarLong());
+            final int y = (int) unZigZag(readVarLong());
+            final int z = (int) unZigZag(readVarLong());
+            final String detail = readString();
+            final float value = type == Type.DAMAGE ? in.readFloat() : 0F;
+
+            return new Record(type, lastTimeMillis, subjectId, subjectType, otherId, otherType, world, x, y, z, detail, value);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private @Nullable String readString() throws IOException {
+            final int index = (int) readVarLong();
+            if (index < strings.size()) return strings.get(index);
+            final String string = in.readUTF();
+            strings.add(string);
+            return string;
+        }
+
+        private long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                final int b = in.readUnsignedByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw new IOException("Malformed variable length number.");
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,257 @@
+package me.xginko.villageroptimizer.utils;
+
+import me.xginko.villageroptimizer.VillagerOptimizer;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.util.BoundingBox;
+import org.jetbrains.annotations.NotNull;
+import space.arim.morepaperlib.scheduling.GracefulScheduling;
+import space.arim.morepaperlib.scheduling.ScheduledTask;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs an action for every entity in a set of chunks. Each chunk is processed on the region that owns it,
+ * and the work is spread over as many ticks as needed to stay within a time budget per tick.
+ * New chunks and chunks that are already in progress all draw from the same budget.
+ */
+public final class ChunkBatch {
+
+    private static final int CHUNKS_PER_TICK = 8;
+
+    private final @NotNull World world;
+    private final long @NotNull [] chunkKeys;
+    private long budgetPerTickNanos = TimeUnit.MILLISECONDS.toNanos(2);
+    private boolean loadChunks = false;
+
+    private ChunkBatch(@NotNull World world, long @NotNull [] chunkKeys) {
+        this.world = world;
+        this.chunkKeys = chunkKeys;
+    }
+
+    /**
+     * @param world The world the chunks are in.
+     * @param chunkKeys The keys of the chunks, as returned by {@link org.bukkit.Chunk#getChunkKey()}.
+     * @return A batch over the given chunks.
+     */
+    public static @NotNull ChunkBatch of(@NotNull World world, long @NotNull [] chunkKeys) {
+        return new ChunkBatch(world, chunkKeys);
+    }
+
+    /**
+     * @param world The world the box is in.
+     * @param box The box to cover.
+     * @return A batch over all chunks the box intersects with.
+     */
+    public static @NotNull ChunkBatch within(@NotNull World world, @NotNull BoundingBox box) {
+        return new ChunkBatch(world, chunkKeysWithin(box));
+    }
+
+    /**
+     * @param box The box to cover.
+     * @return The keys of all chunks the box intersects with.
+     */
+    public static long @NotNull [] chunkKeysWithin(@NotNull BoundingBox box) {
+        final int minChunkX = (int) Math.floor(box.getMinX()) >> 4, maxChunkX = (int) Math.floor(box.getMaxX()) >> 4;
+        final int minChunkZ = (int) Math.floor(box.getMinZ()) >> 4, maxChunkZ = (int) Math.floor(box.getMaxZ()) >> 4;
+
+        final long chunkCount = chunkCountWithin(box);
+        if (chunkCount > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Box spans too many chunks: " + chunkCount);
+
+        final long[] chunkKeys = new long[(int) chunkCount];
+        int i = 0;
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                chunkKeys[i++] = chunkKey(chunkX, chunkZ);
+            }
+        }
+        return chunkKeys;
+    }
+
+    /**
+     * @param box The box to cover.
+     * @return The number of chunks the box intersects with.
+     */
+    public static long chunkCountWithin(@NotNull BoundingBox box) {
+        final long chunksX = ((long) ((int) Math.floor(box.getMaxX()) >> 4)) - ((int) Math.floor(box.getMinX()) >> 4) + 1;
+        final long chunksZ = ((long) ((int) Math.floor(box.getMaxZ()) >> 4)) - ((int) Math.floor(box.getMinZ()) >> 4) + 1;
+        return chunksX * chunksZ;
+    }
+
+    /**
+     * @return The same key {@link org.bukkit.Chunk#getChunkKey()} would return for the chunk at the given coordinates.
+     */
+    public static long chunkKey(int chunkX, int chunkZ) {
+        return (chunkX & 0xffffffffL) | ((chunkZ & 0xffffffffL) << 32);
+    }
+
+    /**
+     * @param budgetNanos The maximum time in nanoseconds that may be spent on this batch per tick.
+     * @return This batch.
+     */
+    public @NotNull ChunkBatch budgetPerTick(long budgetNanos) {
+        this.budgetPerTickNanos = Math.max(1, budgetNanos);
+        return this;
+    }
+
+    /**
+     * @param loadChunks Whether chunks that aren't loaded should be loaded for processing instead of being skipped.
+     *                   Chunks that have never been generated are always skipped.
+     * @return This batch.
+     */
+    public @NotNull ChunkBatch loadChunks(boolean loadChunks) {
+        this.loadChunks = loadChunks;
+        return this;
+    }
+
+    public int size() {
+        return chunkKeys.length;
+    }
+
+    /**
+     * Runs the action for every entity in the chunks of this batch. Unless {@link #loadChunks(boolean)} is enabled,
+     * chunks that aren't loaded are skipped.
+     * The action is always called on the thread that owns the entity's chunk.
+     *
+     * @param scheduling The scheduler to use.
+     * @param action The action to run.
+     * @return A future that completes once all chunks have been processed.
+     */
+    public @NotNull CompletableFuture<Void> forEachEntity(@NotNull GracefulScheduling scheduling, @NotNull Consumer<Entity> action) {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        if (chunkKeys.length == 0) {
+            future.complete(null);
+            return future;
+        }
+
+        final TickBudget budget = new TickBudget(scheduling, budgetPerTickNanos);
+        future.whenComplete((result, throwable) -> budget.stop());
+
+        final AtomicInteger remaining = new AtomicInteger(chunkKeys.length);
+        final Runnable chunkDone = () -> {
+            if (remaining.decrementAndGet() == 0) future.complete(null);
+        };
+
+        for (int i = 0; i < chunkKeys.length; i++) {
+            final int chunkX = (int) chunkKeys[i], chunkZ = (int) (chunkKeys[i] >> 32);
+            final Runnable processChunk = new Runnable() {
+                @Override
+                public void run() {
+                    // Wait for the next tick instead of starting another chunk once the budget is used up
+                    if (budget.isUsedUp()) {
+                        scheduling.regionSpecificScheduler(world, chunkX, chunkZ).runDelayed(this, 1L);
+                    } else if (world.isChunkLoaded(chunkX, chunkZ)) {
+                        processSlice(scheduling, budget, chunkX, chunkZ, world.getChunkAt(chunkX, chunkZ).getEntities(), 0, action, chunkDone);
+                    } else if (loadChunks) {
+                        loadAndProcess(scheduling, budget, chunkX, chunkZ, action, chunkDone);
+                    } else {
+                        chunkDone.run();
+                    }
+                }
+            };
+
+            // Only hand out a few chunks per tick so the whole batch never lands in a single tick
+            final long delay = i / CHUNKS_PER_TICK;
+            if (delay == 0) {
+                scheduling.regionSpecificScheduler(world, chunkX, chunkZ).run(processChunk);
+            } else {
+                scheduling.regionSpecificScheduler(world, chunkX, chunkZ).runDelayed(processChunk, delay);
+            }
+        }
+
+        return future;
+    }
+
+    private void loadAndProcess(
+            @NotNull GracefulScheduling scheduling, @NotNull TickBudget budget, int chunkX, int chunkZ,
+            @NotNull Consumer<Entity> action, @NotNull Runnable chunkDone
+    ) {
+        world.getChunkAtAsync(chunkX, chunkZ, false).whenComplete((chunk, throwable) -> {
+            if (chunk == null) { // Not generated or failed to load
+                chunkDone.run();
+                return;
+            }
+
+            scheduling.regionSpecificScheduler(world, chunkX, chunkZ).run(() -> {
+                // Keep the chunk loaded until all of its entities have been processed
+                chunk.addPluginChunkTicket(VillagerOptimizer.getInstance());
+                processSlice(scheduling, budget, chunkX, chunkZ, chunk.getEntities(), 0, action, () -> {
+                    chunk.removePluginChunkTicket(VillagerOptimizer.getInstance());
+                    chunkDone.run();
+                });
+            });
+        });
+    }
+
+    private void processSlice(
+            @NotNull GracefulScheduling scheduling, @NotNull TickBudget budget, int chunkX, int chunkZ,
+            @NotNull Entity @NotNull [] entities, int from, @NotNull Consumer<Entity> action, @NotNull Runnable chunkDone
+    ) {
+        final long deadline = budget.deadline();
+
+        for (int i = from; i < entities.length; i++) {
+            // Always handle at least one entity per slice, so even a tiny budget makes progress
+            if (i > from && System.nanoTime() > deadline) {
+                // Continue with the remaining entities next tick
+                final int next = i;
+                scheduling.regionSpecificScheduler(world, chunkX, chunkZ).runDelayed(
+                        () -> processSlice(scheduling, budget, chunkX, chunkZ, entities, next, action, chunkDone), 1L);
+                return;
+            }
+
+            // The snapshot may be a few ticks old by now. Entities that were removed or have moved into
+            // another region since can't be touched from here, and are handled wherever they are now.
+            if (!Bukkit.isOwnedByCurrentRegion(entities[i]) || !entities[i].isValid()) continue;
+
+            try {
+                action.accept(entities[i]);
+            } catch (Throwable t) {
+                VillagerOptimizer.logger().error("Error processing entity in chunk x={}, z={} in world {}.",
+                        chunkX, chunkZ, world.getName(), t);
+            }
+        }
+
+        chunkDone.run();
+    }
+
+    /**
+     * The time a batch may spend in the current tick. Every slice of the batch works towards the same deadline,
+     * which moves on once per tick, no matter how many chunks are in progress.
+     */
+    private static final class TickBudget {
+
+        private final long budgetNanos;
+        private final ScheduledTask ticker;
+        private final AtomicInteger tick;
+        private int deadlineTick = -1;
+        private long deadline;
+
+        private TickBudget(@NotNull GracefulScheduling scheduling, long budgetNanos) {
+            this.budgetNanos = budgetNanos;
+            this.tick = new AtomicInteger();
+            this.ticker = scheduling.globalRegionalScheduler().runAtFixedRate(tick::incrementAndGet, 1L, 1L);
+        }
+
+        private synchronized long deadline() {
+            final int currentTick = tick.get();
+            if (currentTick != deadlineTick) {
+                deadlineTick = currentTick;
+                deadline = System.nanoTime() + budgetNanos;
+            }
+            return deadline;
+        }
+
+        private boolean isUsedUp() {
+            return System.nanoTime() > deadline();
+        }
+
+        private void stop() {
+            ticker.cancel();
+        }
+    }
+}
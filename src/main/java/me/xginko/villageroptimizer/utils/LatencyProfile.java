@@ -0,0 +1,92 @@
+package me.xginko.villageroptimizer.utils;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects call counts and durations with as little overhead as possible. Durations are sorted
+ * into power of two buckets, so percentiles are accurate to within a factor of two, which is
+ * plenty for telling a 20µs handler apart from a 2ms one.
+ */
+public final class LatencyProfile {
+
+    private final LongAdder calls, totalNanos;
+    private final AtomicLong maxNanos;
+    private final AtomicLongArray buckets;
+    private volatile long startedMillis;
+
+    public LatencyProfile() {
+        this.calls = new LongAdder();
+        this.totalNanos = new LongAdder();
+        this.maxNanos = new AtomicLong();
+        this.buckets = new AtomicLongArray(64);
+        this.startedMillis = System.currentTimeMillis();
+    }
+
+    public void record(long nanos) {
+        calls.increment();
+        totalNanos.add(nanos);
+        buckets.incrementAndGet(63 - Long.numberOfLeadingZeros(Math.max(1, nanos)));
+        if (nanos > maxNanos.get()) {
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    public void reset() {
+        calls.reset();
+        totalNanos.reset();
+        maxNanos.set(0);
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0);
+        }
+        startedMillis = System.currentTimeMillis();
+    }
+
+    public long calls() {
+        return calls.sum();
+    }
+
+    public long totalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long maxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * @return The average time spent per server tick since this profile was started or reset.
+     */
+    public long nanosPerTick() {
+        final long ticks = Math.max(1, (System.currentTimeMillis() - startedMillis) / 50);
+        return totalNanos() / ticks;
+    }
+
+    /**
+     * @param percentile The percentile between 0 and 1.
+     * @return The upper bound of the bucket the percentile falls into, in nanoseconds.
+     */
+    public long percentileNanos(double percentile) {
+        final long total = calls();
+        if (total == 0) return 0;
+
+        final long target = (long) Math.ceil(total * percentile);
+        long seen = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            seen += buckets.get(i);
+            if (seen >= target) {
+                return i >= 62 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+            }
+        }
+        return maxNanos();
+    }
+
+    public static String format(long nanos) {
+        if (nanos < TimeUnit.MICROSECONDS.toNanos(1)) return nanos + "ns";
+        if (nanos < TimeUnit.MILLISECONDS.toNanos(1)) return String.format(Locale.ROOT, "%.1fµs", nanos / 1_000.0);
+        return String.format(Locale.ROOT, "%.2fms", nanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,54 @@
+package me.xginko.villageroptimizer.utils;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * A snapshot of the chunks players of a world are standing in, so player presence can be
+ * checked per chunk without having to look for entities around every single villager.
+ */
+public final class PlayerPresence {
+
+    private final int @NotNull [] playerChunks;
+
+    private PlayerPresence(int @NotNull [] playerChunks) {
+        this.playerChunks = playerChunks;
+    }
+
+    public static @NotNull PlayerPresence of(@NotNull World world) {
+        final List<Player> players = world.getPlayers();
+        final int[] playerChunks = new int[players.size() * 2];
+        for (int i = 0; i < players.size(); i++) {
+            final Location location = players.get(i).getLocation();
+            playerChunks[i * 2] = location.getBlockX() >> 4;
+            playerChunks[i * 2 + 1] = location.getBlockZ() >> 4;
+        }
+        return new PlayerPresence(playerChunks);
+    }
+
+    /**
+     * @param chunkX The x coordinate of the chunk.
+     * @param chunkZ The z coordinate of the chunk.
+     * @param radiusChunks The radius in chunks a player needs to be within.
+     * @return True if at least one player is within the given radius of the chunk.
+     */
+    public boolean isPlayerNearby(int chunkX, int chunkZ, int radiusChunks) {
+        for (int i = 0; i < playerChunks.length; i += 2) {
+            if (
+                    Math.abs(playerChunks[i] - chunkX) <= radiusChunks
+                    && Math.abs(playerChunks[i + 1] - chunkZ) <= radiusChunks
+            ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isEmpty() {
+        return playerChunks.length == 0;
+    }
+}
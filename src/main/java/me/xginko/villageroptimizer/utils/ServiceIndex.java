@@ -0,0 +1,68 @@
+package me.xginko.villageroptimizer.utils;
+
+import me.xginko.villageroptimizer.VillagerOptimizer;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads the implementations of a type from its index in {@code META-INF/services}, the same files
+ * {@link java.util.ServiceLoader} uses. Unlike a service loader, this only loads the classes, so callers
+ * can create instances whenever and however often they need to.
+ */
+public final class ServiceIndex {
+
+    /**
+     * @param type The type to find the implementations of.
+     * @return The concrete implementations listed in the type's index, in the order they are listed in.
+     * Classes that can't be loaded on this server version are left out.
+     */
+    public static <T> @NotNull List<Class<? extends T>> load(@NotNull Class<T> type) {
+        final ClassLoader classLoader = type.getClassLoader();
+        final Set<String> classNames = new LinkedHashSet<>();
+
+        try {
+            final Enumeration<URL> indexes = classLoader.getResources("META-INF/services/" + type.getName());
+            while (indexes.hasMoreElements()) {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(indexes.nextElement().openStream(), StandardCharsets.UTF_8))) {
+                    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                        final int comment = line.indexOf('#');
+                        final String className = (comment >= 0 ? line.substring(0, comment) : line).trim();
+                        if (!className.isEmpty()) classNames.add(className);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            VillagerOptimizer.logger().error("Failed reading the index of {} implementations.", type.getSimpleName(), e);
+            return Collections.emptyList();
+        }
+
+        final List<Class<? extends T>> classes = new ArrayList<>(classNames.size());
+        for (String className : classNames) {
+            try {
+                final Class<?> clazz = Class.forName(className, false, classLoader);
+                if (!type.isAssignableFrom(clazz) || clazz.isInterface() || Modifier.isAbstract(clazz.getModifiers())) {
+                    VillagerOptimizer.logger().error("'{}' is listed as a {} but isn't one.", className, type.getSimpleName());
+                    continue;
+                }
+                classes.add(clazz.asSubclass(type));
+            } catch (ClassNotFoundException e) {
+                VillagerOptimizer.logger().error("Could not find class '{}' listed as a {}.", className, type.getSimpleName());
+            } catch (LinkageError e) {
+                VillagerOptimizer.logger().warn("Class '{}' is not supported on this server version.", className);
+            }
+        }
+        return Collections.unmodifiableList(classes);
+    }
+}
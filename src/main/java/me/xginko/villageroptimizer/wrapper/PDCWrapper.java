@@ -18,7 +18,11 @@ public abstract class PDCWrapper {
     }
 
     public static PDCWrapper[] forVillager(Villager villager) {
-        if (VillagerOptimizer.config().support_other_plugins) {
+        return forVillager(villager, VillagerOptimizer.config().support_other_plugins);
+    }
+
+    public static PDCWrapper[] forVillager(Villager villager, boolean supportOtherPlugins) {
+        if (supportOtherPlugins) {
             return new PDCWrapper[]{new PDCWrapperVO(villager), new PDCWrapperAVL(villager)};
         } else {
             return new PDCWrapper[]{new PDCWrapperVO(villager)};
@@ -42,9 +46,29 @@ public abstract class PDCWrapper {
     public abstract boolean canOptimize(long cooldown_millis);
 
     /**
+     * Sets the OptimizationType as soon as the villager is no longer trading with a player.
+     *
+     * @param type OptimizationType the villager should be set to.
+     */
+    public void setOptimizationType(OptimizationType type) {
+        VillagerOptimizer.scheduling().entitySpecificScheduler(villager).runAtFixedRate(setOptimization -> {
+            // Keep repeating task until villager is no longer trading with a player
+            if (villager.isTrading()) return;
+
+            applyOptimizationType(type);
+
+            // End repeating task once logic is finished
+            setOptimization.cancel();
+        }, null, 1L, 20L);
+    }
+
+    /**
+     * Sets the OptimizationType right away. Must be called on the thread that owns the villager,
+     * and only while the villager isn't trading with a player.
+     *
      * @param type OptimizationType the villager should be set to.
      */
-    public abstract void setOptimizationType(OptimizationType type);
+    public abstract void applyOptimizationType(OptimizationType type);
 
     /**
      * @return The current OptimizationType of the villager.
@@ -1,6 +1,5 @@
 package me.xginko.villageroptimizer.wrapper;
 
-import me.xginko.villageroptimizer.VillagerOptimizer;
 import me.xginko.villageroptimizer.enums.Keyring;
 import me.xginko.villageroptimizer.enums.OptimizationType;
 import org.bukkit.entity.Villager;
@@ -34,41 +33,32 @@ public final class PDCWrapperAVL extends PDCWrapper {
     }
 
     @Override
-    public void setOptimizationType(OptimizationType type) {
-        VillagerOptimizer.scheduling().entitySpecificScheduler(villager).runAtFixedRate(setOptimization -> {
-            // Keep repeating task until villager is no longer trading with a player
-            if (villager.isTrading()) return;
-
-            if (type == OptimizationType.NONE) {
-                if (dataContainer.has(Keyring.AntiVillagerLag.OPTIMIZED_ANY.getKey(), PersistentDataType.STRING))
-                    dataContainer.remove(Keyring.AntiVillagerLag.OPTIMIZED_ANY.getKey());
-                if (dataContainer.has(Keyring.AntiVillagerLag.OPTIMIZED_WORKSTATION.getKey(), PersistentDataType.STRING))
-                    dataContainer.remove(Keyring.AntiVillagerLag.OPTIMIZED_WORKSTATION.getKey());
-                if (dataContainer.has(Keyring.AntiVillagerLag.OPTIMIZED_BLOCK.getKey(), PersistentDataType.STRING))
-                    dataContainer.remove(Keyring.AntiVillagerLag.OPTIMIZED_BLOCK.getKey());
-
-                villager.setAware(true);
-                villager.setAI(true);
-            } else {
-                switch (type) {
-                    case BLOCK:
-                        dataContainer.set(Keyring.AntiVillagerLag.OPTIMIZED_BLOCK.getKey(), PersistentDataType.STRING, Keyring.AntiVillagerLag.OPTIMIZED_BLOCK.getKey().toString());
-                        break;
-                    case WORKSTATION:
-                        dataContainer.set(Keyring.AntiVillagerLag.OPTIMIZED_WORKSTATION.getKey(), PersistentDataType.STRING, Keyring.AntiVillagerLag.OPTIMIZED_WORKSTATION.getKey().toString());
-                        break;
-                    case COMMAND:
-                    case NAMETAG:
-                        dataContainer.set(Keyring.AntiVillagerLag.OPTIMIZED_ANY.getKey(), PersistentDataType.STRING, "AVL");
-                        break;
-                }
-
-                villager.setAware(false);
+    public void applyOptimizationType(OptimizationType type) {
+        if (type == OptimizationType.NONE) {
+            if (dataContainer.has(Keyring.AntiVillagerLag.OPTIMIZED_ANY.getKey(), PersistentDataType.STRING))
+                dataContainer.remove(Keyring.AntiVillagerLag.OPTIMIZED_ANY.getKey());
+            if (dataContainer.has(Keyring.AntiVillagerLag.OPTIMIZED_WORKSTATION.getKey(), PersistentDataType.STRING))
+                dataContainer.remove(Keyring.AntiVillagerLag.OPTIMIZED_WORKSTATION.getKey());
+            if (dataContainer.has(Keyring.AntiVillagerLag.OPTIMIZED_BLOCK.getKey(), PersistentDataType.STRING))
+                dataContainer.remove(Keyring.AntiVillagerLag.OPTIMIZED_BLOCK.getKey());
+            // The entity flags are reverted by the optimization tier in PDCWrapperVO, which only restores what it changed
+        } else {
+            switch (type) {
+                case BLOCK:
+                    dataContainer.set(Keyring.AntiVillagerLag.OPTIMIZED_BLOCK.getKey(), PersistentDataType.STRING, Keyring.AntiVillagerLag.OPTIMIZED_BLOCK.getKey().toString());
+                    break;
+                case WORKSTATION:
+                    dataContainer.set(Keyring.AntiVillagerLag.OPTIMIZED_WORKSTATION.getKey(), PersistentDataType.STRING, Keyring.AntiVillagerLag.OPTIMIZED_WORKSTATION.getKey().toString());
+                    break;
+                case COMMAND:
+                case NAMETAG:
+                case AUTOMATIC:
+                case GOVERNOR:
+                    dataContainer.set(Keyring.AntiVillagerLag.OPTIMIZED_ANY.getKey(), PersistentDataType.STRING, "AVL");
+                    break;
             }
-
-            // End repeating task once logic is finished
-            setOptimization.cancel();
-        }, null, 1L, 20L);
+            // The entity flags are changed by the optimization tier in PDCWrapperVO
+        }
     }
 
     @Override
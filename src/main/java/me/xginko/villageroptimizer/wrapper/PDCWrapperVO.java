@@ -2,8 +2,10 @@ package me.xginko.villageroptimizer.wrapper;
 
 import me.xginko.villageroptimizer.VillagerOptimizer;
 import me.xginko.villageroptimizer.enums.Keyring;
+import me.xginko.villageroptimizer.enums.OptimizationTier;
 import me.xginko.villageroptimizer.enums.OptimizationType;
 import org.bukkit.entity.Villager;
+import org.bukkit.persistence.PersistentDataContainer;
 import org.bukkit.persistence.PersistentDataType;
 import org.jetbrains.annotations.NotNull;
 
@@ -13,6 +15,27 @@ public final class PDCWrapperVO extends PDCWrapper {
         super(villager);
     }
 
+    /**
+     * Makes the villager invulnerable and remembers that we did, so only villagers made invulnerable
+     * by us are made vulnerable again. Villagers that are already invulnerable are left untouched.
+     */
+    public static void makeInvulnerable(@NotNull Villager villager) {
+        if (villager.isInvulnerable()) return;
+        villager.setInvulnerable(true);
+        villager.getPersistentDataContainer().set(Keyring.VillagerOptimizer.INVULNERABLE_WHILE_OPTIMIZED.getKey(), PersistentDataType.BYTE, (byte) 1);
+    }
+
+    /**
+     * Makes the villager vulnerable again, if it was made invulnerable by {@link #makeInvulnerable(Villager)}.
+     */
+    public static void makeVulnerable(@NotNull Villager villager) {
+        if (!villager.isInvulnerable()) return;
+        final PersistentDataContainer dataContainer = villager.getPersistentDataContainer();
+        if (!dataContainer.has(Keyring.VillagerOptimizer.INVULNERABLE_WHILE_OPTIMIZED.getKey(), PersistentDataType.BYTE)) return;
+        villager.setInvulnerable(false);
+        dataContainer.remove(Keyring.VillagerOptimizer.INVULNERABLE_WHILE_OPTIMIZED.getKey());
+    }
+
     @Override
     public Keyring.Space getSpace() {
         return Keyring.Space.VillagerOptimizer;
@@ -29,24 +52,27 @@ public final class PDCWrapperVO extends PDCWrapper {
     }
 
     @Override
-    public void setOptimizationType(OptimizationType type) {
-        VillagerOptimizer.scheduling().entitySpecificScheduler(villager).runAtFixedRate(setOptimization -> {
-            // Keep repeating task until villager is no longer trading with a player
-            if (villager.isTrading()) return;
-
-            if (type == OptimizationType.NONE) {
-                if (isOptimized())
-                    dataContainer.remove(Keyring.VillagerOptimizer.OPTIMIZATION_TYPE.getKey());
-                villager.setAware(true);
-                villager.setAI(true);
+    public void applyOptimizationType(OptimizationType type) {
+        if (type == OptimizationType.NONE) {
+            if (isOptimized())
+                dataContainer.remove(Keyring.VillagerOptimizer.OPTIMIZATION_TYPE.getKey());
+            getOptimizationTier().revert(villager);
+            dataContainer.remove(Keyring.VillagerOptimizer.OPTIMIZATION_TIER.getKey());
+            makeVulnerable(villager);
+        } else {
+            final OptimizationTier tier = VillagerOptimizer.config().optimization_tier;
+            if (isOptimized() && getOptimizationTier() != tier)
+                getOptimizationTier().revert(villager);
+            dataContainer.set(Keyring.VillagerOptimizer.OPTIMIZATION_TYPE.getKey(), PersistentDataType.STRING, type.name());
+            dataContainer.set(Keyring.VillagerOptimizer.OPTIMIZATION_TIER.getKey(), PersistentDataType.STRING, tier.name());
+            tier.apply(villager);
+            // Villagers optimized by the tick time governor are only optimized for a while and stay vulnerable
+            if (VillagerOptimizer.config().invulnerable_while_optimized && type != OptimizationType.GOVERNOR) {
+                makeInvulnerable(villager);
             } else {
-                dataContainer.set(Keyring.VillagerOptimizer.OPTIMIZATION_TYPE.getKey(), PersistentDataType.STRING, type.name());
-                villager.setAware(false);
+                makeVulnerable(villager);
             }
-
-            // End repeating task once logic is finished
-            setOptimization.cancel();
-        }, null, 1L, 20L);
+        }
     }
 
     @Override
@@ -58,6 +84,19 @@ public final class PDCWrapperVO extends PDCWrapper {
         }
     }
 
+    /**
+     * @return The tier the villager was optimized with. Villagers optimized before tiers existed are {@link OptimizationTier#UNAWARE}.
+     */
+    public @NotNull OptimizationTier getOptimizationTier() {
+        final String tier = dataContainer.get(Keyring.VillagerOptimizer.OPTIMIZATION_TIER.getKey(), PersistentDataType.STRING);
+        if (tier == null) return OptimizationTier.UNAWARE;
+        try {
+            return OptimizationTier.valueOf(tier);
+        } catch (IllegalArgumentException e) {
+            return OptimizationTier.UNAWARE;
+        }
+    }
+
     @Override
     public void saveOptimizeTime() {
         dataContainer.set(Keyring.VillagerOptimizer.LAST_OPTIMIZE_SYSTIME_MILLIS.getKey(), PersistentDataType.LONG, System.currentTimeMillis());
@@ -0,0 +1,357 @@
+package me.xginko.villageroptimizer.wrapper;
+
+import com.destroystokyo.paper.entity.villager.Reputation;
+import com.destroystokyo.paper.entity.villager.ReputationType;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.attribute.Attribute;
+import org.bukkit.attribute.AttributeInstance;
+import org.bukkit.entity.Villager;
+import org.bukkit.entity.memory.MemoryKey;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.MerchantRecipe;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Binary snapshot of a villager: its position and identity next to the entity's own saved data, which holds
+ * everything else like its trades, reputation, health, workstation, home and persistent data.
+ * Used to store villagers without keeping their entity around.
+ */
+public final class VillagerRecord {
+
+    /**
+     * Version 1 and 2 records stored the villager's state field by field. They can still be read and are
+     * written as the current version the next time they are saved.
+     */
+    private static final byte FORMAT_VERSION = 3, FIELDS_FORMAT_VERSION = 2, LEGACY_FORMAT_VERSION = 1;
+
+    /**
+     * The block memories that tie a villager to its workstation, bed and village. Only read from old records.
+     */
+    private static final List<MemoryKey<Location>> LOCATION_MEMORIES = Arrays.asList(
+            MemoryKey.JOB_SITE, MemoryKey.POTENTIAL_JOB_SITE, MemoryKey.HOME, MemoryKey.MEETING_POINT);
+
+    private final double x, y, z;
+    private final float yaw, pitch;
+    private final @Nullable UUID uniqueId;
+    /**
+     * The entity data as saved by the server, null only for version 1 records.
+     */
+    private final byte @Nullable [] entityData;
+    /**
+     * The state stored by version 1 and 2 records, applied on top of the entity data if there is any.
+     */
+    private final @Nullable LegacyState legacyState;
+
+    private VillagerRecord(
+            double x, double y, double z, float yaw, float pitch,
+            @Nullable UUID uniqueId, byte @Nullable [] entityData, @Nullable LegacyState legacyState
+    ) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.yaw = yaw;
+        this.pitch = pitch;
+        this.uniqueId = uniqueId;
+        this.entityData = entityData;
+        this.legacyState = legacyState;
+    }
+
+    /**
+     * @param villager The villager to take a snapshot of.
+     * @return A record holding the current state of the villager.
+     */
+    public static @NotNull VillagerRecord of(@NotNull Villager villager) {
+        final Location location = villager.getLocation();
+        return new VillagerRecord(
+                location.getX(), location.getY(), location.getZ(), location.getYaw(), location.getPitch(),
+                villager.getUniqueId(), Bukkit.getUnsafe().serializeEntity(villager), null
+        );
+    }
+
+    /**
+     * @param villager The villager to take a snapshot of.
+     * @return The villager serialized into a byte array.
+     * @throws IOException if the villager could not be serialized.
+     */
+    public static byte @NotNull [] serialize(@NotNull Villager villager) throws IOException {
+        return of(villager).toBytes();
+    }
+
+    /**
+     * Spawns the villager a record was created from in the given world at its exact previous position.
+     *
+     * @param world The world the villager was serialized in.
+     * @param record The record as returned by {@link #serialize(Villager)}.
+     * @return The newly spawned villager, or null if the villager still exists and the record is a stale copy.
+     * @throws IOException if the record is invalid.
+     */
+    public static @Nullable Villager spawn(@NotNull World world, byte @NotNull [] record) throws IOException {
+        return fromBytes(record).spawn(world);
+    }
+
+    public static @NotNull VillagerRecord fromBytes(byte @NotNull [] record) throws IOException {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+
+        final byte version = in.readByte();
+        if (version != FORMAT_VERSION && version != FIELDS_FORMAT_VERSION && version != LEGACY_FORMAT_VERSION)
+            throw new IOException("Unsupported villager record format version " + version);
+
+        final double x = in.readDouble(), y = in.readDouble(), z = in.readDouble();
+        final float yaw = in.readFloat(), pitch = in.readFloat();
+
+        if (version == FORMAT_VERSION) {
+            final UUID uniqueId = new UUID(in.readLong(), in.readLong());
+            return new VillagerRecord(x, y, z, yaw, pitch, uniqueId, readBytes(in), null);
+        }
+
+        final LegacyState legacyState = LegacyState.read(in);
+        if (version == LEGACY_FORMAT_VERSION) {
+            return new VillagerRecord(x, y, z, yaw, pitch, null, null, legacyState);
+        }
+
+        final UUID uniqueId = in.readBoolean() ? new UUID(in.readLong(), in.readLong()) : null;
+        legacyState.readVersion2(in);
+        final byte[] entityData = readBytes(in);
+        return new VillagerRecord(x, y, z, yaw, pitch, uniqueId, entityData.length == 0 ? null : entityData, legacyState);
+    }
+
+    /**
+     * @return The record in the current format. Old records have to be read back into a villager with
+     * {@link #toVillager(World)} and recorded again with {@link #of(Villager)} first.
+     * @throws IOException if this is an old record.
+     */
+    public byte @NotNull [] toBytes() throws IOException {
+        if (entityData == null || uniqueId == null || legacyState != null)
+            throw new IOException("Records in an old format can't be written, record the villager again instead");
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(entityData.length + 64);
+        final DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeByte(FORMAT_VERSION);
+        out.writeDouble(x);
+        out.writeDouble(y);
+        out.writeDouble(z);
+        out.writeFloat(yaw);
+        out.writeFloat(pitch);
+        out.writeLong(uniqueId.getMostSignificantBits());
+        out.writeLong(uniqueId.getLeastSignificantBits());
+        out.writeInt(entityData.length);
+        out.write(entityData);
+
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Creates the villager of this record without adding it to the world, so it can be read or changed
+     * and either spawned with {@link Villager#spawnAt(Location)} or recorded again.
+     *
+     * @param world The world the villager was recorded in.
+     * @return A villager with the state of this record that is not in any world yet.
+     */
+    public @NotNull Villager toVillager(@NotNull World world) {
+        final Villager villager = entityData != null
+                ? (Villager) Bukkit.getUnsafe().deserializeEntity(entityData, world, true)
+                : world.createEntity(getLocation(world), Villager.class);
+        if (legacyState != null) legacyState.applyTo(villager);
+        return villager;
+    }
+
+    /**
+     * Spawns a villager with the state of this record in the given world at its exact previous position.
+     * If an entity with the recorded {@link UUID} already exists, nothing is spawned. That happens when the
+     * record was saved but the villager's removal wasn't, for example after a crash, and spawning it would
+     * duplicate the villager.
+     *
+     * @param world The world the villager was recorded in.
+     * @return The newly spawned villager, or null if the villager still exists and the record is a stale copy.
+     */
+    public @Nullable Villager spawn(@NotNull World world) {
+        if (uniqueId != null && Bukkit.getEntity(uniqueId) != null) return null;
+        final Villager villager = toVillager(world);
+        villager.spawnAt(getLocation(world));
+        return villager;
+    }
+
+    public @NotNull Location getLocation(@NotNull World world) {
+        return new Location(world, x, y, z, yaw, pitch);
+    }
+
+    public @Nullable UUID getUniqueId() {
+        return uniqueId;
+    }
+
+    /**
+     * The villager's state as version 1 and 2 records stored it.
+     */
+    private static final class LegacyState {
+
+        private final @NotNull Villager.Profession profession;
+        private final @NotNull Villager.Type type;
+        private final int level, experience, age;
+        private final @Nullable String customName;
+        private final boolean customNameVisible, glowing, silent;
+        private final @NotNull List<MerchantRecipe> recipes;
+        private final @Nullable ItemStack @NotNull [] inventory;
+        private final byte @NotNull [] persistentData;
+        private double health = -1;
+        private @NotNull Map<UUID, Reputation> reputations = new HashMap<>();
+        private @NotNull Map<MemoryKey<Location>, double[]> locationMemories = new HashMap<>();
+
+        private LegacyState(
+                @NotNull Villager.Profession profession, @NotNull Villager.Type type, int level, int experience, int age,
+                @Nullable String customName, boolean customNameVisible, boolean glowing, boolean silent,
+                @NotNull List<MerchantRecipe> recipes, @Nullable ItemStack @NotNull [] inventory, byte @NotNull [] persistentData
+        ) {
+            this.profession = profession;
+            this.type = type;
+            this.level = level;
+            this.experience = experience;
+            this.age = age;
+            this.customName = customName;
+            this.customNameVisible = customNameVisible;
+            this.glowing = glowing;
+            this.silent = silent;
+            this.recipes = recipes;
+            this.inventory = inventory;
+            this.persistentData = persistentData;
+        }
+
+        private static @NotNull LegacyState read(@NotNull DataInput in) throws IOException {
+            final Villager.Profession profession = Villager.Profession.valueOf(in.readUTF());
+            final Villager.Type type = Villager.Type.valueOf(in.readUTF());
+            final int level = in.readByte(), experience = in.readInt(), age = in.readInt();
+            final String customName = in.readBoolean() ? in.readUTF() : null;
+            final boolean customNameVisible = in.readBoolean(), glowing = in.readBoolean(), silent = in.readBoolean();
+            final List<MerchantRecipe> recipes = readRecipes(in);
+            final ItemStack[] inventory = readItems(in);
+            final byte[] persistentData = readBytes(in);
+            return new LegacyState(profession, type, level, experience, age, customName, customNameVisible,
+                    glowing, silent, recipes, inventory, persistentData);
+        }
+
+        private void readVersion2(@NotNull DataInput in) throws IOException {
+            this.health = in.readDouble();
+            this.reputations = readReputations(in);
+            this.locationMemories = readLocationMemories(in);
+        }
+
+        /**
+         * Version 2 records also held the entity data, but trades made with a virtual villager were only
+         * written to the fields, so the fields always win.
+         */
+        private void applyTo(@NotNull Villager villager) {
+            villager.setVillagerType(type);
+            villager.setProfession(profession);
+            villager.setVillagerLevel(level);
+            villager.setVillagerExperience(experience);
+            villager.setAge(age);
+            villager.setCustomName(customName);
+            villager.setCustomNameVisible(customNameVisible);
+            villager.setGlowing(glowing);
+            villager.setSilent(silent);
+            villager.setRecipes(recipes);
+            villager.getInventory().setContents(inventory);
+            villager.getPersistentDataContainer().readFromBytes(persistentData, true);
+            if (health > 0) {
+                final AttributeInstance maxHealth = villager.getAttribute(Attribute.GENERIC_MAX_HEALTH);
+                villager.setHealth(maxHealth != null ? Math.min(health, maxHealth.getValue()) : health);
+            }
+            if (!reputations.isEmpty()) {
+                villager.clearReputations();
+                villager.setReputations(reputations);
+            }
+            final World world = villager.getWorld();
+            for (Map.Entry<MemoryKey<Location>, double[]> memory : locationMemories.entrySet()) {
+                final double[] position = memory.getValue();
+                villager.setMemory(memory.getKey(), new Location(world, position[0], position[1], position[2]));
+            }
+        }
+    }
+
+    private static @NotNull List<MerchantRecipe> readRecipes(@NotNull DataInput in) throws IOException {
+        final int size = in.readShort();
+        final List<MerchantRecipe> recipes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            final ItemStack result = ItemStack.deserializeBytes(readBytes(in));
+            final ItemStack[] ingredients = readItems(in);
+            final MerchantRecipe recipe = new MerchantRecipe(
+                    result,
+                    in.readInt(),   // uses
+                    in.readInt(),   // max uses
+                    in.readBoolean(), // experience reward
+                    in.readInt(),   // villager experience
+                    in.readFloat(), // price multiplier
+                    in.readInt(),   // demand
+                    in.readInt()    // special price
+            );
+            for (ItemStack ingredient : ingredients) {
+                if (ingredient != null) recipe.addIngredient(ingredient);
+            }
+            recipes.add(recipe);
+        }
+        return recipes;
+    }
+
+    private static @NotNull Map<UUID, Reputation> readReputations(@NotNull DataInput in) throws IOException {
+        final ReputationType[] types = ReputationType.values();
+        final int size = in.readInt();
+        final int typeCount = in.readByte();
+        final Map<UUID, Reputation> reputations = new HashMap<>(size);
+        for (int i = 0; i < size; i++) {
+            final UUID player = new UUID(in.readLong(), in.readLong());
+            final Map<ReputationType, Integer> values = new EnumMap<>(ReputationType.class);
+            for (int t = 0; t < typeCount; t++) {
+                final int value = in.readInt();
+                if (t < types.length) values.put(types[t], value);
+            }
+            reputations.put(player, new Reputation(values));
+        }
+        return reputations;
+    }
+
+    private static @NotNull Map<MemoryKey<Location>, double[]> readLocationMemories(@NotNull DataInput in) throws IOException {
+        final int size = in.readByte();
+        final Map<MemoryKey<Location>, double[]> memories = new HashMap<>(size);
+        for (int i = 0; i < size; i++) {
+            final String key = in.readUTF();
+            final double[] position = {in.readDouble(), in.readDouble(), in.readDouble()};
+            for (MemoryKey<Location> memoryKey : LOCATION_MEMORIES) {
+                if (memoryKey.getKey().getKey().equals(key)) memories.put(memoryKey, position);
+            }
+        }
+        return memories;
+    }
+
+    private static @Nullable ItemStack @NotNull [] readItems(@NotNull DataInput in) throws IOException {
+        final ItemStack[] items = new ItemStack[in.readShort()];
+        for (int i = 0; i < items.length; i++) {
+            final byte[] item = readBytes(in);
+            items[i] = item.length == 0 ? null : ItemStack.deserializeBytes(item);
+        }
+        return items;
+    }
+
+    private static byte @NotNull [] readBytes(@NotNull DataInput in) throws IOException {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
@@ -1,39 +1,79 @@
 package me.xginko.villageroptimizer.wrapper;
 
+import me.xginko.villageroptimizer.VillagerOptimizer;
 import me.xginko.villageroptimizer.enums.Keyring;
+import me.xginko.villageroptimizer.enums.OptimizationTier;
 import me.xginko.villageroptimizer.enums.OptimizationType;
 import org.bukkit.Location;
 import org.bukkit.Sound;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
 import org.bukkit.entity.Villager;
 import org.bukkit.entity.memory.MemoryKey;
 import org.bukkit.inventory.MerchantRecipe;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.concurrent.atomic.LongAdder;
+
 public class WrappedVillager extends PDCWrapper {
 
+    private static final @NotNull BlockFace[] CELL_WALLS = {BlockFace.NORTH, BlockFace.EAST, BlockFace.SOUTH, BlockFace.WEST};
+    private static final @NotNull LongAdder SKIPPED_RESTOCKS = new LongAdder();
+
     private final @NotNull PDCWrapper[] pdcWrappers;
 
     public WrappedVillager(@NotNull Villager villager) {
+        this(villager, VillagerOptimizer.config().support_other_plugins);
+    }
+
+    /**
+     * @param villager The villager to wrap.
+     * @param supportOtherPlugins Whether data stored by other villager optimization plugins should be respected.
+     */
+    public WrappedVillager(@NotNull Villager villager, boolean supportOtherPlugins) {
         super(villager);
-        this.pdcWrappers = PDCWrapper.forVillager(villager);
+        this.pdcWrappers = PDCWrapper.forVillager(villager, supportOtherPlugins);
     }
 
     /**
-     * Restock all trading recipes.
+     * Restock all trading recipes. Recipes that haven't been used are not written to,
+     * so a villager nobody traded with isn't marked for saving.
+     *
+     * @return true if any recipe had been used and was restocked.
      */
-    public void restock() {
+    public boolean restock() {
+        boolean restocked = false;
         for (MerchantRecipe recipe : villager.getRecipes()) {
-            recipe.setUses(0);
+            if (recipe.getUses() > 0) {
+                recipe.setUses(0);
+                restocked = true;
+            }
         }
+        if (!restocked) SKIPPED_RESTOCKS.increment();
+        return restocked;
+    }
+
+    /**
+     * @return How many restocks were skipped since the server started because no recipe had been used.
+     */
+    public static long skippedRestocks() {
+        return SKIPPED_RESTOCKS.sum();
     }
 
     /**
      * @return The level between 1-5 calculated from the villagers experience.
      */
     public int calculateLevel() {
+        return calculateLevel(villager.getVillagerExperience());
+    }
+
+    /**
+     * @param vilEXP The trading experience of a villager.
+     * @return The level between 1-5 a villager with that much experience should have.
+     */
+    public static int calculateLevel(int vilEXP) {
         // https://minecraft.fandom.com/wiki/Trading#Mechanics
-        int vilEXP = villager.getVillagerExperience();
         if (vilEXP >= 250) return 5;
         if (vilEXP >= 150) return 4;
         if (vilEXP >= 70) return 3;
@@ -49,6 +89,21 @@ public class WrappedVillager extends PDCWrapper {
         return villager.getVillagerLevel() <= 1 && villager.getVillagerExperience() <= 0;
     }
 
+    /**
+     * @return true if the villager is standing in a 1x1 cell it can't walk out of, like in most trading halls.
+     */
+    public boolean isConfined() {
+        final Block feet = villager.getLocation().getBlock();
+        final Block head = feet.getRelative(BlockFace.UP);
+        for (BlockFace wall : CELL_WALLS) {
+            // A single obstructed block on either height is enough to keep a villager from walking through
+            if (feet.getRelative(wall).isPassable() && head.getRelative(wall).isPassable()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public void sayNo() {
         try {
             villager.shakeHead();
@@ -87,9 +142,9 @@ public class WrappedVillager extends PDCWrapper {
     }
 
     @Override
-    public void setOptimizationType(OptimizationType type) {
+    public void applyOptimizationType(OptimizationType type) {
         for (PDCWrapper pdcWrapper : pdcWrappers) {
-            pdcWrapper.setOptimizationType(type);
+            pdcWrapper.applyOptimizationType(type);
         }
     }
 
@@ -109,6 +164,18 @@ public class WrappedVillager extends PDCWrapper {
         return result;
     }
 
+    /**
+     * @return The tier the villager was optimized with, as stored by VillagerOptimizer.
+     */
+    public @NotNull OptimizationTier getOptimizationTier() {
+        for (PDCWrapper pdcWrapper : pdcWrappers) {
+            if (pdcWrapper instanceof PDCWrapperVO) {
+                return ((PDCWrapperVO) pdcWrapper).getOptimizationTier();
+            }
+        }
+        return OptimizationTier.UNAWARE;
+    }
+
     @Override
     public void saveOptimizeTime() {
         for (PDCWrapper pdcWrapper : pdcWrappers) {